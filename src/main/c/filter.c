@@ -1,24 +1,61 @@
-// gcc -c -Wall -Werror -O3 -march=native filter.c
-// gcc -shared filter.o -o filter.so
+// built by the Makefile: make -C src/main/c
+
+#include <stdint.h>
 
 void filter(
     int count,
     int* selectedPositions,
     int* shipDate,
-    int* discount,
-    int* quantity,
+    int64_t* discount,
+    int64_t* quantity,
     char* result,
     int minDate,
     int maxDate,
-    long minDiscount,
-    long maxDiscount,
-    long maxQuantity)
+    int64_t minDiscount,
+    int64_t maxDiscount,
+    int64_t maxQuantity)
 {
     for (int i = 0; i < count; ++i) {
-        result[i] = shipDate[i] >= minDate &
-                    shipDate[i] < maxDate &
-                    discount[i] >= minDiscount &
-                    discount[i] < maxDiscount &
-                    quantity[i] < maxQuantity;
+        result[i] = (shipDate[i] >= minDate) &
+                    (shipDate[i] < maxDate) &
+                    (discount[i] >= minDiscount) &
+                    (discount[i] < maxDiscount) &
+                    (quantity[i] < maxQuantity);
+    }
+}
+
+typedef struct {
+    int64_t count;
+    int* selectedPositions;
+    int* shipDate;
+    int64_t* discount;
+    int64_t* quantity;
+    char* result;
+} filter_batch;
+
+// evaluates many batches in one call, to pay for the downcall once
+void filter_batches(
+    int batchCount,
+    filter_batch* batches,
+    int minDate,
+    int maxDate,
+    int64_t minDiscount,
+    int64_t maxDiscount,
+    int64_t maxQuantity)
+{
+    for (int i = 0; i < batchCount; ++i) {
+        filter_batch* batch = &batches[i];
+        filter(
+            (int) batch->count,
+            batch->selectedPositions,
+            batch->shipDate,
+            batch->discount,
+            batch->quantity,
+            batch->result,
+            minDate,
+            maxDate,
+            minDiscount,
+            maxDiscount,
+            maxQuantity);
     }
 }
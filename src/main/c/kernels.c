@@ -0,0 +1,63 @@
+// built by the Makefile: make -C src/main/c
+//
+// Masks have one byte per position, 0 or 1. The compare kernels AND their result into the input mask, and the
+// input and output masks may be the same buffer.
+
+#include <stdint.h>
+
+#define COMPARE(name, suffix, type, operator) \
+    void name##_##suffix(int count, const int8_t* inputMask, int8_t* outputMask, const type* values, type value) \
+    { \
+        for (int i = 0; i < count; ++i) { \
+            outputMask[i] = inputMask[i] & (values[i] operator value); \
+        } \
+    }
+
+#define COMPARISONS(suffix, type) \
+    COMPARE(equal, suffix, type, ==) \
+    COMPARE(less, suffix, type, <) \
+    COMPARE(less_or_equal, suffix, type, <=) \
+    COMPARE(greater, suffix, type, >) \
+    COMPARE(greater_or_equal, suffix, type, >=)
+
+COMPARISONS(int32, int32_t)
+COMPARISONS(int64, int64_t)
+COMPARISONS(double, double)
+
+void and_masks(int count, const int8_t* left, const int8_t* right, int8_t* result)
+{
+    for (int i = 0; i < count; ++i) {
+        result[i] = left[i] & right[i];
+    }
+}
+
+void or_masks(int count, const int8_t* left, const int8_t* right, int8_t* result)
+{
+    for (int i = 0; i < count; ++i) {
+        result[i] = left[i] | right[i];
+    }
+}
+
+// returns the number of positions
+int mask_to_positions(int count, const int8_t* mask, int32_t* positions)
+{
+    int output = 0;
+    for (int i = 0; i < count; ++i) {
+        positions[output] = i;
+        output += mask[i];
+    }
+    return output;
+}
+
+#define PRODUCT(suffix, type) \
+    void product_##suffix(int count, const int32_t* positions, type* result, const type* left, const type* right) \
+    { \
+        for (int i = 0; i < count; ++i) { \
+            int32_t position = positions[i]; \
+            result[position] = left[position] * right[position]; \
+        } \
+    }
+
+PRODUCT(int32, int32_t)
+PRODUCT(int64, int64_t)
+PRODUCT(double, double)
@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.ColumnarActivePositionsNoNullsInPlace;
+import org.weakref.eval.file.BatchReader;
+import org.weakref.eval.file.BatchReader.Batch;
+import org.weakref.eval.file.BatchReader.Output;
+import org.weakref.eval.file.ColumnarFile;
+import org.weakref.eval.file.ColumnarFileWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Streams a file of 4M rows through the TPC-H Q6 filter of {@link ColumnarActivePositionsNoNullsInPlace} in
+ * batches of {@code batchSize} rows, with the next batch read on a background thread vs. in the same thread
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkBatchReader
+{
+    private static final int ROWS = 1 << 22;
+    private static final List<String> COLUMNS = List.of("shipdate", "discount", "quantity", "extendedprice");
+
+    @Param({"1024", "16384", "65536"})
+    public int batchSize = 16384;
+
+    private Path path;
+    private ColumnarFile file;
+    private ExecutorService prefetchExecutor;
+    private ExecutorService directExecutor;
+
+    private int[] inputPositions;
+    private int[] tempPositions;
+    private long[] result;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        Random random = new Random(0);
+        long[] discount = new long[ROWS];
+        long[] quantity = new long[ROWS];
+        long[] extendedPrice = new long[ROWS];
+        int[] shipDateOffsets = new int[ROWS + 1];
+        byte[] shipDate = new byte[ROWS * 10];
+        for (int i = 0; i < ROWS; i++) {
+            discount[i] = random.nextInt(11);
+            quantity[i] = 1 + random.nextInt(50);
+            extendedPrice[i] = random.nextInt(10_000_000);
+            byte[] date = "%d-%02d-%02d".formatted(1992 + random.nextInt(7), 1 + random.nextInt(12), 1 + random.nextInt(28)).getBytes(US_ASCII);
+            System.arraycopy(date, 0, shipDate, i * 10, 10);
+            shipDateOffsets[i + 1] = (i + 1) * 10;
+        }
+
+        path = Files.createTempFile("batch-reader", ".col");
+        new ColumnarFileWriter(1024)
+                .addBigintColumn("discount", discount)
+                .addBigintColumn("quantity", quantity)
+                .addBigintColumn("extendedprice", extendedPrice)
+                .addVarcharColumn("shipdate", shipDate, shipDateOffsets)
+                .write(path);
+        file = ColumnarFile.open(path);
+
+        prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .build());
+        directExecutor = MoreExecutors.newDirectExecutorService();
+
+        inputPositions = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            inputPositions[i] = i;
+        }
+        tempPositions = new int[batchSize];
+        result = new long[batchSize];
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        prefetchExecutor.shutdownNow();
+        file.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public long prefetch()
+    {
+        return evaluate(prefetchExecutor);
+    }
+
+    @Benchmark
+    public long synchronous()
+    {
+        return evaluate(directExecutor);
+    }
+
+    private long evaluate(ExecutorService executor)
+    {
+        try (BatchReader reader = new BatchReader(file, COLUMNS, batchSize, Output.ARRAYS, executor)) {
+            long checksum = 0;
+            for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+                ColumnarActivePositionsNoNullsInPlace.evaluate(
+                        batch.positionCount(),
+                        inputPositions,
+                        batch.bytes(0),
+                        batch.offsets(0),
+                        batch.longs(1),
+                        batch.longs(2),
+                        batch.longs(3),
+                        result,
+                        tempPositions);
+                checksum += result[0];
+            }
+            return checksum;
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkBatchReader.class);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.BlockedBloomFilter;
+import org.weakref.eval.swiss.SwissVector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Semi join of batches of 1024 probes against a set of 4M keys, where {@code matchPercent} percent of the probes
+ * match: the table alone vs. the Bloom filter of the table first. Each invocation takes the next batch out of 1M
+ * probes, as in {@link BenchmarkSwissBatch}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkBloomFilter
+{
+    private static final int KEYS = 1 << 22;
+    private static final int POSITIONS = 1024;
+    private static final int PROBES = 1 << 20;
+
+    @Param({"1", "10", "50"})
+    public int matchPercent = 1;
+
+    private SwissVector table;
+    private BlockedBloomFilter bloomFilter;
+
+    private Int64Vector probeVector;
+    private int[] inputPositions;
+    private int offset;
+    private int[] outputPositions;
+
+    @Setup
+    public void setup()
+    {
+        table = new SwissVector(KEYS);
+        for (int i = 0; i < KEYS; i++) {
+            table.put(key(i));
+        }
+        bloomFilter = table.bloomFilter();
+
+        Random random = new Random(0);
+        long[] probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            boolean match = random.nextInt(100) < matchPercent;
+            probes[i] = key(match ? random.nextInt(KEYS) : KEYS + random.nextInt(Integer.MAX_VALUE - KEYS));
+        }
+        probeVector = new Int64Vector(probes);
+        inputPositions = new int[POSITIONS];
+        outputPositions = new int[POSITIONS];
+    }
+
+    // distinct for distinct i, and spread over the whole range
+    private static long key(int i)
+    {
+        return i * 0x9E3779B97F4A7C15L;
+    }
+
+    private Selection nextBatch()
+    {
+        offset = (offset + POSITIONS) & (PROBES - 1);
+        for (int i = 0; i < POSITIONS; i++) {
+            inputPositions[i] = offset + i;
+        }
+        return new Selection(inputPositions, POSITIONS);
+    }
+
+    @Benchmark
+    public Selection table()
+    {
+        return table.filter(probeVector, nextBatch(), outputPositions);
+    }
+
+    @Benchmark
+    public Selection bloomFilterAndTable()
+    {
+        Selection candidates = bloomFilter.filter(probeVector, nextBatch(), outputPositions);
+        return table.filter(probeVector, candidates, outputPositions);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkBloomFilter.class);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.ConcurrentSwissVector;
+import org.weakref.eval.swiss.SwissVector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code threads} threads add 4M rows in batches of 1024 to one shared set, where each key appears in
+ * {@code duplicates} rows spread over all threads. ConcurrentSwissVector vs. a SwissVector with a lock around
+ * each batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkConcurrentSwissVector
+{
+    private static final int ROWS = 1 << 22;
+    private static final int POSITIONS = 1024;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads = 4;
+
+    @Param({"1", "8", "1024"})
+    public int duplicates = 1;
+
+    private ExecutorService executor;
+    private Int64Vector[] batches;
+    private Selection selection;
+
+    @Setup
+    public void setup()
+    {
+        executor = Executors.newFixedThreadPool(threads);
+
+        long[] keys = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            keys[i] = i / duplicates;
+        }
+        Random random = new Random(0);
+        for (int i = ROWS - 1; i > 0; i--) {
+            int other = random.nextInt(i + 1);
+            long key = keys[i];
+            keys[i] = keys[other];
+            keys[other] = key;
+        }
+
+        batches = new Int64Vector[ROWS / POSITIONS];
+        for (int batch = 0; batch < batches.length; batch++) {
+            long[] values = new long[POSITIONS];
+            System.arraycopy(keys, batch * POSITIONS, values, 0, POSITIONS);
+            batches[batch] = new Int64Vector(values);
+        }
+
+        int[] positions = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i] = i;
+        }
+        selection = new Selection(positions, POSITIONS);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public ConcurrentSwissVector concurrent()
+            throws Exception
+    {
+        ConcurrentSwissVector table = new ConcurrentSwissVector(ROWS / duplicates);
+        run(batch -> table.putAll(batches[batch], selection));
+        return table;
+    }
+
+    @Benchmark
+    public SwissVector locked()
+            throws Exception
+    {
+        SwissVector table = new SwissVector(ROWS / duplicates);
+        run(batch -> {
+            synchronized (table) {
+                table.putAll(batches[batch], selection);
+            }
+        });
+        return table;
+    }
+
+    private interface BatchTask
+    {
+        void process(int batch);
+    }
+
+    // thread t processes batches t, t + threads, ...
+    private void run(BatchTask task)
+            throws InterruptedException, ExecutionException
+    {
+        List<Callable<Void>> callables = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int first = thread;
+            callables.add(() -> {
+                for (int batch = first; batch < batches.length; batch += threads) {
+                    task.process(batch);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(callables)) {
+            future.get();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkConcurrentSwissVector.class);
+    }
+}
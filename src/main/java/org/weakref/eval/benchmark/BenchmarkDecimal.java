@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.function.Int128Math;
+import org.weakref.eval.proto.vector.Int128Vector;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.weakref.eval.benchmark.BenchmarkRunner.benchmark;
+
+/**
+ * DECIMAL(38, 2) arithmetic on {@link Int128Vector} with {@link Int128Math} vs. {@link BigDecimal}
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkDecimal
+{
+    private static final int POSITIONS = 1024;
+    private static final int SCALE = 2;
+
+    private Int128Vector left;
+    private Int128Vector right;
+    private Int128Vector result;
+
+    private BigDecimal[] leftDecimals;
+    private BigDecimal[] rightDecimals;
+    private BigDecimal[] resultDecimals;
+
+    @Setup
+    public void setup()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        left = new Int128Vector(new long[POSITIONS * 2]);
+        right = new Int128Vector(new long[POSITIONS * 2]);
+        result = new Int128Vector(new long[POSITIONS * 2]);
+        leftDecimals = new BigDecimal[POSITIONS];
+        rightDecimals = new BigDecimal[POSITIONS];
+        resultDecimals = new BigDecimal[POSITIONS];
+
+        for (int i = 0; i < POSITIONS; i++) {
+            // up to 18 digits on each side, so products stay within DECIMAL(38)
+            BigInteger leftValue = BigInteger.valueOf(random.nextLong(-999_999_999_999_999_999L, 999_999_999_999_999_999L));
+            BigInteger rightValue = BigInteger.valueOf(random.nextLong(-999_999_999_999_999_999L, 999_999_999_999_999_999L));
+
+            left.set(i, leftValue.longValue(), leftValue.shiftRight(64).longValue());
+            right.set(i, rightValue.longValue(), rightValue.shiftRight(64).longValue());
+            leftDecimals[i] = new BigDecimal(leftValue, SCALE);
+            rightDecimals[i] = new BigDecimal(rightValue, SCALE);
+        }
+    }
+
+    @Benchmark
+    public Object addInt128()
+    {
+        boolean overflow = false;
+        for (int i = 0; i < POSITIONS; i++) {
+            overflow |= Int128Math.add(left.low(i), left.high(i), right.low(i), right.high(i), result, i);
+        }
+        checkOverflow(overflow);
+        return result;
+    }
+
+    @Benchmark
+    public Object addBigDecimal()
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            resultDecimals[i] = leftDecimals[i].add(rightDecimals[i]);
+        }
+        return resultDecimals;
+    }
+
+    @Benchmark
+    public Object subtractInt128()
+    {
+        boolean overflow = false;
+        for (int i = 0; i < POSITIONS; i++) {
+            overflow |= Int128Math.subtract(left.low(i), left.high(i), right.low(i), right.high(i), result, i);
+        }
+        checkOverflow(overflow);
+        return result;
+    }
+
+    @Benchmark
+    public Object subtractBigDecimal()
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            resultDecimals[i] = leftDecimals[i].subtract(rightDecimals[i]);
+        }
+        return resultDecimals;
+    }
+
+    @Benchmark
+    public Object multiplyInt128()
+    {
+        boolean overflow = false;
+        for (int i = 0; i < POSITIONS; i++) {
+            overflow |= Int128Math.multiply(left.low(i), left.high(i), right.low(i), right.high(i), result, i);
+        }
+        checkOverflow(overflow);
+        return result;
+    }
+
+    @Benchmark
+    public Object multiplyBigDecimal()
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            resultDecimals[i] = leftDecimals[i].multiply(rightDecimals[i]);
+        }
+        return resultDecimals;
+    }
+
+    @Benchmark
+    public Object rescaleDownInt128()
+    {
+        boolean overflow = false;
+        for (int i = 0; i < POSITIONS; i++) {
+            overflow |= Int128Math.rescale(left.low(i), left.high(i), -SCALE, result, i);
+        }
+        checkOverflow(overflow);
+        return result;
+    }
+
+    @Benchmark
+    public Object rescaleDownBigDecimal()
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            resultDecimals[i] = leftDecimals[i].setScale(0, RoundingMode.HALF_UP);
+        }
+        return resultDecimals;
+    }
+
+    @Benchmark
+    public int compareInt128()
+    {
+        int count = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            count += Int128Math.lessThan(left.low(i), left.high(i), right.low(i), right.high(i)) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int compareBigDecimal()
+    {
+        int count = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            count += leftDecimals[i].compareTo(rightDecimals[i]) < 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static void checkOverflow(boolean overflow)
+    {
+        if (overflow) {
+            throw new ArithmeticException("Decimal overflow");
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        benchmark(BenchmarkDecimal.class);
+    }
+}
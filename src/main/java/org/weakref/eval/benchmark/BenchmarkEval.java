@@ -25,10 +25,12 @@ import org.weakref.eval.core.Columnar;
 import org.weakref.eval.core.ColumnarActivePositionsNoNulls;
 import org.weakref.eval.core.ColumnarActivePositionsNoNullsInPlace;
 import org.weakref.eval.core.ColumnarAdaptive;
+import org.weakref.eval.core.ColumnarDictionary;
 import org.weakref.eval.core.ColumnarMaskAndPositions;
 import org.weakref.eval.core.ColumnarMethodHandles;
 import org.weakref.eval.core.ColumnarNoNulls;
 import org.weakref.eval.core.ColumnarNoNullsBM;
+import org.weakref.eval.core.ColumnarNoNullsBMVector;
 import org.weakref.eval.core.ColumnarVector;
 import org.weakref.eval.core.Naive;
 import org.weakref.eval.core.Row;
@@ -168,6 +170,24 @@ public class BenchmarkEval
         return new Object[] {data.result, data.resultNullByte, data.resultMaskByte};
     }
 
+    @Benchmark
+    public Object[] columnarNoNullsBMVector(TpchData data)
+    {
+        ColumnarNoNullsBMVector.evaluate(
+                data.positions,
+                data.inputMaskBM,
+                data.shipDate,
+                data.shipDatePositions,
+                data.discount,
+                data.quantity,
+                data.extendedPrice,
+                data.result,
+                data.resultMaskBM
+        );
+
+        return new Object[] {data.result, data.resultNullByte, data.resultMaskByte};
+    }
+
     @Benchmark
     public Object[] columnarVector(TpchData data)
     {
@@ -225,6 +245,23 @@ public class BenchmarkEval
         return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
     }
 
+    @Benchmark
+    public Object[] columnarDictionary(TpchData data, DictionaryData dictionary)
+    {
+        ColumnarDictionary.evaluate(
+                data.positions,
+                data.inputPositions,
+                dictionary.shipDate.ids(),
+                dictionary.shipDateFilter.matches(dictionary.shipDate, DictionaryData.MIN_SHIP_DATE_BYTES, DictionaryData.MAX_SHIP_DATE_BYTES),
+                data.discount,
+                data.quantity,
+                data.extendedPrice,
+                data.result,
+                data.tempPositions1);
+
+        return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
+    }
+
     @Benchmark
     public Object[] columnarMethodHandles(TpchData data)
             throws Throwable
@@ -280,6 +317,50 @@ public class BenchmarkEval
         return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
     }
 
+    @Benchmark
+    public Object[] compiled(TpchData data, CompiledExpressions expressions)
+    {
+        System.arraycopy(data.inputPositions, 0, data.tempPositions1, 0, data.positions);
+
+        int count = expressions.filter.filter(data.positions, data.tempPositions1, expressions.columns);
+        expressions.projection.project(count, data.tempPositions1, expressions.columns, data.result, data.resultNullByte);
+
+        return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
+    }
+
+    @Benchmark
+    public Object[] compiledAdaptive(TpchData data, CompiledExpressions expressions)
+    {
+        System.arraycopy(data.inputPositions, 0, data.tempPositions1, 0, data.positions);
+
+        int count = expressions.adaptiveFilter.filter(data.positions, data.tempPositions1, expressions.columns);
+        expressions.projection.project(count, data.tempPositions1, expressions.columns, data.result, data.resultNullByte);
+
+        return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
+    }
+
+    @Benchmark
+    public Object[] compiledSelection(TpchData data, CompiledExpressions expressions)
+    {
+        expressions.selection.selectAll(data.positions);
+
+        expressions.filter.filter(expressions.selection, expressions.columns);
+        expressions.projection.project(expressions.selection, expressions.columns, data.result, data.resultNullByte);
+
+        return new Object[] {data.result, data.resultNullByte, expressions.selection};
+    }
+
+    @Benchmark
+    public Object[] compiledNullable(TpchData data, CompiledExpressions expressions)
+    {
+        System.arraycopy(data.inputPositions, 0, data.tempPositions1, 0, data.positions);
+
+        int count = expressions.nullableFilter.filter(data.positions, data.tempPositions1, expressions.nullableColumns);
+        expressions.nullableProjection.project(count, data.tempPositions1, expressions.nullableColumns, data.result, data.resultNullByte);
+
+        return new Object[] {data.result, data.resultNullByte, data.tempPositions1};
+    }
+
 //    @Test
     public void test()
             throws IOException
@@ -83,6 +83,20 @@ public class BenchmarkFilter
         return data.resultMask;
     }
 
+    @Benchmark
+    public MemorySegment mappedMemorySegment(MappedMemorySegments data)
+    {
+        FilterRowMsNoNulls.evaluate(
+                data.positions,
+                data.inputMask,
+                data.parsedShipDate,
+                data.discount,
+                data.quantity,
+                data.resultMask);
+
+        return data.resultMask;
+    }
+
     @Benchmark
     public MemorySegment unsafeMemorySegment(UnsafeMemorySegments data)
     {
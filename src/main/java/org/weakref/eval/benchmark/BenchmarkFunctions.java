@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.ColumnarActivePositionsNoNullsInPlace;
+import org.weakref.eval.core.ColumnarNoNulls;
+import org.weakref.eval.proto.function.BetweenVarcharFunction;
+import org.weakref.eval.proto.function.GreaterThanOrEqualBigintBigintFunction;
+import org.weakref.eval.proto.function.LessThanBigintBigintFunction;
+import org.weakref.eval.proto.function.LessThanOrEqualBigintBigintFunction;
+import org.weakref.eval.proto.function.MultiplyBigintBigintFunction;
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.VarcharVector;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Q6 written with the proto functions vs. the hand-written loops in eval.core that use the same selection representation
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkFunctions
+{
+    private static final byte[] MIN_SHIP_DATE_BYTES = "1994-01-01".getBytes();
+    private static final byte[] MAX_SHIP_DATE_BYTES = "1995-01-01".getBytes();
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        public int[] shipDateOffsets;
+
+        public Int64Vector discount;
+        public Int64Vector quantity;
+        public Int64Vector extendedPrice;
+        public VarcharVector shipDate;
+        public Int64Vector result;
+
+        public boolean[] selected;
+        public BooleanVector selectedVector;
+        public DenseMask selectedMask;
+
+        public final GreaterThanOrEqualBigintBigintFunction greaterThanOrEqual = new GreaterThanOrEqualBigintBigintFunction();
+        public final LessThanOrEqualBigintBigintFunction lessThanOrEqual = new LessThanOrEqualBigintBigintFunction();
+        public final LessThanBigintBigintFunction lessThan = new LessThanBigintBigintFunction();
+        public final BetweenVarcharFunction between = new BetweenVarcharFunction();
+        public final MultiplyBigintBigintFunction multiply = new MultiplyBigintBigintFunction();
+
+        @Setup
+        public void setup(TpchData data)
+        {
+            // TpchData clears shipDatePositions after loading. The dates are 10 bytes each.
+            shipDateOffsets = new int[data.positions + 1];
+            for (int i = 0; i <= data.positions; i++) {
+                shipDateOffsets[i] = i * 10;
+            }
+
+            discount = new Int64Vector(data.discount);
+            quantity = new Int64Vector(data.quantity);
+            extendedPrice = new Int64Vector(data.extendedPrice);
+            shipDate = new VarcharVector(data.shipDate, shipDateOffsets);
+            result = new Int64Vector(data.result);
+
+            // the mask loops update the mask in place
+            selected = new boolean[data.positions];
+            selectedVector = new BooleanVector(selected);
+            selectedMask = new DenseMask(selected);
+        }
+    }
+
+    @Benchmark
+    public Object[] handWrittenPositions(TpchData data, Data functions)
+    {
+        ColumnarActivePositionsNoNullsInPlace.evaluate(
+                data.positions,
+                data.inputPositions,
+                data.shipDate,
+                functions.shipDateOffsets,
+                data.discount,
+                data.quantity,
+                data.extendedPrice,
+                data.result,
+                data.tempPositions1);
+
+        return new Object[] {data.result, data.tempPositions1};
+    }
+
+    @Benchmark
+    public Object[] functionsPositions(TpchData data, Data functions)
+    {
+        int[] positions = data.tempPositions1;
+        System.arraycopy(data.inputPositions, 0, positions, 0, data.positions);
+
+        Selection selection = new Selection(positions, data.positions);
+        selection = functions.greaterThanOrEqual.filter(functions.discount, 5, selection, positions);
+        selection = functions.lessThanOrEqual.filter(functions.discount, 7, selection, positions);
+        selection = functions.lessThan.filter(functions.quantity, 24, selection, positions);
+        selection = functions.between.filter(functions.shipDate, MIN_SHIP_DATE_BYTES, MAX_SHIP_DATE_BYTES, selection, positions);
+
+        functions.multiply.multiply(functions.discount, functions.extendedPrice, selection, functions.result);
+
+        return new Object[] {data.result, positions};
+    }
+
+    @Benchmark
+    public Object[] handWrittenMask(TpchData data, Data functions)
+    {
+        ColumnarNoNulls.evaluate(
+                data.positions,
+                data.inputMask,
+                data.shipDate,
+                functions.shipDateOffsets,
+                data.discount,
+                data.quantity,
+                data.extendedPrice,
+                data.result,
+                data.resultMaskByte);
+
+        return new Object[] {data.result, data.resultMaskByte};
+    }
+
+    @Benchmark
+    public Object[] functionsMask(TpchData data, Data functions)
+    {
+        BooleanVector selected = functions.selectedVector;
+        DenseMask mask = functions.selectedMask;
+
+        Arrays.fill(functions.selected, true);
+        functions.greaterThanOrEqual.greaterThanOrEqual(functions.discount, 5, mask, selected);
+        functions.lessThanOrEqual.lessThanOrEqual(functions.discount, 7, mask, selected);
+        functions.lessThan.lessThan(functions.quantity, 24, mask, selected);
+        functions.between.between(functions.shipDate, MIN_SHIP_DATE_BYTES, MAX_SHIP_DATE_BYTES, mask, selected);
+
+        functions.multiply.multiply(functions.discount, functions.extendedPrice, mask, functions.result);
+
+        return new Object[] {data.result, functions.selected};
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkFunctions.class);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.CountAccumulator;
+import org.weakref.eval.swiss.HashAggregation;
+import org.weakref.eval.swiss.Int128SumAccumulator;
+import org.weakref.eval.swiss.MaxAccumulator;
+import org.weakref.eval.swiss.MinAccumulator;
+import org.weakref.eval.swiss.SumAccumulator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * count, sum, min, max and 128-bit sum of a value grouped by a key, over 1M rows in batches of 1024, vs. a HashMap
+ * from key to the accumulated values
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkHashAggregation
+{
+    private static final int ROWS = 1 << 20;
+    private static final int POSITIONS = 1024;
+
+    @Param({"10", "10000", "1000000"})
+    public int groups = 10_000;
+
+    private Int64Vector[] keys;
+    private Int64Vector[] values;
+    // every accumulator reads the same column
+    private List<List<Int64Vector>> inputs;
+    private Selection selection;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(0);
+        ImmutableList.Builder<List<Int64Vector>> inputs = ImmutableList.builder();
+        keys = new Int64Vector[ROWS / POSITIONS];
+        values = new Int64Vector[ROWS / POSITIONS];
+        for (int batch = 0; batch < keys.length; batch++) {
+            long[] keyValues = new long[POSITIONS];
+            long[] valueValues = new long[POSITIONS];
+            for (int i = 0; i < POSITIONS; i++) {
+                keyValues[i] = random.nextInt(groups);
+                valueValues[i] = random.nextInt(1_000_000);
+            }
+            keys[batch] = new Int64Vector(keyValues);
+            values[batch] = new Int64Vector(valueValues);
+            inputs.add(ImmutableList.of(values[batch], values[batch], values[batch], values[batch], values[batch]));
+        }
+        this.inputs = inputs.build();
+
+        int[] positions = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i] = i;
+        }
+        selection = new Selection(positions, POSITIONS);
+    }
+
+    @Benchmark
+    public HashAggregation swiss()
+    {
+        HashAggregation aggregation = new HashAggregation(1024, ImmutableList.of(
+                new CountAccumulator(),
+                new SumAccumulator(),
+                new MinAccumulator(),
+                new MaxAccumulator(),
+                new Int128SumAccumulator()));
+
+        for (int batch = 0; batch < keys.length; batch++) {
+            aggregation.add(keys[batch], inputs.get(batch), selection);
+        }
+        return aggregation;
+    }
+
+    @Benchmark
+    public Map<Long, long[]> hashMap()
+    {
+        Map<Long, long[]> aggregation = new HashMap<>(1024);
+
+        for (int batch = 0; batch < keys.length; batch++) {
+            long[] keyValues = keys[batch].values();
+            long[] valueValues = values[batch].values();
+            for (int i = 0; i < POSITIONS; i++) {
+                long value = valueValues[i];
+                long[] state = aggregation.computeIfAbsent(keyValues[i], key -> new long[] {0, 0, Long.MAX_VALUE, Long.MIN_VALUE, 0, 0});
+                state[0]++;
+                state[1] = Math.addExact(state[1], value);
+                state[2] = Math.min(state[2], value);
+                state[3] = Math.max(state[3], value);
+
+                // 128-bit sum as low and high words, with the same overflow check as Int128Math.add
+                long low = state[4] + value;
+                long high = state[5] + (value >> 63) + (Long.compareUnsigned(low, state[4]) < 0 ? 1 : 0);
+                if (((state[5] ^ high) & ((value >> 63) ^ high)) < 0) {
+                    throw new ArithmeticException("Sum overflow");
+                }
+                state[4] = low;
+                state[5] = high;
+            }
+        }
+        return aggregation;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkHashAggregation.class);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.JoinHash;
+import org.weakref.eval.swiss.JoinProbe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes 1M rows in batches of 1024 against a build side of 1M rows, where each key has {@code duplicates} rows, vs.
+ * a HashMap from key to a list of build rows. Half of the probe keys match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkHashJoin
+{
+    private static final int ROWS = 1 << 20;
+    private static final int POSITIONS = 1024;
+
+    @Param({"1", "4"})
+    public int duplicates = 1;
+
+    private JoinHash joinHash;
+    private JoinProbe probe;
+    private Map<Long, List<Integer>> hashMap;
+
+    private Int64Vector[] probeKeys;
+    private Selection selection;
+
+    @Setup
+    public void setup()
+    {
+        int keys = ROWS / duplicates;
+
+        long[] buildKeys = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            buildKeys[i] = i % keys;
+        }
+        int[] positions = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            positions[i] = i;
+        }
+
+        joinHash = new JoinHash(keys);
+        joinHash.addRows(new Int64Vector(buildKeys), new Selection(positions, ROWS));
+        probe = new JoinProbe(joinHash, POSITIONS);
+
+        hashMap = new HashMap<>();
+        for (int i = 0; i < ROWS; i++) {
+            hashMap.computeIfAbsent(buildKeys[i], key -> new ArrayList<>()).add(i);
+        }
+
+        Random random = new Random(0);
+        probeKeys = new Int64Vector[ROWS / POSITIONS];
+        for (int batch = 0; batch < probeKeys.length; batch++) {
+            long[] values = new long[POSITIONS];
+            for (int i = 0; i < POSITIONS; i++) {
+                values[i] = random.nextInt(keys * 2);
+            }
+            probeKeys[batch] = new Int64Vector(values);
+        }
+        selection = new Selection(positions, POSITIONS);
+    }
+
+    @Benchmark
+    public long swiss()
+    {
+        long checksum = 0;
+        for (Int64Vector keys : probeKeys) {
+            probe.reset(keys, selection);
+            while (probe.next()) {
+                int[] buildRows = probe.buildRows();
+                for (int i = 0; i < probe.size(); i++) {
+                    checksum += buildRows[i];
+                }
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long hashMap()
+    {
+        long checksum = 0;
+        for (Int64Vector keys : probeKeys) {
+            long[] values = keys.values();
+            for (int i = 0; i < POSITIONS; i++) {
+                List<Integer> rows = hashMap.get(values[i]);
+                if (rows != null) {
+                    for (int row : rows) {
+                        checksum += row;
+                    }
+                }
+            }
+        }
+        return checksum;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkHashJoin.class);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.function.Int128Kernels;
+import org.weakref.eval.proto.function.Int128Math;
+import org.weakref.eval.proto.vector.Int128Vector;
+import org.weakref.eval.proto.vector.SplitInt128Vector;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.weakref.eval.benchmark.BenchmarkRunner.benchmark;
+
+/**
+ * {@code SELECT sum(price) WHERE price < limit} and {@code SELECT price + tax} over DECIMAL(38, 2) columns,
+ * stored as {@link Int128Vector} (interleaved low and high words) and {@link SplitInt128Vector}
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkInt128Layout
+{
+    private static final int POSITIONS = 1024;
+
+    // about half of the prices are below the limit
+    private static final long LIMIT_LOW = 0;
+    private static final long LIMIT_HIGH = 1L << 40;
+
+    private Int128Vector price;
+    private Int128Vector tax;
+    private Int128Vector interleavedResult;
+
+    private SplitInt128Vector splitPrice;
+    private SplitInt128Vector splitTax;
+    private SplitInt128Vector splitResult;
+
+    private final Int128Vector sum = new Int128Vector(new long[2]);
+    private final long[] selected = new long[(POSITIONS + 63) / 64];
+
+    @Setup
+    public void setup()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        price = new Int128Vector(new long[POSITIONS * 2]);
+        tax = new Int128Vector(new long[POSITIONS * 2]);
+        interleavedResult = new Int128Vector(new long[POSITIONS * 2]);
+        splitPrice = new SplitInt128Vector(new long[POSITIONS], new long[POSITIONS]);
+        splitTax = new SplitInt128Vector(new long[POSITIONS], new long[POSITIONS]);
+        splitResult = new SplitInt128Vector(new long[POSITIONS], new long[POSITIONS]);
+
+        for (int i = 0; i < POSITIONS; i++) {
+            long low = random.nextLong();
+            long high = random.nextLong(LIMIT_HIGH * 2);
+            price.set(i, low, high);
+            splitPrice.set(i, low, high);
+
+            low = random.nextLong();
+            high = random.nextLong(LIMIT_HIGH);
+            tax.set(i, low, high);
+            splitTax.set(i, low, high);
+        }
+    }
+
+    @Benchmark
+    public Object filterSumInterleavedScalar()
+    {
+        boolean overflow = false;
+        sum.set(0, 0, 0);
+        for (int i = 0; i < POSITIONS; i++) {
+            if (Int128Math.lessThan(price.low(i), price.high(i), LIMIT_LOW, LIMIT_HIGH)) {
+                overflow |= Int128Math.add(sum.low(0), sum.high(0), price.low(i), price.high(i), sum, 0);
+            }
+        }
+        return checkOverflow(overflow);
+    }
+
+    @Benchmark
+    public Object filterSumSplitScalar()
+    {
+        boolean overflow = false;
+        sum.set(0, 0, 0);
+        for (int i = 0; i < POSITIONS; i++) {
+            if (Int128Math.lessThan(splitPrice.low(i), splitPrice.high(i), LIMIT_LOW, LIMIT_HIGH)) {
+                overflow |= Int128Math.add(sum.low(0), sum.high(0), splitPrice.low(i), splitPrice.high(i), sum, 0);
+            }
+        }
+        return checkOverflow(overflow);
+    }
+
+    @Benchmark
+    public Object filterSumInterleavedVector()
+    {
+        Int128Kernels.lessThan(price, LIMIT_LOW, LIMIT_HIGH, POSITIONS, selected);
+        return checkOverflow(Int128Kernels.sum(price, selected, POSITIONS, sum, 0));
+    }
+
+    @Benchmark
+    public Object filterSumSplitVector()
+    {
+        Int128Kernels.lessThan(splitPrice, LIMIT_LOW, LIMIT_HIGH, POSITIONS, selected);
+        return checkOverflow(Int128Kernels.sum(splitPrice, selected, POSITIONS, sum, 0));
+    }
+
+    @Benchmark
+    public Object addInterleavedScalar()
+    {
+        boolean overflow = false;
+        for (int i = 0; i < POSITIONS; i++) {
+            overflow |= Int128Math.add(price.low(i), price.high(i), tax.low(i), tax.high(i), interleavedResult, i);
+        }
+        return checkOverflow(overflow);
+    }
+
+    @Benchmark
+    public Object addInterleavedVector()
+    {
+        return checkOverflow(Int128Kernels.add(price, tax, POSITIONS, interleavedResult));
+    }
+
+    @Benchmark
+    public Object addSplitVector()
+    {
+        return checkOverflow(Int128Kernels.add(splitPrice, splitTax, POSITIONS, splitResult));
+    }
+
+    private Object checkOverflow(boolean overflow)
+    {
+        if (overflow) {
+            throw new ArithmeticException("Decimal overflow");
+        }
+        return sum;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        benchmark(BenchmarkInt128Layout.class);
+    }
+}
@@ -22,6 +22,7 @@ import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.runner.RunnerException;
 import org.weakref.eval.kernel.MemorySegmentKernel;
@@ -43,39 +44,39 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Thread)
 public class BenchmarkKernel
 {
+    private TpchColumns columns;
     private MemorySegmentKernel kernel;
 
     @Setup
     public void setup()
             throws IOException
     {
-        TpchData data = new TpchData();
-        data.initialize();
+        columns = new TpchColumns();
+        columns.open();
 
-        MemorySegment selectedPositions = allocate(data.positions, 1);
-        selectedPositions.copyFrom(MemorySegment.ofArray(data.inputMask));
+        int positions = Math.min(columns.positions, TpchData.BATCH_POSITIONS);
 
-        MemorySegment shipdate = allocate(data.positions, 4);
-        shipdate.copyFrom(MemorySegment.ofArray(data.parsedShipDate));
+        MemorySegment selectedPositions = allocate(positions, 1);
+        selectedPositions.fill((byte) 1);
 
-        MemorySegment discount = allocate(data.positions, 8);
-        discount.copyFrom(MemorySegment.ofArray(data.discount));
-
-        MemorySegment quantity = allocate(data.positions, 8);
-        quantity.copyFrom(MemorySegment.ofArray(data.quantity));
-
-        MemorySegment result = allocate(data.positions, 1);
+        MemorySegment result = allocate(positions, 1);
 
         kernel = new MemorySegmentKernel(
-                data.positions,
+                positions,
                 selectedPositions,
-                shipdate,
-                discount,
-                quantity,
+                columns.parsedShipDate,
+                columns.discount,
+                columns.quantity,
                 result
         );
     }
 
+    @TearDown
+    public void tearDown()
+    {
+        columns.close();
+    }
+
     @Benchmark
     public MemorySegment simple()
     {
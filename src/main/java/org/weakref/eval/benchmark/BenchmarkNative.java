@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.FilterRowArraysNoNulls;
+import org.weakref.eval.core.NativeKernels;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static org.weakref.eval.kernel.MemorySegmentKernel.parseDate;
+
+/**
+ * TPC-H Q6 over 64K rows in batches of {@code batchSize}: five compares into a mask, compaction to positions and
+ * a product, with the native kernels of {@link NativeKernels} (seven downcalls per batch) vs. Java. The rows are the
+ * same for every batch size, so the difference in time between batch sizes is the cost of the calls, and the batch
+ * size where the two lines cross is the break-even of a downcall.
+ * <p>
+ * Both sides use the column types of {@link FilterRowArraysNoNulls}, which is the Java filter: ship dates as days,
+ * and BIGINT discount, quantity (in hundredths) and extended price. eval.core has no kernel that compacts a mask
+ * and multiplies over the resulting positions on its own (the columnar kernels fuse that with VARCHAR ship date
+ * compares), so those two loops are written out here with the same shape as the C code.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkNative
+{
+    private static final int ROWS = 1 << 16;
+
+    private static final int MIN_SHIP_DATE = parseDate("1994-01-01");
+    private static final int MAX_SHIP_DATE = parseDate("1995-01-01");
+
+    @Param({"16", "64", "256", "1024", "4096", "16384"})
+    public int batchSize = 1024;
+
+    private Arena arena;
+
+    private int[][] shipDate;
+    private long[][] discount;
+    private long[][] quantity;
+    private long[][] extendedPrice;
+    private byte[] inputMask;
+    private byte[] mask;
+    private int[] positions;
+    private long[] result;
+
+    private MemorySegment[] shipDateSegments;
+    private MemorySegment[] discountSegments;
+    private MemorySegment[] quantitySegments;
+    private MemorySegment[] extendedPriceSegments;
+    private MemorySegment inputMaskSegment;
+    private MemorySegment maskSegment;
+    private MemorySegment positionsSegment;
+    private MemorySegment resultSegment;
+
+    @Setup
+    public void setup()
+    {
+        arena = Arena.openShared();
+
+        int batches = ROWS / batchSize;
+        shipDate = new int[batches][];
+        discount = new long[batches][];
+        quantity = new long[batches][];
+        extendedPrice = new long[batches][];
+        shipDateSegments = new MemorySegment[batches];
+        discountSegments = new MemorySegment[batches];
+        quantitySegments = new MemorySegment[batches];
+        extendedPriceSegments = new MemorySegment[batches];
+
+        Random random = new Random(0);
+        for (int batch = 0; batch < batches; batch++) {
+            shipDate[batch] = new int[batchSize];
+            discount[batch] = new long[batchSize];
+            quantity[batch] = new long[batchSize];
+            extendedPrice[batch] = new long[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                shipDate[batch][i] = parseDate("1992-01-01") + random.nextInt(7 * 365);
+                discount[batch][i] = random.nextInt(11);
+                quantity[batch][i] = (1 + random.nextInt(50)) * 100L;
+                extendedPrice[batch][i] = random.nextInt(10_000_000);
+            }
+            shipDateSegments[batch] = copy(MemorySegment.ofArray(shipDate[batch]));
+            discountSegments[batch] = copy(MemorySegment.ofArray(discount[batch]));
+            quantitySegments[batch] = copy(MemorySegment.ofArray(quantity[batch]));
+            extendedPriceSegments[batch] = copy(MemorySegment.ofArray(extendedPrice[batch]));
+        }
+
+        inputMask = new byte[batchSize];
+        Arrays.fill(inputMask, (byte) 1);
+        mask = new byte[batchSize];
+        positions = new int[batchSize];
+        result = new long[batchSize];
+
+        inputMaskSegment = copy(MemorySegment.ofArray(inputMask));
+        maskSegment = MemorySegment.allocateNative(batchSize, 64, arena.scope());
+        positionsSegment = MemorySegment.allocateNative((long) batchSize * Integer.BYTES, 64, arena.scope());
+        resultSegment = MemorySegment.allocateNative((long) batchSize * Long.BYTES, 64, arena.scope());
+    }
+
+    private MemorySegment copy(MemorySegment data)
+    {
+        MemorySegment segment = MemorySegment.allocateNative(data.byteSize(), 64, arena.scope());
+        segment.copyFrom(data);
+        return segment;
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        arena.close();
+    }
+
+    @Benchmark
+    public long nativeKernels()
+    {
+        long selected = 0;
+        for (int batch = 0; batch < shipDateSegments.length; batch++) {
+            NativeKernels.greaterOrEqualInt32(batchSize, inputMaskSegment, maskSegment, shipDateSegments[batch], MIN_SHIP_DATE);
+            NativeKernels.lessInt32(batchSize, maskSegment, maskSegment, shipDateSegments[batch], MAX_SHIP_DATE);
+            NativeKernels.greaterOrEqualInt64(batchSize, maskSegment, maskSegment, discountSegments[batch], 5);
+            NativeKernels.lessOrEqualInt64(batchSize, maskSegment, maskSegment, discountSegments[batch], 7);
+            NativeKernels.lessInt64(batchSize, maskSegment, maskSegment, quantitySegments[batch], 2400);
+            int count = NativeKernels.maskToPositions(batchSize, maskSegment, positionsSegment);
+            NativeKernels.productInt64(count, positionsSegment, resultSegment, extendedPriceSegments[batch], discountSegments[batch]);
+            selected += count > 0 ? positionsSegment.getAtIndex(JAVA_INT, count - 1) : 0;
+        }
+        return selected;
+    }
+
+    @Benchmark
+    public long java()
+    {
+        long selected = 0;
+        for (int batch = 0; batch < shipDate.length; batch++) {
+            FilterRowArraysNoNulls.evaluate(batchSize, inputMask, shipDate[batch], discount[batch], quantity[batch], mask);
+            int count = maskToPositions(batchSize, mask, positions);
+            product(count, positions, result, extendedPrice[batch], discount[batch]);
+            selected += count > 0 ? positions[count - 1] : 0;
+        }
+        return selected;
+    }
+
+    private static int maskToPositions(int count, byte[] mask, int[] positions)
+    {
+        int output = 0;
+        for (int i = 0; i < count; i++) {
+            positions[output] = i;
+            output += mask[i];
+        }
+        return output;
+    }
+
+    private static void product(int count, int[] positions, long[] result, long[] left, long[] right)
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            result[position] = left[position] * right[position];
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkNative.class);
+    }
+}
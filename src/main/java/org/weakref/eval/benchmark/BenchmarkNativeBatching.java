@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.FilterRowNativeNoNulls;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Native Q6 filter over 256K rows in batches of {@code batchSize}, with one downcall per batch vs. one downcall
+ * per {@code batchesPerCall} batches. The score is per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkNativeBatching
+{
+    private static final int ROWS = 1 << 18;
+
+    @Param({"256", "1024"})
+    public int batchSize = 1024;
+
+    @Param({"1", "4", "16", "64", "256"})
+    public int batchesPerCall = 16;
+
+    private Arena arena;
+
+    private MemorySegment[] inputMask;
+    private MemorySegment[] shipDate;
+    private MemorySegment[] discount;
+    private MemorySegment[] quantity;
+    private MemorySegment[] result;
+
+    // descriptors of batchesPerCall batches each
+    private MemorySegment[] calls;
+
+    @Setup
+    public void setup()
+    {
+        arena = Arena.openShared();
+
+        int batches = ROWS / batchSize;
+        inputMask = new MemorySegment[batches];
+        shipDate = new MemorySegment[batches];
+        discount = new MemorySegment[batches];
+        quantity = new MemorySegment[batches];
+        result = new MemorySegment[batches];
+
+        Random random = new Random(0);
+        for (int batch = 0; batch < batches; batch++) {
+            inputMask[batch] = MemorySegment.allocateNative(batchSize, 64, arena.scope());
+            shipDate[batch] = MemorySegment.allocateNative((long) batchSize * Integer.BYTES, 64, arena.scope());
+            discount[batch] = MemorySegment.allocateNative((long) batchSize * Long.BYTES, 64, arena.scope());
+            quantity[batch] = MemorySegment.allocateNative((long) batchSize * Long.BYTES, 64, arena.scope());
+            result[batch] = MemorySegment.allocateNative(batchSize, 64, arena.scope());
+            for (int i = 0; i < batchSize; i++) {
+                inputMask[batch].set(JAVA_BYTE, i, (byte) 1);
+                shipDate[batch].setAtIndex(JAVA_INT, i, 8036 + random.nextInt(7 * 365));
+                discount[batch].setAtIndex(JAVA_LONG, i, random.nextInt(11));
+                quantity[batch].setAtIndex(JAVA_LONG, i, 100L * (1 + random.nextInt(50)));
+            }
+        }
+
+        calls = new MemorySegment[batches / batchesPerCall];
+        for (int call = 0; call < calls.length; call++) {
+            calls[call] = MemorySegment.allocateNative(FilterRowNativeNoNulls.BATCH.byteSize() * batchesPerCall, 64, arena.scope());
+            for (int i = 0; i < batchesPerCall; i++) {
+                int batch = call * batchesPerCall + i;
+                FilterRowNativeNoNulls.setBatch(calls[call], i, batchSize, inputMask[batch], shipDate[batch], discount[batch], quantity[batch], result[batch]);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        arena.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public MemorySegment callPerBatch()
+    {
+        for (int batch = 0; batch < shipDate.length; batch++) {
+            FilterRowNativeNoNulls.evaluate(batchSize, inputMask[batch], shipDate[batch], discount[batch], quantity[batch], result[batch]);
+        }
+        return result[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public MemorySegment batched()
+    {
+        for (MemorySegment call : calls) {
+            FilterRowNativeNoNulls.evaluate(call, batchesPerCall);
+        }
+        return result[0];
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkNativeBatching.class);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.Columnar;
+import org.weakref.eval.core.ColumnarNoNulls;
+import org.weakref.eval.proto.function.BetweenVarcharFunction;
+import org.weakref.eval.proto.function.GreaterThanOrEqualBigintBigintFunction;
+import org.weakref.eval.proto.function.LessThanBigintBigintFunction;
+import org.weakref.eval.proto.function.LessThanOrEqualBigintBigintFunction;
+import org.weakref.eval.proto.function.MultiplyBigintBigintFunction;
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.NullBitmap;
+import org.weakref.eval.proto.vector.VarcharVector;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Q6 with the proto functions on vectors with and without null bitmaps, vs. the hand-written loops in Columnar
+ * (byte per position null flags) and ColumnarNoNulls. With a bitmap that has no nulls, the functions should run
+ * at the speed of the no-nulls case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkNulls
+{
+    private static final byte[] MIN_SHIP_DATE_BYTES = "1994-01-01".getBytes();
+    private static final byte[] MAX_SHIP_DATE_BYTES = "1995-01-01".getBytes();
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        public enum Nulls
+        {
+            NO_BITMAP, NO_NULLS, TEN_PERCENT
+        }
+
+        @Param
+        public Nulls nulls = Nulls.TEN_PERCENT;
+
+        public int[] shipDateOffsets;
+
+        public Int64Vector discount;
+        public Int64Vector quantity;
+        public Int64Vector extendedPrice;
+        public VarcharVector shipDate;
+        public Int64Vector result;
+
+        public boolean[] selected;
+        public BooleanVector selectedVector;
+        public DenseMask selectedMask;
+
+        public final GreaterThanOrEqualBigintBigintFunction greaterThanOrEqual = new GreaterThanOrEqualBigintBigintFunction();
+        public final LessThanOrEqualBigintBigintFunction lessThanOrEqual = new LessThanOrEqualBigintBigintFunction();
+        public final LessThanBigintBigintFunction lessThan = new LessThanBigintBigintFunction();
+        public final BetweenVarcharFunction between = new BetweenVarcharFunction();
+        public final MultiplyBigintBigintFunction multiply = new MultiplyBigintBigintFunction();
+
+        @Setup
+        public void setup(TpchData data)
+        {
+            // TpchData clears shipDatePositions after loading. The dates are 10 bytes each.
+            shipDateOffsets = new int[data.positions + 1];
+            for (int i = 0; i <= data.positions; i++) {
+                shipDateOffsets[i] = i * 10;
+            }
+
+            // the same null flags are used by the hand-written loops
+            Random random = new Random(0);
+            double nullRate = nulls == Nulls.TEN_PERCENT ? 0.1 : 0;
+            fillNulls(random, nullRate, data.discountNullByte);
+            fillNulls(random, nullRate, data.quantityNullByte);
+            fillNulls(random, nullRate, data.extendedPriceNullByte);
+
+            boolean nullable = nulls != Nulls.NO_BITMAP;
+            discount = new Int64Vector(data.discount, nullable ? NullBitmap.fromBytes(data.discountNullByte) : null);
+            quantity = new Int64Vector(data.quantity, nullable ? NullBitmap.fromBytes(data.quantityNullByte) : null);
+            extendedPrice = new Int64Vector(data.extendedPrice, nullable ? NullBitmap.fromBytes(data.extendedPriceNullByte) : null);
+            shipDate = new VarcharVector(data.shipDate, shipDateOffsets);
+            result = new Int64Vector(data.result, nullable ? new NullBitmap(data.positions) : null);
+
+            // the mask loops update the mask in place
+            selected = new boolean[data.positions];
+            selectedVector = new BooleanVector(selected);
+            selectedMask = new DenseMask(selected);
+        }
+
+        private static void fillNulls(Random random, double nullRate, byte[] nulls)
+        {
+            for (int i = 0; i < nulls.length; i++) {
+                nulls[i] = (byte) (random.nextDouble() < nullRate ? 1 : 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object[] handWrittenNoNulls(TpchData data, Data functions)
+    {
+        ColumnarNoNulls.evaluate(
+                data.positions,
+                data.inputMask,
+                data.shipDate,
+                functions.shipDateOffsets,
+                data.discount,
+                data.quantity,
+                data.extendedPrice,
+                data.result,
+                data.resultMaskByte);
+
+        return new Object[] {data.result, data.resultMaskByte};
+    }
+
+    @Benchmark
+    public Object[] handWrittenNulls(TpchData data, Data functions)
+    {
+        Columnar.evaluate(
+                data.positions,
+                data.inputMask,
+                data.shipDate,
+                functions.shipDateOffsets,
+                data.shipDateNullByte,
+                data.discount,
+                data.discountNullByte,
+                data.quantity,
+                data.quantityNullByte,
+                data.extendedPrice,
+                data.extendedPriceNullByte,
+                data.result,
+                data.resultMaskByte,
+                data.resultNullByte);
+
+        return new Object[] {data.result, data.resultMaskByte, data.resultNullByte};
+    }
+
+    @Benchmark
+    public Object[] functions(TpchData data, Data functions)
+    {
+        BooleanVector selected = functions.selectedVector;
+        DenseMask mask = functions.selectedMask;
+
+        Arrays.fill(functions.selected, true);
+        functions.greaterThanOrEqual.greaterThanOrEqual(functions.discount, 5, mask, selected);
+        functions.lessThanOrEqual.lessThanOrEqual(functions.discount, 7, mask, selected);
+        functions.lessThan.lessThan(functions.quantity, 24, mask, selected);
+        functions.between.between(functions.shipDate, MIN_SHIP_DATE_BYTES, MAX_SHIP_DATE_BYTES, mask, selected);
+
+        functions.multiply.multiply(functions.discount, functions.extendedPrice, mask, functions.result);
+
+        return new Object[] {data.result, functions.selected};
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkNulls.class);
+    }
+}
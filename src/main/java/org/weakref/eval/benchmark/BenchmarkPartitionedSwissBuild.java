@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.PartitionedSwissVector;
+import org.weakref.eval.swiss.SwissVector;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a set of 8M distinct keys on one thread vs. partitioned over {@code threads} threads
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkPartitionedSwissBuild
+{
+    private static final int ROWS = 1 << 23;
+
+    @Param({"1", "8", "64"})
+    public int threads = 8;
+
+    @Param({"64", "256"})
+    public int partitions = 64;
+
+    private ForkJoinPool pool;
+    private Int64Vector keys;
+    private Selection selection;
+
+    @Setup
+    public void setup()
+    {
+        pool = new ForkJoinPool(threads);
+
+        Random random = new Random(0);
+        long[] values = new long[ROWS];
+        int[] positions = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = random.nextLong();
+            positions[i] = i;
+        }
+        keys = new Int64Vector(values);
+        selection = new Selection(positions, ROWS);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public SwissVector singleThreaded()
+    {
+        SwissVector table = new SwissVector(ROWS);
+        table.putAll(keys, selection);
+        return table;
+    }
+
+    @Benchmark
+    public PartitionedSwissVector partitioned()
+    {
+        return PartitionedSwissVector.build(keys, selection, partitions, pool);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkPartitionedSwissBuild.class);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.function.EqualsBigintBigintFunction;
+import org.weakref.eval.proto.function.MultiplyBigintBigintFunction;
+import org.weakref.eval.proto.mask.RangeSelection;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.RunLengthInt64Vector;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.weakref.eval.benchmark.BenchmarkRunner.benchmark;
+
+/**
+ * {@code SELECT value * 100 WHERE value = 5} over a flat vector vs. the same values run length encoded
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkRunLength
+{
+    private static final int POSITIONS = 1024;
+
+    @Param({"1", "4", "16", "64", "256", "1024"})
+    public int runLength = 16;
+
+    private final EqualsBigintBigintFunction equals = new EqualsBigintBigintFunction();
+    private final MultiplyBigintBigintFunction multiply = new MultiplyBigintBigintFunction();
+
+    private Int64Vector flat;
+    private RunLengthInt64Vector encoded;
+    private BooleanVector filterResult;
+    private Int64Vector projectionResult;
+    private Selection all;
+
+    @Setup
+    public void setup()
+    {
+        long[] values = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i += runLength) {
+            long value = ThreadLocalRandom.current().nextInt(10);
+            for (int j = i; j < Math.min(i + runLength, POSITIONS); j++) {
+                values[j] = value;
+            }
+        }
+
+        flat = new Int64Vector(values);
+        encoded = RunLengthInt64Vector.encode(values, POSITIONS);
+
+        int[] positions = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i] = i;
+        }
+        all = new Selection(positions, POSITIONS);
+        filterResult = new BooleanVector(new boolean[POSITIONS]);
+        projectionResult = new Int64Vector(new long[POSITIONS]);
+    }
+
+    @Benchmark
+    public Object flat()
+    {
+        equals.equals(flat, 5, all, filterResult);
+        Selection selection = Selection.fromVector(filterResult);
+        multiply.multiply(flat, 100, selection, projectionResult);
+        return projectionResult;
+    }
+
+    @Benchmark
+    public Object runLengthFlatOutput()
+    {
+        RangeSelection selection = RangeSelection.fromVector(equals.equals(encoded, 5));
+        multiply.multiply(flat, 100, selection, projectionResult);
+        return projectionResult;
+    }
+
+    @Benchmark
+    public Object runLength()
+    {
+        RangeSelection selection = RangeSelection.fromVector(equals.equals(encoded, 5));
+        return new Object[] {selection, multiply.multiply(encoded, 100)};
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        benchmark(BenchmarkRunLength.class);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.expression.Column;
+import org.weakref.eval.expression.Column.LongColumn;
+import org.weakref.eval.expression.CompiledFilter;
+import org.weakref.eval.expression.ExpressionCompiler;
+import org.weakref.eval.expression.SelectionVector;
+import org.weakref.eval.expression.SelectionVector.Representation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.weakref.eval.benchmark.BenchmarkRunner.benchmark;
+import static org.weakref.eval.expression.ColumnLayout.layoutOf;
+import static org.weakref.eval.expression.Expression.and;
+import static org.weakref.eval.expression.Expression.column;
+import static org.weakref.eval.expression.Expression.constant;
+import static org.weakref.eval.expression.Expression.lessThan;
+import static org.weakref.eval.expression.Type.BIGINT;
+
+/**
+ * Compiled filter over a {@link SelectionVector} pinned to each representation vs. switching
+ * adaptively. The first conjunct has the given selectivity and the other two keep {@code otherSelectivity}
+ * percent of the rows each.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 2000, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkSelectionVector
+{
+    private static final int POSITIONS = 1024;
+
+    @Param({"0", "10", "20", "30", "40", "50", "60", "70", "80", "90", "100"})
+    public int selectivity = 50;
+
+    @Param({"50", "100"})
+    public int otherSelectivity = 50;
+
+    private Column[] columns;
+    private CompiledFilter filter;
+
+    private SelectionVector positions;
+    private SelectionVector mask;
+    private SelectionVector bitmap;
+    private SelectionVector adaptive;
+
+    @Setup
+    public void setup()
+    {
+        long[] a = new long[POSITIONS];
+        long[] b = new long[POSITIONS];
+        long[] c = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            a[i] = ThreadLocalRandom.current().nextInt(100);
+            b[i] = ThreadLocalRandom.current().nextInt(100);
+            c[i] = ThreadLocalRandom.current().nextInt(100);
+        }
+        columns = new Column[] {new LongColumn(a), new LongColumn(b), new LongColumn(c)};
+
+        filter = new ExpressionCompiler().compileFilter(
+                and(
+                        lessThan(column(0, BIGINT), constant(selectivity)),
+                        lessThan(column(1, BIGINT), constant(otherSelectivity)),
+                        lessThan(column(2, BIGINT), constant(otherSelectivity))),
+                layoutOf(columns));
+
+        positions = new SelectionVector(POSITIONS, Representation.POSITIONS);
+        mask = new SelectionVector(POSITIONS, Representation.MASK);
+        bitmap = new SelectionVector(POSITIONS, Representation.BITMAP);
+        adaptive = new SelectionVector(POSITIONS);
+    }
+
+    @Benchmark
+    public int positions()
+    {
+        return evaluate(positions);
+    }
+
+    @Benchmark
+    public int mask()
+    {
+        return evaluate(mask);
+    }
+
+    @Benchmark
+    public int bitmap()
+    {
+        return evaluate(bitmap);
+    }
+
+    @Benchmark
+    public int adaptive()
+    {
+        return evaluate(adaptive);
+    }
+
+    private int evaluate(SelectionVector selection)
+    {
+        selection.selectAll(POSITIONS);
+        filter.filter(selection, columns);
+
+        // consumers read positions, so include the cost of the final conversion
+        return selection.positions()[0] + selection.count();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        benchmark(BenchmarkSelectionVector.class);
+    }
+}
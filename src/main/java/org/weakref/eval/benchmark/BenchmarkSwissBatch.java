@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.swiss.SwissVector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes a SwissVector with batches of 1024 values, half of which are in the table, one at a time vs. with the
+ * batch methods. Each invocation takes the next batch out of 1M values, so the probes are not already in the
+ * cache from the previous invocation. With 100M keys the table has 2^27 slots and 1 GB of values, which still fits
+ * in one array, so without {@link #offHeap} it stays on the heap. That is what the 4 GB heap is for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkSwissBatch
+{
+    private static final int POSITIONS = 1024;
+    private static final int PROBES = 1 << 20;
+
+    @Param({"1000", "1000000", "100000000"})
+    public int keys = 1_000_000;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private SwissVector table;
+
+    private long[] probes;
+    private Int64Vector probeVector;
+    private int[] inputPositions;
+    private int offset;
+    private int[] outputPositions;
+    private boolean[] found;
+    private BooleanVector foundVector;
+
+    @Setup
+    public void setup()
+    {
+        table = offHeap ? SwissVector.offHeap(keys) : new SwissVector(keys);
+        for (int i = 0; i < keys; i++) {
+            table.put(key(i));
+        }
+
+        Random random = new Random(0);
+        probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = key(random.nextInt(keys * 2));
+        }
+        probeVector = new Int64Vector(probes);
+        inputPositions = new int[POSITIONS];
+        outputPositions = new int[POSITIONS];
+        found = new boolean[PROBES];
+        foundVector = new BooleanVector(found);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        table.close();
+    }
+
+    // distinct for distinct i, and spread over the whole range
+    private static long key(int i)
+    {
+        return i * 0x9E3779B97F4A7C15L;
+    }
+
+    private Selection nextBatch()
+    {
+        offset = (offset + POSITIONS) & (PROBES - 1);
+        for (int i = 0; i < POSITIONS; i++) {
+            inputPositions[i] = offset + i;
+        }
+        return new Selection(inputPositions, POSITIONS);
+    }
+
+    @Benchmark
+    public boolean[] perRow()
+    {
+        Selection selection = nextBatch();
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            found[position] = table.find(probes[position]);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public boolean[] batch()
+    {
+        table.find(probeVector, nextBatch(), foundVector);
+        return found;
+    }
+
+    @Benchmark
+    public Selection batchFilter()
+    {
+        return table.filter(probeVector, nextBatch(), outputPositions);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkSwissBatch.class);
+    }
+}
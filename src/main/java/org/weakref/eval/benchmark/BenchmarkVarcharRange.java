@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.VarcharRange;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code '1994-01-01' <= shipDate < '1995-01-01'} over the shipDate column
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkVarcharRange
+{
+    private static final byte[] MIN_SHIP_DATE_BYTES = "1994-01-01".getBytes();
+    private static final byte[] MAX_SHIP_DATE_BYTES = "1995-01-01".getBytes();
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        public int positions;
+        public byte[] shipDate;
+        public int[] shipDateOffsets;
+
+        @Setup
+        public void setup(TpchData data)
+        {
+            positions = data.positions;
+            shipDate = data.shipDate;
+
+            // TpchData clears shipDatePositions after loading. The dates are 10 bytes each.
+            shipDateOffsets = new int[positions + 1];
+            for (int i = 0; i <= positions; i++) {
+                shipDateOffsets[i] = i * 10;
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] arraysCompare(Data data, TpchData tpch)
+    {
+        byte[] values = data.shipDate;
+        int[] offsets = data.shipDateOffsets;
+        byte[] inputMask = tpch.inputMask;
+        byte[] result = tpch.resultMaskByte;
+
+        for (int i = 0; i < data.positions; i++) {
+            int selected = (inputMask[i] == 1 &&
+                    Arrays.compare(values, offsets[i], offsets[i + 1], MIN_SHIP_DATE_BYTES, 0, MIN_SHIP_DATE_BYTES.length) >= 0 &&
+                    Arrays.compare(values, offsets[i], offsets[i + 1], MAX_SHIP_DATE_BYTES, 0, MAX_SHIP_DATE_BYTES.length) < 0) ? 1 : 0;
+            result[i] = (byte) selected;
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public byte[] variableWidth(Data data, TpchData tpch)
+    {
+        VarcharRange.betweenVariableWidth(data.positions, tpch.inputMask, tpch.resultMaskByte, data.shipDate, data.shipDateOffsets, MIN_SHIP_DATE_BYTES, MAX_SHIP_DATE_BYTES);
+        return tpch.resultMaskByte;
+    }
+
+    @Benchmark
+    public byte[] fixedWidth(Data data, TpchData tpch)
+    {
+        VarcharRange.between(data.positions, tpch.inputMask, tpch.resultMaskByte, data.shipDate, data.shipDateOffsets, MIN_SHIP_DATE_BYTES, MAX_SHIP_DATE_BYTES);
+        return tpch.resultMaskByte;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkVarcharRange.class);
+    }
+}
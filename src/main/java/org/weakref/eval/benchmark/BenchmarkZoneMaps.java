@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.weakref.eval.core.ColumnarPruned;
+import org.weakref.eval.file.BatchReader;
+import org.weakref.eval.file.BatchReader.Batch;
+import org.weakref.eval.file.BatchReader.Output;
+import org.weakref.eval.file.ColumnarFile;
+import org.weakref.eval.file.ColumnarFileWriter;
+import org.weakref.eval.file.RangePredicate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * TPC-H Q6 filter over a file of 4M rows with 7 years of ship dates, with and without pruning batches by the
+ * min/max statistics of the chunks. With {@code sorted} the rows are ordered by ship date, so most batches are
+ * either outside of 1994 and skipped, or inside it and the ship date conjuncts are left out. With random data
+ * every batch has to be evaluated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BenchmarkZoneMaps
+{
+    private static final int ROWS = 1 << 22;
+    private static final int ROWS_PER_CHUNK = 1024;
+    private static final int BATCH_SIZE = 16 * 1024;
+    private static final List<String> COLUMNS = List.of("shipdate", "discount", "quantity", "extendedprice");
+    private static final List<RangePredicate> PREDICATES = List.of(
+            RangePredicate.between("discount", 5, 7),
+            RangePredicate.lessThan("quantity", 24),
+            RangePredicate.varcharRange("shipdate", "1994-01-01".getBytes(US_ASCII), "1995-01-01".getBytes(US_ASCII)));
+
+    @Param({"true", "false"})
+    public boolean sorted = true;
+
+    private Path path;
+    private ColumnarFile file;
+    private final ExecutorService executor = MoreExecutors.newDirectExecutorService();
+
+    private int[] inputPositions;
+    private int[] tempPositions;
+    private long[] result;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        Random random = new Random(0);
+        long firstDay = LocalDate.of(1992, 1, 1).toEpochDay();
+        long[] days = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            days[i] = firstDay + random.nextInt(7 * 365);
+        }
+        if (sorted) {
+            Arrays.sort(days);
+        }
+
+        long[] discount = new long[ROWS];
+        long[] quantity = new long[ROWS];
+        long[] extendedPrice = new long[ROWS];
+        int[] shipDateOffsets = new int[ROWS + 1];
+        byte[] shipDate = new byte[ROWS * 10];
+        for (int i = 0; i < ROWS; i++) {
+            discount[i] = random.nextInt(11);
+            quantity[i] = 1 + random.nextInt(50);
+            extendedPrice[i] = random.nextInt(10_000_000);
+            System.arraycopy(LocalDate.ofEpochDay(days[i]).toString().getBytes(US_ASCII), 0, shipDate, i * 10, 10);
+            shipDateOffsets[i + 1] = (i + 1) * 10;
+        }
+
+        path = Files.createTempFile("zone-maps", ".col");
+        new ColumnarFileWriter(ROWS_PER_CHUNK)
+                .addBigintColumn("discount", discount)
+                .addBigintColumn("quantity", quantity)
+                .addBigintColumn("extendedprice", extendedPrice)
+                .addVarcharColumn("shipdate", shipDate, shipDateOffsets)
+                .write(path);
+        file = ColumnarFile.open(path);
+
+        inputPositions = new int[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            inputPositions[i] = i;
+        }
+        tempPositions = new int[BATCH_SIZE];
+        result = new long[BATCH_SIZE];
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        file.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public long pruned()
+    {
+        return evaluate(PREDICATES);
+    }
+
+    @Benchmark
+    public long unpruned()
+    {
+        return evaluate(List.of());
+    }
+
+    private long evaluate(List<RangePredicate> predicates)
+    {
+        try (BatchReader reader = new BatchReader(file, COLUMNS, BATCH_SIZE, Output.ARRAYS, predicates, executor)) {
+            boolean pruning = !predicates.isEmpty();
+            long checksum = 0;
+            for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+                ColumnarPruned.evaluate(
+                        batch.positionCount(),
+                        inputPositions,
+                        batch.bytes(0),
+                        batch.offsets(0),
+                        batch.longs(1),
+                        batch.longs(2),
+                        batch.longs(3),
+                        result,
+                        tempPositions,
+                        pruning && batch.alwaysTrue(0),
+                        pruning && batch.alwaysTrue(1),
+                        pruning && batch.alwaysTrue(2));
+                checksum += result[0];
+            }
+            return checksum;
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        BenchmarkRunner.benchmark(BenchmarkZoneMaps.class);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.weakref.eval.expression.AdaptiveFilter;
+import org.weakref.eval.expression.Column;
+import org.weakref.eval.expression.Column.LongColumn;
+import org.weakref.eval.expression.Column.VarcharColumn;
+import org.weakref.eval.expression.CompiledFilter;
+import org.weakref.eval.expression.CompiledProjection;
+import org.weakref.eval.expression.Expression;
+import org.weakref.eval.expression.ExpressionCompiler;
+import org.weakref.eval.expression.SelectionVector;
+
+import static org.weakref.eval.expression.ColumnLayout.layoutOf;
+import static org.weakref.eval.expression.Expression.and;
+import static org.weakref.eval.expression.Expression.column;
+import static org.weakref.eval.expression.Expression.constant;
+import static org.weakref.eval.expression.Expression.greaterThanOrEqual;
+import static org.weakref.eval.expression.Expression.lessThan;
+import static org.weakref.eval.expression.Expression.lessThanOrEqual;
+import static org.weakref.eval.expression.Expression.multiply;
+import static org.weakref.eval.expression.Type.BIGINT;
+import static org.weakref.eval.expression.Type.VARCHAR;
+
+/**
+ * TPC-H Q6 compiled through {@link ExpressionCompiler}, over the columns in {@link TpchData}
+ */
+@State(Scope.Thread)
+public class CompiledExpressions
+{
+    public static final int DISCOUNT = 0;
+    public static final int EXTENDED_PRICE = 1;
+    public static final int QUANTITY = 2;
+    public static final int SHIP_DATE = 3;
+
+    public static final Expression FILTER = and(
+            greaterThanOrEqual(column(DISCOUNT, BIGINT), constant(5)),
+            lessThanOrEqual(column(DISCOUNT, BIGINT), constant(7)),
+            lessThan(column(QUANTITY, BIGINT), constant(24)),
+            greaterThanOrEqual(column(SHIP_DATE, VARCHAR), constant("1994-01-01")),
+            lessThan(column(SHIP_DATE, VARCHAR), constant("1995-01-01")));
+
+    public static final Expression PROJECTION = multiply(column(DISCOUNT, BIGINT), column(EXTENDED_PRICE, BIGINT));
+
+    public Column[] columns;
+    public CompiledFilter filter;
+    public CompiledProjection projection;
+    public AdaptiveFilter adaptiveFilter;
+    public SelectionVector selection;
+
+    public Column[] nullableColumns;
+    public CompiledFilter nullableFilter;
+    public CompiledProjection nullableProjection;
+
+    @Setup
+    public void setup(TpchData data)
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+
+        columns = new Column[] {
+                new LongColumn(data.discount),
+                new LongColumn(data.extendedPrice),
+                new LongColumn(data.quantity),
+                new VarcharColumn(data.shipDate, data.shipDatePositions)};
+        filter = compiler.compileFilter(FILTER, layoutOf(columns));
+        projection = compiler.compileProjection(PROJECTION, layoutOf(columns));
+        adaptiveFilter = new AdaptiveFilter(filter);
+        selection = new SelectionVector(data.positions);
+
+        nullableColumns = new Column[] {
+                new LongColumn(data.discount, data.discountNullByte),
+                new LongColumn(data.extendedPrice, data.extendedPriceNullByte),
+                new LongColumn(data.quantity, data.quantityNullByte),
+                new VarcharColumn(data.shipDate, data.shipDatePositions, data.shipDateNullByte)};
+        nullableFilter = compiler.compileFilter(FILTER, layoutOf(nullableColumns));
+        nullableProjection = compiler.compileProjection(PROJECTION, layoutOf(nullableColumns));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.weakref.eval.proto.function.BetweenVarcharFunction;
+import org.weakref.eval.proto.vector.DictionaryVector;
+import org.weakref.eval.proto.vector.VarcharVector;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * shipDate from {@link TpchData}, dictionary encoded
+ */
+@State(Scope.Thread)
+public class DictionaryData
+{
+    public static final byte[] MIN_SHIP_DATE_BYTES = "1994-01-01".getBytes();
+    public static final byte[] MAX_SHIP_DATE_BYTES = "1995-01-01".getBytes();
+
+    public DictionaryVector<VarcharVector> shipDate;
+    public BetweenVarcharFunction shipDateFilter;
+
+    @Setup
+    public void setup(TpchData data)
+    {
+        Map<ByteBuffer, Integer> entries = new HashMap<>();
+        ByteArrayOutputStream values = new ByteArrayOutputStream();
+        int[] ids = new int[data.positions];
+
+        // TpchData clears shipDatePositions after loading. The dates are 10 bytes each.
+        for (int position = 0; position < data.positions; position++) {
+            ByteBuffer value = ByteBuffer.wrap(data.shipDate, position * 10, 10).slice();
+            Integer id = entries.get(value);
+            if (id == null) {
+                id = entries.size();
+                entries.put(value, id);
+                values.write(data.shipDate, position * 10, 10);
+            }
+            ids[position] = id;
+        }
+
+        int[] offsets = new int[entries.size() + 1];
+        for (int id = 0; id <= entries.size(); id++) {
+            offsets[id] = id * 10;
+        }
+
+        shipDate = new DictionaryVector<>(new VarcharVector(values.toByteArray(), offsets), entries.size(), ids);
+        shipDateFilter = new BetweenVarcharFunction();
+    }
+}
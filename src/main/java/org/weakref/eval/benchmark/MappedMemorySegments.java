@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentScope;
+
+/**
+ * Reads the columns straight from the mapped file instead of copying them
+ */
+@State(Scope.Thread)
+public class MappedMemorySegments
+{
+    public int positions;
+    public MemorySegment inputMask;
+
+    public MemorySegment discount;
+    public MemorySegment quantity;
+    public MemorySegment parsedShipDate;
+    public MemorySegment resultMask;
+
+    @Setup
+    public void setup(TpchColumns columns)
+    {
+        this.positions = Math.min(columns.positions, TpchData.BATCH_POSITIONS);
+
+        this.inputMask = MemorySegment.allocateNative(positions, SegmentScope.global());
+        this.inputMask.fill((byte) 1);
+        this.discount = columns.discount;
+        this.quantity = columns.quantity;
+        this.parsedShipDate = columns.parsedShipDate;
+        this.resultMask = MemorySegment.allocateNative(positions, SegmentScope.global());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.benchmark;
+
+import io.airlift.slice.BasicSliceInput;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.weakref.eval.file.ColumnarFile;
+import org.weakref.eval.file.ColumnarFileWriter;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.lang.Math.toIntExact;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.weakref.eval.kernel.MemorySegmentKernel.parseDate;
+
+/**
+ * The lineitem columns mapped from data.col. Setup only maps the file, so its cost does not depend on the
+ * size of the data.
+ */
+@State(Scope.Benchmark)
+public class TpchColumns
+{
+    private static final Path DATA_BIN = Paths.get("data.bin");
+    private static final Path DATA_FILE = Paths.get("data.col");
+    private static final int ROWS_PER_CHUNK = 1024;
+
+    public int positions;
+
+    public MemorySegment discount;
+    public MemorySegment extendedPrice;
+    public MemorySegment quantity;
+    public MemorySegment parsedShipDate;
+
+    public ColumnarFile file;
+
+    @Setup
+    public void open()
+            throws IOException
+    {
+        if (Files.notExists(DATA_FILE) ||
+                (Files.exists(DATA_BIN) && Files.getLastModifiedTime(DATA_FILE).compareTo(Files.getLastModifiedTime(DATA_BIN)) < 0)) {
+            convert(DATA_BIN, DATA_FILE);
+        }
+        file = ColumnarFile.open(DATA_FILE);
+
+        positions = toIntExact(file.rowCount());
+        discount = file.column(file.columnIndex("discount"));
+        extendedPrice = file.column(file.columnIndex("extendedprice"));
+        quantity = file.column(file.columnIndex("quantity"));
+        parsedShipDate = file.column(file.columnIndex("parsedshipdate"));
+    }
+
+    @TearDown
+    public void close()
+    {
+        file.close();
+    }
+
+    /**
+     * Rewrites data.bin, a row count followed by the discount, extended price and quantity columns, the ship
+     * date offsets and the ship date bytes, as a columnar file. The ship dates are also written parsed, as days
+     * since the epoch.
+     */
+    private static void convert(Path source, Path target)
+            throws IOException
+    {
+        SliceInput input = new BasicSliceInput(Slices.wrappedBuffer(Files.readAllBytes(source)));
+        int positions = input.readInt();
+
+        long[] discount = new long[positions];
+        long[] extendedPrice = new long[positions];
+        long[] quantity = new long[positions];
+        input.readBytes(Slices.wrappedLongArray(discount));
+        input.readBytes(Slices.wrappedLongArray(extendedPrice));
+        input.readBytes(Slices.wrappedLongArray(quantity));
+
+        int[] shipDatePositions = new int[positions + 1];
+        input.readBytes(Slices.wrappedIntArray(shipDatePositions));
+        byte[] shipDate = new byte[shipDatePositions[positions]];
+        input.readBytes(shipDate);
+
+        int[] parsedShipDate = new int[positions];
+        for (int i = 0; i < positions; i++) {
+            parsedShipDate[i] = parseDate(new String(shipDate, shipDatePositions[i], shipDatePositions[i + 1] - shipDatePositions[i]));
+        }
+
+        // written next to the target and moved in place, so a concurrent fork never maps a partial file
+        Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            new ColumnarFileWriter(ROWS_PER_CHUNK)
+                    .addBigintColumn("discount", discount)
+                    .addBigintColumn("extendedprice", extendedPrice)
+                    .addBigintColumn("quantity", quantity)
+                    .addVarcharColumn("shipdate", shipDate, shipDatePositions)
+                    .addIntegerColumn("parsedshipdate", parsedShipDate)
+                    .write(temporary);
+            Files.move(temporary, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+}
@@ -13,23 +13,28 @@
  */
 package org.weakref.eval.benchmark;
 
-import io.airlift.slice.BasicSliceInput;
-import io.airlift.slice.SliceInput;
-import io.airlift.slice.Slices;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.weakref.eval.file.ColumnarFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 
-import static org.weakref.eval.kernel.MemorySegmentKernel.parseDate;
+import static java.lang.Math.toIntExact;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 
 @State(Scope.Thread)
 public class TpchData
 {
+    public static final int BATCH_POSITIONS = 1024;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
     public int positions;
     public int[] inputPositions;
     public byte[] inputMask;
@@ -67,44 +72,13 @@ public class TpchData
     public void initialize()
             throws IOException
     {
-        byte[] buffer = Files.readAllBytes(Paths.get("data.bin"));
-        SliceInput input = new BasicSliceInput(Slices.wrappedBuffer(buffer));
-
-        positions = input.readInt();
-
-        discount = new long[positions];
-        discountNull = new boolean[positions];
-        discountNullByte = new byte[positions];
-        for (int i = 0; i < discount.length; i++) {
-            discount[i] = input.readLong();
-        }
-
-        extendedPrice = new long[positions];
-        extendedPriceNull = new boolean[positions];
-        extendedPriceNullByte = new byte[positions];
-        for (int i = 0; i < extendedPrice.length; i++) {
-            extendedPrice[i] = input.readLong();
+        TpchColumns columns = new TpchColumns();
+        columns.open();
+        try {
+            load(columns);
         }
-
-        quantity = new long[positions];
-        quantityNull = new boolean[positions];
-        quantityNullByte = new byte[positions];
-        for (int i = 0; i < quantity.length; i++) {
-            quantity[i] = input.readLong();
-        }
-
-        shipDatePositions = new int[positions + 1];
-        shipDateNull = new boolean[positions];
-        shipDateNullByte = new byte[positions];
-        for (int i = 0; i < shipDatePositions.length; i++) {
-            shipDatePositions[i] = input.readInt();
-        }
-
-        shipDate = new byte[shipDatePositions[positions]];
-        parsedShipDate = new int[positions];
-        input.read(shipDate);
-        for (int i = 0; i < positions; i++) {
-            parsedShipDate[i] = parseDate(new String(Arrays.copyOfRange(shipDate, shipDatePositions[i], shipDatePositions[i + 1])));
+        finally {
+            columns.close();
         }
 
         result = new long[positions];
@@ -143,6 +117,56 @@ public class TpchData
         shipDatePositions = new int[positions + 1];
 //        shipDate = new byte[positions * 10];
 
-        positions = 1024;
+        positions = BATCH_POSITIONS;
+    }
+
+    private void load(TpchColumns columns)
+    {
+        positions = columns.positions;
+
+        discount = toLongArray(columns.discount);
+        discountNull = new boolean[positions];
+        discountNullByte = new byte[positions];
+
+        extendedPrice = toLongArray(columns.extendedPrice);
+        extendedPriceNull = new boolean[positions];
+        extendedPriceNullByte = new byte[positions];
+
+        quantity = toLongArray(columns.quantity);
+        quantityNull = new boolean[positions];
+        quantityNullByte = new byte[positions];
+
+        ColumnarFile file = columns.file;
+        int shipDateColumn = file.columnIndex("shipdate");
+        shipDatePositions = new int[positions + 1];
+        shipDateNull = new boolean[positions];
+        shipDateNullByte = new byte[positions];
+        long shipDateSize = 0;
+        for (int chunk = 0; chunk < file.chunkCount(); chunk++) {
+            shipDateSize += file.values(shipDateColumn, chunk).byteSize();
+        }
+        shipDate = new byte[toIntExact(shipDateSize)];
+        int row = 0;
+        int offset = 0;
+        for (int chunk = 0; chunk < file.chunkCount(); chunk++) {
+            MemorySegment offsets = file.offsets(shipDateColumn, chunk);
+            for (int i = 0; i < file.chunkRowCount(chunk); i++) {
+                shipDatePositions[row++] = offset + offsets.getAtIndex(INT, i);
+            }
+            MemorySegment values = file.values(shipDateColumn, chunk);
+            MemorySegment.copy(values, JAVA_BYTE, 0, shipDate, offset, toIntExact(values.byteSize()));
+            offset += toIntExact(values.byteSize());
+        }
+        shipDatePositions[positions] = offset;
+
+        parsedShipDate = new int[positions];
+        MemorySegment.copy(columns.parsedShipDate, INT, 0, parsedShipDate, 0, positions);
+    }
+
+    private long[] toLongArray(MemorySegment segment)
+    {
+        long[] values = new long[positions];
+        MemorySegment.copy(segment, LONG, 0, values, 0, positions);
+        return values;
     }
 }
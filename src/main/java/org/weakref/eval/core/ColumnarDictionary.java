@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.core;
+
+import org.openjdk.jmh.annotations.CompilerControl;
+
+/**
+ * Same as {@link ColumnarActivePositionsNoNullsInPlace}, but shipDate is dictionary encoded. The range
+ * predicate is evaluated once per dictionary entry by the caller and each row only looks up its id.
+ */
+public class ColumnarDictionary
+{
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public static void evaluate(
+            int count,
+            int[] inputPositions,
+            int[] shipDateIds,
+            byte[] shipDateMatches,
+            long[] discount,
+            long[] quantity,
+            long[] extendedPrice,
+            long[] result,
+            int[] tempActivePositions)
+    {
+        System.arraycopy(inputPositions, 0, tempActivePositions, 0, count);
+
+        count = greaterOrEqual(count, tempActivePositions, discount, 5);
+        count = lessOrEqual(count, tempActivePositions, discount, 7);
+        count = less(count, tempActivePositions, quantity, 24);
+        count = matches(count, tempActivePositions, shipDateIds, shipDateMatches);
+
+        product(count, tempActivePositions, result, discount, extendedPrice);
+    }
+
+    private static int greaterOrEqual(int count, int[] activePositions, long[] values, long value)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = activePositions[input];
+            activePositions[output] = position;
+            output += values[position] >= value ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int lessOrEqual(int count, int[] activePositions, long[] values, long value)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = activePositions[input];
+            activePositions[output] = position;
+            output += values[position] <= value ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int less(int count, int[] activePositions, long[] values, long value)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = activePositions[input];
+            activePositions[output] = position;
+            output += values[position] < value ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int matches(int count, int[] activePositions, int[] ids, byte[] dictionaryMatches)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = activePositions[input];
+            activePositions[output] = position;
+            output += dictionaryMatches[ids[position]];
+        }
+
+        return output;
+    }
+
+    private static void product(int count, int[] activePositions, long[] result, long[] a, long[] b)
+    {
+        for (int i = 0; i < count; i++) {
+            int position = activePositions[i];
+            result[position] = a[position] * b[position];
+        }
+    }
+}
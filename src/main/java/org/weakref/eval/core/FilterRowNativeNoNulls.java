@@ -17,13 +17,15 @@ import org.openjdk.jmh.annotations.CompilerControl;
 
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.SegmentScope;
+import java.lang.foreign.StructLayout;
 import java.lang.foreign.SymbolLookup;
 import java.lang.invoke.MethodHandle;
-import java.nio.file.Paths;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
 import static java.lang.foreign.ValueLayout.ADDRESS;
 import static java.lang.foreign.ValueLayout.JAVA_INT;
 import static java.lang.foreign.ValueLayout.JAVA_LONG;
@@ -32,7 +34,7 @@ import static org.weakref.eval.kernel.MemorySegmentKernel.parseDate;
 public class FilterRowNativeNoNulls
 {
     public static final Linker LINKER = Linker.nativeLinker();
-    public static final SymbolLookup LOOKUP = SymbolLookup.libraryLookup(Paths.get("src", "main", "resources", Native.resourceName("filter")), SegmentScope.global());
+    public static final SymbolLookup LOOKUP = Native.lookup("filter");
     
     private static final MethodHandle FILTER = LINKER.downcallHandle(
             LOOKUP.find("filter").get(),
@@ -49,7 +51,25 @@ public class FilterRowNativeNoNulls
                     JAVA_LONG, // maxDiscount
                     JAVA_LONG // maxQuantity
             ));
-    
+
+    /**
+     * Arguments of {@link #evaluate} for one batch, the {@code filter_batch} struct of filter.c
+     */
+    public static final StructLayout BATCH = MemoryLayout.structLayout(
+            JAVA_LONG.withName("count"),
+            ADDRESS.withName("selectedPositions"),
+            ADDRESS.withName("shipDate"),
+            ADDRESS.withName("discount"),
+            ADDRESS.withName("quantity"),
+            ADDRESS.withName("result"));
+
+    private static final long COUNT_OFFSET = BATCH.byteOffset(groupElement("count"));
+    private static final long SELECTED_POSITIONS_OFFSET = BATCH.byteOffset(groupElement("selectedPositions"));
+    private static final long SHIP_DATE_OFFSET = BATCH.byteOffset(groupElement("shipDate"));
+    private static final long DISCOUNT_OFFSET = BATCH.byteOffset(groupElement("discount"));
+    private static final long QUANTITY_OFFSET = BATCH.byteOffset(groupElement("quantity"));
+    private static final long RESULT_OFFSET = BATCH.byteOffset(groupElement("result"));
+
     private static final int MIN_DATE = parseDate("1994-01-01");
     private static final int MAX_DATE = parseDate("1995-01-01");
 
@@ -81,4 +101,67 @@ public class FilterRowNativeNoNulls
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Fills in the arguments of batch {@code index} of {@code batches}, an array of {@link #BATCH}. The segments
+     * must be native.
+     */
+    public static void setBatch(
+            MemorySegment batches,
+            int index,
+            int count,
+            MemorySegment selectedPositions,
+            MemorySegment shipDate,
+            MemorySegment discount,
+            MemorySegment quantity,
+            MemorySegment result)
+    {
+        long offset = index * BATCH.byteSize();
+        batches.set(JAVA_LONG, offset + COUNT_OFFSET, count);
+        batches.set(ADDRESS, offset + SELECTED_POSITIONS_OFFSET, selectedPositions);
+        batches.set(ADDRESS, offset + SHIP_DATE_OFFSET, shipDate);
+        batches.set(ADDRESS, offset + DISCOUNT_OFFSET, discount);
+        batches.set(ADDRESS, offset + QUANTITY_OFFSET, quantity);
+        batches.set(ADDRESS, offset + RESULT_OFFSET, result);
+    }
+
+    /**
+     * Evaluates the first {@code batchCount} batches of {@code batches} with one downcall, so the cost of the
+     * transition is spread over all of them
+     */
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public static void evaluate(MemorySegment batches, int batchCount)
+    {
+        checkArgument(batchCount * BATCH.byteSize() <= batches.byteSize(), "batches is too small for %s batches", batchCount);
+        try {
+            BatchesHolder.FILTER_BATCHES.invokeExact(
+                    batchCount,
+                    batches,
+                    MIN_DATE,
+                    MAX_DATE,
+                    5L,
+                    7L,
+                    2400L);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    // resolved on first use, so a library built before filter_batches still serves the single batch evaluate
+    private static class BatchesHolder
+    {
+        private static final MethodHandle FILTER_BATCHES = LINKER.downcallHandle(
+                LOOKUP.find("filter_batches").orElseThrow(() -> new IllegalStateException("filter_batches not found: rebuild the library with make -C src/main/c")),
+                FunctionDescriptor.ofVoid(
+                        JAVA_INT, // batchCount
+                        ADDRESS, // batches
+                        JAVA_INT, // minDate
+                        JAVA_INT, // maxDate
+                        JAVA_LONG, // minDiscount
+                        JAVA_LONG, // maxDiscount
+                        JAVA_LONG // maxQuantity
+                ));
+    }
 }
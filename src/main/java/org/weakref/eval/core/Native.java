@@ -13,8 +13,26 @@
  */
 package org.weakref.eval.core;
 
+import java.lang.foreign.SegmentScope;
+import java.lang.foreign.SymbolLookup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.google.common.base.Preconditions.checkState;
+
 public class Native
 {
+    /**
+     * Loads a library built from src/main/c with {@code make -C src/main/c}
+     */
+    public static SymbolLookup lookup(String library)
+    {
+        Path path = Paths.get("src", "main", "resources", resourceName(library));
+        checkState(Files.exists(path), "%s not found: build it with make -C src/main/c", path);
+        return SymbolLookup.libraryLookup(path, SegmentScope.global());
+    }
+
     public static String resourceName(String library)
     {
         return library + "-" + osName() + "-" + osArch() + "." + extension();
@@ -0,0 +1,291 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.core;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Bindings to the kernels of src/main/c/kernels.c. Each kernel has one downcall handle, created when the class is
+ * loaded, so a call is a single {@code invokeExact} on a constant handle.
+ * <p>
+ * All arguments are native segments. Masks have one byte per position, 0 or 1. The compare kernels AND the
+ * comparison into {@code inputMask} and write {@code outputMask}, which can be the same segment.
+ * <p>
+ * The C code trusts {@code count}, so each method checks it against the size of the segments before the downcall,
+ * to throw instead of reading or writing past the allocations. The values that {@code product*} reads and writes
+ * are at the positions in {@code positions}, which are not checked.
+ */
+public class NativeKernels
+{
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup LOOKUP = Native.lookup("kernels");
+
+    private static final FunctionDescriptor COMPARE_INT32 = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_INT);
+    private static final FunctionDescriptor COMPARE_INT64 = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG);
+    private static final FunctionDescriptor COMPARE_DOUBLE = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_DOUBLE);
+    private static final FunctionDescriptor COMBINE = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, ADDRESS, ADDRESS);
+    private static final FunctionDescriptor COMPACT = FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS);
+    private static final FunctionDescriptor PRODUCT = FunctionDescriptor.ofVoid(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS);
+
+    private static final MethodHandle EQUAL_INT32 = downcall("equal_int32", COMPARE_INT32);
+    private static final MethodHandle LESS_INT32 = downcall("less_int32", COMPARE_INT32);
+    private static final MethodHandle LESS_OR_EQUAL_INT32 = downcall("less_or_equal_int32", COMPARE_INT32);
+    private static final MethodHandle GREATER_INT32 = downcall("greater_int32", COMPARE_INT32);
+    private static final MethodHandle GREATER_OR_EQUAL_INT32 = downcall("greater_or_equal_int32", COMPARE_INT32);
+
+    private static final MethodHandle EQUAL_INT64 = downcall("equal_int64", COMPARE_INT64);
+    private static final MethodHandle LESS_INT64 = downcall("less_int64", COMPARE_INT64);
+    private static final MethodHandle LESS_OR_EQUAL_INT64 = downcall("less_or_equal_int64", COMPARE_INT64);
+    private static final MethodHandle GREATER_INT64 = downcall("greater_int64", COMPARE_INT64);
+    private static final MethodHandle GREATER_OR_EQUAL_INT64 = downcall("greater_or_equal_int64", COMPARE_INT64);
+
+    private static final MethodHandle EQUAL_DOUBLE = downcall("equal_double", COMPARE_DOUBLE);
+    private static final MethodHandle LESS_DOUBLE = downcall("less_double", COMPARE_DOUBLE);
+    private static final MethodHandle LESS_OR_EQUAL_DOUBLE = downcall("less_or_equal_double", COMPARE_DOUBLE);
+    private static final MethodHandle GREATER_DOUBLE = downcall("greater_double", COMPARE_DOUBLE);
+    private static final MethodHandle GREATER_OR_EQUAL_DOUBLE = downcall("greater_or_equal_double", COMPARE_DOUBLE);
+
+    private static final MethodHandle AND_MASKS = downcall("and_masks", COMBINE);
+    private static final MethodHandle OR_MASKS = downcall("or_masks", COMBINE);
+
+    private static final MethodHandle MASK_TO_POSITIONS = downcall("mask_to_positions", COMPACT);
+
+    private static final MethodHandle PRODUCT_INT32 = downcall("product_int32", PRODUCT);
+    private static final MethodHandle PRODUCT_INT64 = downcall("product_int64", PRODUCT);
+    private static final MethodHandle PRODUCT_DOUBLE = downcall("product_double", PRODUCT);
+
+    private NativeKernels() {}
+
+    public static void equalInt32(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        compare(EQUAL_INT32, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessInt32(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        compare(LESS_INT32, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessOrEqualInt32(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        compare(LESS_OR_EQUAL_INT32, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterInt32(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        compare(GREATER_INT32, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterOrEqualInt32(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        compare(GREATER_OR_EQUAL_INT32, count, inputMask, outputMask, values, value);
+    }
+
+    public static void equalInt64(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        compare(EQUAL_INT64, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessInt64(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        compare(LESS_INT64, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessOrEqualInt64(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        compare(LESS_OR_EQUAL_INT64, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterInt64(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        compare(GREATER_INT64, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterOrEqualInt64(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        compare(GREATER_OR_EQUAL_INT64, count, inputMask, outputMask, values, value);
+    }
+
+    public static void equalDouble(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        compare(EQUAL_DOUBLE, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessDouble(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        compare(LESS_DOUBLE, count, inputMask, outputMask, values, value);
+    }
+
+    public static void lessOrEqualDouble(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        compare(LESS_OR_EQUAL_DOUBLE, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterDouble(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        compare(GREATER_DOUBLE, count, inputMask, outputMask, values, value);
+    }
+
+    public static void greaterOrEqualDouble(int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        compare(GREATER_OR_EQUAL_DOUBLE, count, inputMask, outputMask, values, value);
+    }
+
+    public static void andMasks(int count, MemorySegment left, MemorySegment right, MemorySegment result)
+    {
+        combine(AND_MASKS, count, left, right, result);
+    }
+
+    public static void orMasks(int count, MemorySegment left, MemorySegment right, MemorySegment result)
+    {
+        combine(OR_MASKS, count, left, right, result);
+    }
+
+    /**
+     * Writes the positions set in the mask to {@code positions}, which holds int32 values
+     *
+     * @return number of positions
+     */
+    public static int maskToPositions(int count, MemorySegment mask, MemorySegment positions)
+    {
+        checkSegment("mask", mask, count, Byte.BYTES);
+        checkSegment("positions", positions, count, Integer.BYTES);
+        try {
+            return (int) MASK_TO_POSITIONS.invokeExact(count, mask, positions);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@code result[position] = left[position] * right[position]} for the first {@code count} positions
+     */
+    public static void productInt32(int count, MemorySegment positions, MemorySegment result, MemorySegment left, MemorySegment right)
+    {
+        product(PRODUCT_INT32, count, positions, result, left, right);
+    }
+
+    public static void productInt64(int count, MemorySegment positions, MemorySegment result, MemorySegment left, MemorySegment right)
+    {
+        product(PRODUCT_INT64, count, positions, result, left, right);
+    }
+
+    public static void productDouble(int count, MemorySegment positions, MemorySegment result, MemorySegment left, MemorySegment right)
+    {
+        product(PRODUCT_DOUBLE, count, positions, result, left, right);
+    }
+
+    // the helpers are inlined into the public methods, where the handle is a constant
+
+    private static void compare(MethodHandle kernel, int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, int value)
+    {
+        checkSegment("inputMask", inputMask, count, Byte.BYTES);
+        checkSegment("outputMask", outputMask, count, Byte.BYTES);
+        checkSegment("values", values, count, Integer.BYTES);
+        try {
+            kernel.invokeExact(count, inputMask, outputMask, values, value);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void compare(MethodHandle kernel, int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, long value)
+    {
+        checkSegment("inputMask", inputMask, count, Byte.BYTES);
+        checkSegment("outputMask", outputMask, count, Byte.BYTES);
+        checkSegment("values", values, count, Long.BYTES);
+        try {
+            kernel.invokeExact(count, inputMask, outputMask, values, value);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void compare(MethodHandle kernel, int count, MemorySegment inputMask, MemorySegment outputMask, MemorySegment values, double value)
+    {
+        checkSegment("inputMask", inputMask, count, Byte.BYTES);
+        checkSegment("outputMask", outputMask, count, Byte.BYTES);
+        checkSegment("values", values, count, Double.BYTES);
+        try {
+            kernel.invokeExact(count, inputMask, outputMask, values, value);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void combine(MethodHandle kernel, int count, MemorySegment left, MemorySegment right, MemorySegment result)
+    {
+        checkSegment("left", left, count, Byte.BYTES);
+        checkSegment("right", right, count, Byte.BYTES);
+        checkSegment("result", result, count, Byte.BYTES);
+        try {
+            kernel.invokeExact(count, left, right, result);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void product(MethodHandle kernel, int count, MemorySegment positions, MemorySegment result, MemorySegment left, MemorySegment right)
+    {
+        checkSegment("positions", positions, count, Integer.BYTES);
+        checkNative("result", result);
+        checkNative("left", left);
+        checkNative("right", right);
+        try {
+            kernel.invokeExact(count, positions, result, left, right);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void checkSegment(String name, MemorySegment segment, int count, int width)
+    {
+        checkNative(name, segment);
+        checkArgument(count >= 0, "count is negative: %s", count);
+        checkArgument(segment.byteSize() >= (long) count * width, "%s has %s bytes, but %s positions need %s", name, segment.byteSize(), count, (long) count * width);
+    }
+
+    private static void checkNative(String name, MemorySegment segment)
+    {
+        checkArgument(segment.isNative(), "%s is not a native segment", name);
+    }
+
+    private static MethodHandle downcall(String name, FunctionDescriptor descriptor)
+    {
+        return LINKER.downcallHandle(LOOKUP.find(name).orElseThrow(), descriptor);
+    }
+}
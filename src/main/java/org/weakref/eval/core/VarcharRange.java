@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.core;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Range comparison ({@code lower <= value < upper}) of VARCHAR values stored as a byte[] plus an int[] of offsets.
+ * Bytes are compared unsigned, which is the code point order for UTF-8.
+ * <p>
+ * When all values have the same length as the bounds and several of them fit in a vector (e.g., the 10-byte
+ * dates in shipDate), the bounds are repeated across a {@link ByteVector} and a single load and compare covers
+ * {@code vector length / width} rows. For each row, the lowest bit of the not-equal mask is the first byte
+ * that differs, and the less-than mask at that bit says which way the comparison goes.
+ * <p>
+ * Otherwise each value is compared with one vector load, falling back to {@link Arrays#compareUnsigned} for
+ * values longer than a vector or too close to the end of the array.
+ */
+public final class VarcharRange
+{
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private VarcharRange() {}
+
+    public static void between(int count, byte[] inputMask, byte[] outputMask, byte[] values, int[] offsets, byte[] lower, byte[] upper)
+    {
+        int width = lower.length;
+        if (width > 0 && width == upper.length && width <= BYTE_SPECIES.length() && isFixedWidth(count, offsets, width)) {
+            betweenFixedWidth(count, inputMask, outputMask, values, offsets[0], width, lower, upper);
+        }
+        else {
+            betweenVariableWidth(count, inputMask, outputMask, values, offsets, lower, upper);
+        }
+    }
+
+    public static boolean isFixedWidth(int count, int[] offsets, int width)
+    {
+        int base = offsets[0];
+        int mismatch = 0;
+        for (int i = 1; i <= count; i++) {
+            mismatch |= offsets[i] - (base + i * width);
+        }
+        return mismatch == 0;
+    }
+
+    /**
+     * Values are {@code width} bytes each, starting at {@code start}. {@code lower} and {@code upper} must be {@code width} bytes long.
+     */
+    public static void betweenFixedWidth(int count, byte[] inputMask, byte[] outputMask, byte[] values, int start, int width, byte[] lower, byte[] upper)
+    {
+        int rowsPerVector = BYTE_SPECIES.length() / width;
+        long rowBits = width == 64 ? -1L : (1L << width) - 1;
+        ByteVector lowerVector = tile(lower, rowsPerVector);
+        ByteVector upperVector = tile(upper, rowsPerVector);
+
+        int row = 0;
+        for (; row + rowsPerVector <= count && start + row * width + BYTE_SPECIES.length() <= values.length; row += rowsPerVector) {
+            ByteVector vector = ByteVector.fromArray(BYTE_SPECIES, values, start + row * width);
+            long lowerNotEqual = vector.compare(VectorOperators.NE, lowerVector).toLong();
+            long lowerLess = vector.compare(VectorOperators.UNSIGNED_LT, lowerVector).toLong();
+            long upperNotEqual = vector.compare(VectorOperators.NE, upperVector).toLong();
+            long upperLess = vector.compare(VectorOperators.UNSIGNED_LT, upperVector).toLong();
+
+            for (int i = 0; i < rowsPerVector; i++) {
+                int shift = i * width;
+                long first = Long.lowestOneBit((lowerNotEqual >>> shift) & rowBits);
+                boolean belowLower = ((lowerLess >>> shift) & first) != 0;
+                first = Long.lowestOneBit((upperNotEqual >>> shift) & rowBits);
+                boolean belowUpper = ((upperLess >>> shift) & first) != 0;
+
+                outputMask[row + i] = (byte) (inputMask[row + i] & (!belowLower & belowUpper ? 1 : 0));
+            }
+        }
+
+        for (; row < count; row++) {
+            int offset = start + row * width;
+            boolean selected = Arrays.compareUnsigned(values, offset, offset + width, lower, 0, width) >= 0 &&
+                    Arrays.compareUnsigned(values, offset, offset + width, upper, 0, width) < 0;
+            outputMask[row] = (byte) (inputMask[row] & (selected ? 1 : 0));
+        }
+    }
+
+    public static void betweenVariableWidth(int count, byte[] inputMask, byte[] outputMask, byte[] values, int[] offsets, byte[] lower, byte[] upper)
+    {
+        ByteVector lowerVector = pad(lower);
+        ByteVector upperVector = pad(upper);
+
+        for (int i = 0; i < count; i++) {
+            int selected = (inputMask[i] == 1 &&
+                    compare(values, offsets[i], offsets[i + 1], lower, lowerVector) >= 0 &&
+                    compare(values, offsets[i], offsets[i + 1], upper, upperVector) < 0) ? 1 : 0;
+            outputMask[i] = (byte) selected;
+        }
+    }
+
+    /**
+     * Same as {@code Arrays.compareUnsigned(values, start, end, constant, 0, constant.length)}.
+     *
+     * @param constantVector the result of {@link #pad} for {@code constant}
+     */
+    public static int compare(byte[] values, int start, int end, byte[] constant, ByteVector constantVector)
+    {
+        int length = end - start;
+        int common = Math.min(length, constant.length);
+        if (common > BYTE_SPECIES.length() || start + BYTE_SPECIES.length() > values.length) {
+            return Arrays.compareUnsigned(values, start, end, constant, 0, constant.length);
+        }
+
+        long notEqual = ByteVector.fromArray(BYTE_SPECIES, values, start)
+                .compare(VectorOperators.NE, constantVector)
+                .toLong();
+        notEqual &= common == 64 ? -1L : (1L << common) - 1;
+
+        if (notEqual != 0) {
+            int index = Long.numberOfTrailingZeros(notEqual);
+            return Byte.compareUnsigned(values[start + index], constant[index]);
+        }
+        return Integer.compare(length, constant.length);
+    }
+
+    /**
+     * @return {@code value} in a vector, padded with zeros or truncated to the vector length
+     */
+    public static ByteVector pad(byte[] value)
+    {
+        return ByteVector.fromArray(BYTE_SPECIES, Arrays.copyOf(value, BYTE_SPECIES.length()), 0);
+    }
+
+    private static ByteVector tile(byte[] value, int times)
+    {
+        byte[] tiled = new byte[BYTE_SPECIES.length()];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(value, 0, tiled, i * value.length, value.length);
+        }
+        return ByteVector.fromArray(BYTE_SPECIES, tiled, 0);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import org.weakref.eval.expression.FilterKernels.ConjunctKernels;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+/**
+ * Runs the conjuncts of a {@link CompiledFilter} one at a time, measuring the time each one takes
+ * and how many rows it drops (the D0..D4 and C0..C4 counters in ColumnarAdaptive.evaluate2), and
+ * periodically reorders them by cost per dropped row over a sliding window of recent batches.
+ * <p>
+ * The conjunct kernels are the ones the filter was compiled with, so changing the order does not
+ * require recompilation. Instances are not thread safe; use one per driver.
+ */
+public final class AdaptiveFilter
+{
+    public static final int DEFAULT_WINDOW_SIZE = 64;
+    public static final int DEFAULT_REORDER_INTERVAL = 16;
+
+    private final CompiledFilter filter;
+    private final ConjunctKernels[] conjuncts;
+    private final int windowSize;
+    private final int reorderInterval;
+
+    private final int[] order;
+    private final double[] rank;
+
+    // per conjunct, per batch in the window
+    private final long[][] nanos;
+    private final long[][] inputRows;
+    private final long[][] droppedRows;
+
+    // per conjunct, sums over the window
+    private final long[] totalNanos;
+    private final long[] totalInputRows;
+    private final long[] totalDroppedRows;
+
+    private int windowPosition;
+    private long batches;
+
+    public AdaptiveFilter(CompiledFilter filter)
+    {
+        this(filter, DEFAULT_WINDOW_SIZE, DEFAULT_REORDER_INTERVAL);
+    }
+
+    public AdaptiveFilter(CompiledFilter filter, int windowSize, int reorderInterval)
+    {
+        checkArgument(windowSize > 0, "windowSize must be greater than 0");
+        checkArgument(reorderInterval > 0, "reorderInterval must be greater than 0");
+
+        this.filter = filter;
+        this.conjuncts = filter.conjunctKernels().toArray(new ConjunctKernels[0]);
+        this.windowSize = windowSize;
+        this.reorderInterval = reorderInterval;
+
+        int count = conjuncts.length;
+        order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        rank = new double[count];
+
+        nanos = new long[count][windowSize];
+        inputRows = new long[count][windowSize];
+        droppedRows = new long[count][windowSize];
+
+        totalNanos = new long[count];
+        totalInputRows = new long[count];
+        totalDroppedRows = new long[count];
+    }
+
+    /**
+     * Filters the first {@code count} entries of {@code positions} in place.
+     *
+     * @return the number of positions that passed the filter
+     */
+    public int filter(int count, int[] positions, Column[] columns)
+    {
+        filter.checkLayout(columns);
+
+        int slot = windowPosition;
+        for (int conjunct : order) {
+            if (count == 0) {
+                // still record the batch so that stale samples leave the window
+                record(conjunct, slot, 0, 0, 0);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            int newCount = invoke(conjuncts[conjunct].positions(), count, positions, columns);
+            record(conjunct, slot, System.nanoTime() - start, count, count - newCount);
+            count = newCount;
+        }
+
+        endBatch();
+        return count;
+    }
+
+    /**
+     * Narrows {@code selection} to the rows that pass the filter, as in {@link CompiledFilter#filter(SelectionVector, Column[])}
+     */
+    public void filter(SelectionVector selection, Column[] columns)
+    {
+        filter.checkLayout(columns);
+
+        int slot = windowPosition;
+        for (int conjunct : order) {
+            int count = selection.count();
+            if (count == 0) {
+                record(conjunct, slot, 0, 0, 0);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            CompiledFilter.apply(conjuncts[conjunct], selection, columns);
+            record(conjunct, slot, System.nanoTime() - start, count, count - selection.count());
+        }
+
+        endBatch();
+    }
+
+    /**
+     * @return the conjuncts in the order they are currently evaluated
+     */
+    public List<Expression> currentOrder()
+    {
+        List<Expression> result = new ArrayList<>();
+        for (int conjunct : order) {
+            result.add(filter.conjuncts().get(conjunct));
+        }
+        return result;
+    }
+
+    public List<ConjunctStatistics> statistics()
+    {
+        List<ConjunctStatistics> result = new ArrayList<>();
+        for (int conjunct : order) {
+            result.add(new ConjunctStatistics(filter.conjuncts().get(conjunct), totalNanos[conjunct], totalInputRows[conjunct], totalDroppedRows[conjunct]));
+        }
+        return result;
+    }
+
+    public record ConjunctStatistics(Expression conjunct, long nanos, long inputRows, long droppedRows)
+    {
+        /**
+         * Cost per dropped row as used for the ranking, where the +1 keeps it finite when no rows were dropped
+         */
+        public double nanosPerDroppedRow()
+        {
+            return nanos / (droppedRows + 1.0);
+        }
+    }
+
+    private void endBatch()
+    {
+        windowPosition = (windowPosition + 1) % windowSize;
+        batches++;
+        if (batches % reorderInterval == 0) {
+            reorder();
+        }
+    }
+
+    private void record(int conjunct, int slot, long elapsed, long input, long dropped)
+    {
+        totalNanos[conjunct] += elapsed - nanos[conjunct][slot];
+        totalInputRows[conjunct] += input - inputRows[conjunct][slot];
+        totalDroppedRows[conjunct] += dropped - droppedRows[conjunct][slot];
+
+        nanos[conjunct][slot] = elapsed;
+        inputRows[conjunct][slot] = input;
+        droppedRows[conjunct][slot] = dropped;
+    }
+
+    private void reorder()
+    {
+        for (int conjunct = 0; conjunct < conjuncts.length; conjunct++) {
+            // a conjunct that saw no rows in the window (e.g., because an earlier one dropped everything)
+            // keeps its previous rank. The +1 keeps conjuncts that drop nothing ordered by their cost.
+            if (totalInputRows[conjunct] > 0) {
+                rank[conjunct] = totalNanos[conjunct] / (totalDroppedRows[conjunct] + 1.0);
+            }
+        }
+
+        // stable insertion sort: the number of conjuncts is small and this must not allocate
+        for (int i = 1; i < order.length; i++) {
+            int conjunct = order[i];
+            int j = i - 1;
+            while (j >= 0 && rank[order[j]] > rank[conjunct]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = conjunct;
+        }
+    }
+
+    private static int invoke(MethodHandle conjunct, int count, int[] positions, Column[] columns)
+    {
+        try {
+            return (int) conjunct.invokeExact(count, positions, columns);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Input column in the same layout the eval.core kernels use. A null {@code nulls}
+ * array means the column has no nulls, otherwise {@code nulls[i] == 1} marks a null.
+ */
+public sealed interface Column
+{
+    Type type();
+
+    byte[] nulls();
+
+    default ColumnLayout layout()
+    {
+        return new ColumnLayout(type(), nulls() != null);
+    }
+
+    record LongColumn(long[] values, byte[] nulls)
+            implements Column
+    {
+        public LongColumn
+        {
+            requireNonNull(values, "values is null");
+        }
+
+        public LongColumn(long[] values)
+        {
+            this(values, null);
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BIGINT;
+        }
+    }
+
+    record VarcharColumn(byte[] values, int[] offsets, byte[] nulls)
+            implements Column
+    {
+        public VarcharColumn
+        {
+            requireNonNull(values, "values is null");
+            requireNonNull(offsets, "offsets is null");
+        }
+
+        public VarcharColumn(byte[] values, int[] offsets)
+        {
+            this(values, offsets, null);
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.VARCHAR;
+        }
+    }
+}
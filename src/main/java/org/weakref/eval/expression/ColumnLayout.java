@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public record ColumnLayout(Type type, boolean mayHaveNull)
+{
+    public ColumnLayout
+    {
+        requireNonNull(type, "type is null");
+    }
+
+    public static List<ColumnLayout> layoutOf(Column... columns)
+    {
+        return Arrays.stream(columns)
+                .map(Column::layout)
+                .toList();
+    }
+
+    static void checkColumns(List<ColumnLayout> layout, Column[] columns)
+    {
+        checkArgument(columns.length == layout.size(), "Expected %s columns, got %s", layout.size(), columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            ColumnLayout column = layout.get(i);
+            checkArgument(columns[i].type() == column.type() && (columns[i].nulls() != null) == column.mayHaveNull(), "Column %s does not match layout %s", i, column);
+        }
+    }
+}
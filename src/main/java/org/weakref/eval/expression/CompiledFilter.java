@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import org.weakref.eval.expression.FilterKernels.ConjunctKernels;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+public final class CompiledFilter
+{
+    private final Expression expression;
+    private final List<ColumnLayout> layout;
+    private final List<Expression> conjuncts;
+    private final List<ConjunctKernels> conjunctKernels;
+    private final MethodHandle kernel;
+
+    CompiledFilter(Expression expression, List<ColumnLayout> layout, List<Expression> conjuncts, List<ConjunctKernels> conjunctKernels)
+    {
+        checkArgument(!conjuncts.isEmpty(), "conjuncts is empty");
+        checkArgument(conjuncts.size() == conjunctKernels.size(), "conjuncts and kernels do not match");
+        this.expression = expression;
+        this.layout = List.copyOf(layout);
+        this.conjuncts = List.copyOf(conjuncts);
+        this.conjunctKernels = List.copyOf(conjunctKernels);
+
+        MethodHandle kernel = conjunctKernels.get(0).positions();
+        for (int i = 1; i < conjunctKernels.size(); i++) {
+            kernel = ExpressionCompiler.chain(kernel, conjunctKernels.get(i).positions());
+        }
+        this.kernel = kernel;
+    }
+
+    public Expression expression()
+    {
+        return expression;
+    }
+
+    public List<ColumnLayout> layout()
+    {
+        return layout;
+    }
+
+    public List<Expression> conjuncts()
+    {
+        return conjuncts;
+    }
+
+    /**
+     * Kernels for the individual conjuncts, in the same order as {@link #conjuncts()}
+     */
+    List<ConjunctKernels> conjunctKernels()
+    {
+        return conjunctKernels;
+    }
+
+    /**
+     * Filters the first {@code count} entries of {@code positions} in place.
+     *
+     * @return the number of positions that passed the filter
+     */
+    public int filter(int count, int[] positions, Column[] columns)
+    {
+        checkLayout(columns);
+        try {
+            return (int) kernel.invokeExact(count, positions, columns);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Narrows {@code selection} to the rows that pass the filter. Each conjunct is evaluated over the
+     * representation the selection prefers given the rows still selected after the previous one.
+     */
+    public void filter(SelectionVector selection, Column[] columns)
+    {
+        checkLayout(columns);
+        for (ConjunctKernels conjunct : conjunctKernels) {
+            if (selection.isEmpty()) {
+                return;
+            }
+            apply(conjunct, selection, columns);
+        }
+    }
+
+    static void apply(ConjunctKernels conjunct, SelectionVector selection, Column[] columns)
+    {
+        try {
+            switch (selection.preferred()) {
+                case POSITIONS -> {
+                    int[] positions = selection.positions();
+                    selection.positionsUpdated((int) conjunct.positions().invokeExact(selection.count(), positions, columns));
+                }
+                case MASK -> {
+                    byte[] mask = selection.mask();
+                    selection.maskUpdated((int) conjunct.mask().invokeExact(selection.positionCount(), mask, columns));
+                }
+                case BITMAP -> {
+                    long[] bitmap = selection.bitmap();
+                    selection.bitmapUpdated((int) conjunct.bitmap().invokeExact(selection.positionCount(), bitmap, columns));
+                }
+            }
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    void checkLayout(Column[] columns)
+    {
+        ColumnLayout.checkColumns(layout, columns);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+public final class CompiledProjection
+{
+    private final Expression expression;
+    private final List<ColumnLayout> layout;
+    private final MethodHandle kernel;
+    private final boolean mayBeNull;
+
+    CompiledProjection(Expression expression, List<ColumnLayout> layout, MethodHandle kernel, boolean mayBeNull)
+    {
+        this.expression = expression;
+        this.layout = List.copyOf(layout);
+        this.kernel = kernel;
+        this.mayBeNull = mayBeNull;
+    }
+
+    public Expression expression()
+    {
+        return expression;
+    }
+
+    public boolean mayBeNull()
+    {
+        return mayBeNull;
+    }
+
+    /**
+     * Evaluates the projection for the first {@code count} entries of {@code positions}, writing
+     * to the same positions of {@code result}. {@code resultNull} is only written when {@link #mayBeNull()},
+     * otherwise it can be null.
+     */
+    public void project(int count, int[] positions, Column[] columns, long[] result, byte[] resultNull)
+    {
+        ColumnLayout.checkColumns(layout, columns);
+        try {
+            kernel.invokeExact(count, positions, columns, result, resultNull);
+        }
+        catch (Throwable e) {
+            throwIfUnchecked(e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Evaluates the projection for the positions in {@code selection}
+     */
+    public void project(SelectionVector selection, Column[] columns, long[] result, byte[] resultNull)
+    {
+        project(selection.count(), selection.positions(), columns, result, resultNull);
+    }
+}
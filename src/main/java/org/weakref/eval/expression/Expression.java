@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public sealed interface Expression
+{
+    Type type();
+
+    record Constant(Type type, Object value)
+            implements Expression
+    {
+        public Constant
+        {
+            requireNonNull(type, "type is null");
+            checkArgument(value == null || value.getClass() == switch (type) {
+                case BOOLEAN -> Boolean.class;
+                case BIGINT -> Long.class;
+                case VARCHAR -> String.class;
+            }, "Invalid value for %s: %s", type, value);
+        }
+    }
+
+    record ColumnReference(int column, Type type)
+            implements Expression
+    {
+        public ColumnReference
+        {
+            checkArgument(column >= 0, "column is negative");
+            requireNonNull(type, "type is null");
+        }
+    }
+
+    record Comparison(ComparisonOperator operator, Expression left, Expression right)
+            implements Expression
+    {
+        public Comparison
+        {
+            requireNonNull(operator, "operator is null");
+            checkArgument(left.type() == right.type(), "Cannot compare %s with %s", left.type(), right.type());
+            checkArgument(left.type() != Type.BOOLEAN, "Cannot compare %s", left.type());
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BOOLEAN;
+        }
+    }
+
+    record Arithmetic(ArithmeticOperator operator, Expression left, Expression right)
+            implements Expression
+    {
+        public Arithmetic
+        {
+            requireNonNull(operator, "operator is null");
+            checkArgument(left.type() == Type.BIGINT && right.type() == Type.BIGINT, "Arithmetic requires BIGINT operands: %s, %s", left.type(), right.type());
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BIGINT;
+        }
+    }
+
+    record Logical(LogicalOperator operator, List<Expression> terms)
+            implements Expression
+    {
+        public Logical
+        {
+            requireNonNull(operator, "operator is null");
+            terms = List.copyOf(terms);
+            checkArgument(!terms.isEmpty(), "terms is empty");
+            checkArgument(terms.stream().allMatch(term -> term.type() == Type.BOOLEAN), "%s requires BOOLEAN terms", operator);
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BOOLEAN;
+        }
+    }
+
+    record Not(Expression value)
+            implements Expression
+    {
+        public Not
+        {
+            checkArgument(value.type() == Type.BOOLEAN, "NOT requires a BOOLEAN argument: %s", value.type());
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BOOLEAN;
+        }
+    }
+
+    record IsNull(Expression value)
+            implements Expression
+    {
+        public IsNull
+        {
+            requireNonNull(value, "value is null");
+        }
+
+        @Override
+        public Type type()
+        {
+            return Type.BOOLEAN;
+        }
+    }
+
+    enum ComparisonOperator
+    {
+        EQUAL,
+        NOT_EQUAL,
+        LESS_THAN,
+        LESS_THAN_OR_EQUAL,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUAL;
+
+        /**
+         * Operator to use when the operands are swapped, i.e., {@code a op b <=> b op.flip() a}
+         */
+        public ComparisonOperator flip()
+        {
+            return switch (this) {
+                case EQUAL, NOT_EQUAL -> this;
+                case LESS_THAN -> GREATER_THAN;
+                case LESS_THAN_OR_EQUAL -> GREATER_THAN_OR_EQUAL;
+                case GREATER_THAN -> LESS_THAN;
+                case GREATER_THAN_OR_EQUAL -> LESS_THAN_OR_EQUAL;
+            };
+        }
+    }
+
+    enum ArithmeticOperator
+    {
+        ADD,
+        SUBTRACT,
+        MULTIPLY
+    }
+
+    enum LogicalOperator
+    {
+        AND,
+        OR
+    }
+
+    static Expression constant(long value)
+    {
+        return new Constant(Type.BIGINT, value);
+    }
+
+    static Expression constant(String value)
+    {
+        return new Constant(Type.VARCHAR, value);
+    }
+
+    static Expression constant(boolean value)
+    {
+        return new Constant(Type.BOOLEAN, value);
+    }
+
+    static Expression nullConstant(Type type)
+    {
+        return new Constant(type, null);
+    }
+
+    static Expression column(int column, Type type)
+    {
+        return new ColumnReference(column, type);
+    }
+
+    static Expression equal(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.EQUAL, left, right);
+    }
+
+    static Expression notEqual(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.NOT_EQUAL, left, right);
+    }
+
+    static Expression lessThan(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.LESS_THAN, left, right);
+    }
+
+    static Expression lessThanOrEqual(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.LESS_THAN_OR_EQUAL, left, right);
+    }
+
+    static Expression greaterThan(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.GREATER_THAN, left, right);
+    }
+
+    static Expression greaterThanOrEqual(Expression left, Expression right)
+    {
+        return new Comparison(ComparisonOperator.GREATER_THAN_OR_EQUAL, left, right);
+    }
+
+    static Expression add(Expression left, Expression right)
+    {
+        return new Arithmetic(ArithmeticOperator.ADD, left, right);
+    }
+
+    static Expression subtract(Expression left, Expression right)
+    {
+        return new Arithmetic(ArithmeticOperator.SUBTRACT, left, right);
+    }
+
+    static Expression multiply(Expression left, Expression right)
+    {
+        return new Arithmetic(ArithmeticOperator.MULTIPLY, left, right);
+    }
+
+    static Expression and(Expression... terms)
+    {
+        return new Logical(LogicalOperator.AND, List.of(terms));
+    }
+
+    static Expression or(Expression... terms)
+    {
+        return new Logical(LogicalOperator.OR, List.of(terms));
+    }
+
+    static Expression not(Expression value)
+    {
+        return new Not(value);
+    }
+
+    static Expression isNull(Expression value)
+    {
+        return new IsNull(value);
+    }
+
+    static Expression isNotNull(Expression value)
+    {
+        return new Not(new IsNull(value));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import org.weakref.eval.core.VarcharRange;
+import org.weakref.eval.expression.Column.LongColumn;
+import org.weakref.eval.expression.Expression.Arithmetic;
+import org.weakref.eval.expression.Expression.ColumnReference;
+import org.weakref.eval.expression.Expression.Comparison;
+import org.weakref.eval.expression.Expression.ComparisonOperator;
+import org.weakref.eval.expression.Expression.Constant;
+import org.weakref.eval.expression.Expression.IsNull;
+import org.weakref.eval.expression.Expression.Logical;
+import org.weakref.eval.expression.Expression.LogicalOperator;
+import org.weakref.eval.expression.Expression.Not;
+import org.weakref.eval.expression.FilterKernels.ConjunctKernels;
+import org.weakref.eval.expression.RowCompiler.LongCode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.invoke.MethodType.methodType;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compiles filter and projection expressions into method handle kernels specialized for
+ * the expression and the input layout (column types and whether they may contain nulls).
+ * <p>
+ * Filters are split into conjuncts that are applied one after the other over an array of
+ * active positions, compacting it in place as in ColumnarActivePositionsNoNullsInPlace, or
+ * over a {@link SelectionVector} that switches between positions, byte masks and bitmaps.
+ * Conjuncts of the form {@code column op constant} and {@code column IS [NOT] NULL} use
+ * column-at-a-time loops; anything else falls back to evaluating the conjunct row by row.
+ * <p>
+ * The compiled handles are built by binding operators, column indexes and constants into
+ * generic loops, the same way ColumnarAdaptive does. Once a handle is hot, the JVM customizes
+ * its lambda form, so the bound values become constants and the loops are compiled with the
+ * operators inlined.
+ */
+public class ExpressionCompiler
+{
+    static final MethodType PROJECTION_TYPE = methodType(void.class, int.class, int[].class, Column[].class, long[].class, byte[].class);
+
+    private static final MethodHandle PROJECT_ROWS;
+    private static final MethodHandle PROJECT_ROWS_NULLABLE;
+    private static final MethodHandle PROJECT_COLUMNS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PROJECT_ROWS = lookup.findStatic(ExpressionCompiler.class, "projectRows", PROJECTION_TYPE.insertParameterTypes(0, MethodHandle.class));
+            PROJECT_ROWS_NULLABLE = lookup.findStatic(ExpressionCompiler.class, "projectRowsNullable", PROJECTION_TYPE.insertParameterTypes(0, MethodHandle.class, MethodHandle.class));
+            PROJECT_COLUMNS = lookup.findStatic(ExpressionCompiler.class, "projectColumns", PROJECTION_TYPE.insertParameterTypes(0, MethodHandle.class, int.class, int.class));
+        }
+        catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private record CacheKey(Expression expression, List<ColumnLayout> layout) {}
+
+    private final Map<CacheKey, CompiledFilter> filters = new ConcurrentHashMap<>();
+    private final Map<CacheKey, CompiledProjection> projections = new ConcurrentHashMap<>();
+
+    public CompiledFilter compileFilter(Expression filter, List<ColumnLayout> layout)
+    {
+        checkArgument(filter.type() == Type.BOOLEAN, "Filter must be BOOLEAN: %s", filter);
+        return filters.computeIfAbsent(new CacheKey(filter, List.copyOf(layout)), key -> {
+            List<Expression> conjuncts = conjuncts(key.expression());
+            List<ConjunctKernels> kernels = new ArrayList<>();
+            for (Expression conjunct : conjuncts) {
+                kernels.add(compileConjunct(conjunct, new RowCompiler(key.layout())));
+            }
+            return new CompiledFilter(key.expression(), key.layout(), conjuncts, kernels);
+        });
+    }
+
+    public CompiledProjection compileProjection(Expression projection, List<ColumnLayout> layout)
+    {
+        checkArgument(projection.type() == Type.BIGINT, "Only BIGINT projections are supported: %s", projection);
+        return projections.computeIfAbsent(new CacheKey(projection, List.copyOf(layout)), key -> {
+            RowCompiler compiler = new RowCompiler(key.layout());
+
+            if (key.expression() instanceof Arithmetic arithmetic &&
+                    arithmetic.left() instanceof ColumnReference left &&
+                    arithmetic.right() instanceof ColumnReference right &&
+                    !compiler.column(left).mayHaveNull() &&
+                    !compiler.column(right).mayHaveNull()) {
+                MethodHandle kernel = MethodHandles.insertArguments(PROJECT_COLUMNS, 0, RowCompiler.arithmeticOperator(arithmetic.operator()), left.column(), right.column());
+                return new CompiledProjection(key.expression(), key.layout(), kernel, false);
+            }
+
+            LongCode code = compiler.compileLong(key.expression());
+            if (!code.mayBeNull()) {
+                return new CompiledProjection(key.expression(), key.layout(), MethodHandles.insertArguments(PROJECT_ROWS, 0, code.value()), false);
+            }
+            return new CompiledProjection(key.expression(), key.layout(), MethodHandles.insertArguments(PROJECT_ROWS_NULLABLE, 0, code.value(), code.isNull()), true);
+        });
+    }
+
+    static List<Expression> conjuncts(Expression expression)
+    {
+        if (expression instanceof Logical logical && logical.operator() == LogicalOperator.AND) {
+            List<Expression> result = new ArrayList<>();
+            for (Expression term : logical.terms()) {
+                result.addAll(conjuncts(term));
+            }
+            return result;
+        }
+        return List.of(expression);
+    }
+
+    /**
+     * @return the positions, mask and bitmap kernels for the conjunct. See {@link FilterKernels}.
+     */
+    static ConjunctKernels compileConjunct(Expression conjunct, RowCompiler compiler)
+    {
+        if (conjunct instanceof Comparison comparison) {
+            Expression left = comparison.left();
+            Expression right = comparison.right();
+            ComparisonOperator operator = comparison.operator();
+            if (left instanceof Constant && right instanceof ColumnReference) {
+                left = comparison.right();
+                right = comparison.left();
+                operator = operator.flip();
+            }
+
+            if (left instanceof ColumnReference column && right instanceof Constant constant) {
+                boolean mayHaveNull = compiler.column(column).mayHaveNull();
+                if (constant.value() == null) {
+                    return FilterKernels.NONE.bind();
+                }
+                if (column.type() == Type.BIGINT) {
+                    return (mayHaveNull ? FilterKernels.LONG_NULLABLE : FilterKernels.LONG).bind(
+                            operator,
+                            column.column(),
+                            (long) (Long) constant.value());
+                }
+                byte[] value = ((String) constant.value()).getBytes(UTF_8);
+                return (mayHaveNull ? FilterKernels.VARCHAR_NULLABLE : FilterKernels.VARCHAR).bind(
+                        RowCompiler.compareResultOperator(operator),
+                        column.column(),
+                        value,
+                        VarcharRange.pad(value));
+            }
+        }
+
+        if (conjunct instanceof IsNull isNull && isNull.value() instanceof ColumnReference column) {
+            if (!compiler.column(column).mayHaveNull()) {
+                return FilterKernels.NONE.bind();
+            }
+            return FilterKernels.NULL.bind(column.column());
+        }
+
+        if (conjunct instanceof Not not && not.value() instanceof IsNull isNull && isNull.value() instanceof ColumnReference column) {
+            if (!compiler.column(column).mayHaveNull()) {
+                return FilterKernels.ALL.bind();
+            }
+            return FilterKernels.NOT_NULL.bind(column.column());
+        }
+
+        return FilterKernels.ROWS.bind(compiler.compileBoolean(conjunct));
+    }
+
+    /**
+     * Chains two {@link FilterKernels#POSITIONS_TYPE} kernels so that the count returned by the first is the input count of the second.
+     */
+    static MethodHandle chain(MethodHandle first, MethodHandle second)
+    {
+        MethodHandle result = MethodHandles.collectArguments(second, 0, first);
+        return MethodHandles.permuteArguments(result, FilterKernels.POSITIONS_TYPE, 0, 1, 2, 1, 2);
+    }
+
+    private static void projectRows(MethodHandle value, int count, int[] positions, Column[] columns, long[] result, byte[] resultNull)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            result[position] = (long) value.invokeExact(columns, position);
+        }
+    }
+
+    private static void projectRowsNullable(MethodHandle value, MethodHandle isNull, int count, int[] positions, Column[] columns, long[] result, byte[] resultNull)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            result[position] = (long) value.invokeExact(columns, position);
+            resultNull[position] = (byte) ((boolean) isNull.invokeExact(columns, position) ? 1 : 0);
+        }
+    }
+
+    private static void projectColumns(MethodHandle operator, int left, int right, int count, int[] positions, Column[] columns, long[] result, byte[] resultNull)
+            throws Throwable
+    {
+        long[] a = ((LongColumn) columns[left]).values();
+        long[] b = ((LongColumn) columns[right]).values();
+
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            result[position] = (long) operator.invokeExact(a[position], b[position]);
+        }
+    }
+}
@@ -0,0 +1,602 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.weakref.eval.core.VarcharRange;
+import org.weakref.eval.expression.Column.LongColumn;
+import org.weakref.eval.expression.Column.VarcharColumn;
+import org.weakref.eval.expression.Expression.ComparisonOperator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.weakref.eval.expression.RowCompiler.TRUE;
+
+/**
+ * Filter loops for a single conjunct, one per selection representation:
+ * <ul>
+ * <li>positions: compacts the first {@code count} active positions in place and returns the new count</li>
+ * <li>mask: clears the entries of a byte mask over {@code positionCount} rows that fail the conjunct and returns the number still set</li>
+ * <li>bitmap: same as the mask, but over a bitmap, visiting only the set bits</li>
+ * </ul>
+ * The mask and bitmap loops evaluate BIGINT comparisons for every row, selected or not, with the Vector API:
+ * 64 rows at a time into a word that is ANDed into the mask or bitmap.
+ * Conjuncts that are expensive to evaluate (VARCHAR comparisons, row-at-a-time fallback) only evaluate selected rows.
+ * VARCHAR comparisons use {@link VarcharRange#compare}, which compares short values with a single vector load.
+ */
+final class FilterKernels
+{
+    static final MethodType POSITIONS_TYPE = methodType(int.class, int.class, int[].class, Column[].class);
+    static final MethodType MASK_TYPE = methodType(int.class, int.class, byte[].class, Column[].class);
+    static final MethodType BITMAP_TYPE = methodType(int.class, int.class, long[].class, Column[].class);
+
+    private static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    static final Family ROWS = family("filterRows", MethodHandle.class);
+    static final Family LONG = family("filterLong", ComparisonOperator.class, int.class, long.class);
+    static final Family LONG_NULLABLE = family("filterLongNullable", ComparisonOperator.class, int.class, long.class);
+    static final Family VARCHAR = family("filterVarchar", MethodHandle.class, int.class, byte[].class, ByteVector.class);
+    static final Family VARCHAR_NULLABLE = family("filterVarcharNullable", MethodHandle.class, int.class, byte[].class, ByteVector.class);
+    static final Family NULL = family("filterNull", int.class);
+    static final Family NOT_NULL = family("filterNotNull", int.class);
+    static final Family NONE = family("filterNone");
+    static final Family ALL = family("filterAll");
+
+    private FilterKernels() {}
+
+    /**
+     * The positions, mask and bitmap variants of a loop, before binding the loop's leading arguments
+     */
+    record Family(MethodHandle positions, MethodHandle mask, MethodHandle bitmap)
+    {
+        ConjunctKernels bind(Object... values)
+        {
+            return new ConjunctKernels(
+                    MethodHandles.insertArguments(positions, 0, values),
+                    MethodHandles.insertArguments(mask, 0, values),
+                    MethodHandles.insertArguments(bitmap, 0, values));
+        }
+    }
+
+    /**
+     * Kernels of type {@link #POSITIONS_TYPE}, {@link #MASK_TYPE} and {@link #BITMAP_TYPE} for one conjunct
+     */
+    record ConjunctKernels(MethodHandle positions, MethodHandle mask, MethodHandle bitmap) {}
+
+    private static Family family(String name, Class<?>... boundTypes)
+    {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            return new Family(
+                    lookup.findStatic(FilterKernels.class, name, POSITIONS_TYPE.insertParameterTypes(0, boundTypes)),
+                    lookup.findStatic(FilterKernels.class, name, MASK_TYPE.insertParameterTypes(0, boundTypes)),
+                    lookup.findStatic(FilterKernels.class, name, BITMAP_TYPE.insertParameterTypes(0, boundTypes)));
+        }
+        catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int filterRows(MethodHandle predicate, int count, int[] positions, Column[] columns)
+            throws Throwable
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            output += (int) predicate.invokeExact(columns, position) == TRUE ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int filterRows(MethodHandle predicate, int positionCount, byte[] mask, Column[] columns)
+            throws Throwable
+    {
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (mask[position] != 0) {
+                int selected = (int) predicate.invokeExact(columns, position) == TRUE ? 1 : 0;
+                mask[position] = (byte) selected;
+                count += selected;
+            }
+        }
+
+        return count;
+    }
+
+    private static int filterRows(MethodHandle predicate, int positionCount, long[] bitmap, Column[] columns)
+            throws Throwable
+    {
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                result |= ((int) predicate.invokeExact(columns, word * 64 + bit) == TRUE ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    // The BIGINT loops take the operator as a VectorOperators.Comparison. The Vector API only compiles a comparison
+    // to vector instructions when the operator is a constant, so each kernel switches on the operator once and
+    // calls a loop that gets inlined with a constant operator.
+
+    private static int filterLong(ComparisonOperator operator, int column, long value, int count, int[] positions, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, null, value, count, positions);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, null, value, count, positions);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, null, value, count, positions);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, null, value, count, positions);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, null, value, count, positions);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, null, value, count, positions);
+        };
+    }
+
+    private static int filterLong(ComparisonOperator operator, int column, long value, int positionCount, byte[] mask, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, null, value, positionCount, mask);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, null, value, positionCount, mask);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, null, value, positionCount, mask);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, null, value, positionCount, mask);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, null, value, positionCount, mask);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, null, value, positionCount, mask);
+        };
+    }
+
+    private static int filterLong(ComparisonOperator operator, int column, long value, int positionCount, long[] bitmap, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, null, value, positionCount, bitmap);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, null, value, positionCount, bitmap);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, null, value, positionCount, bitmap);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, null, value, positionCount, bitmap);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, null, value, positionCount, bitmap);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, null, value, positionCount, bitmap);
+        };
+    }
+
+    private static int filterLongNullable(ComparisonOperator operator, int column, long value, int count, int[] positions, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        byte[] nulls = columns[column].nulls();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, nulls, value, count, positions);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, nulls, value, count, positions);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, nulls, value, count, positions);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, nulls, value, count, positions);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, nulls, value, count, positions);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, nulls, value, count, positions);
+        };
+    }
+
+    private static int filterLongNullable(ComparisonOperator operator, int column, long value, int positionCount, byte[] mask, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        byte[] nulls = columns[column].nulls();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, nulls, value, positionCount, mask);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, nulls, value, positionCount, mask);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, nulls, value, positionCount, mask);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, nulls, value, positionCount, mask);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, nulls, value, positionCount, mask);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, nulls, value, positionCount, mask);
+        };
+    }
+
+    private static int filterLongNullable(ComparisonOperator operator, int column, long value, int positionCount, long[] bitmap, Column[] columns)
+    {
+        long[] values = ((LongColumn) columns[column]).values();
+        byte[] nulls = columns[column].nulls();
+        return switch (operator) {
+            case EQUAL -> filterLong(VectorOperators.EQ, values, nulls, value, positionCount, bitmap);
+            case NOT_EQUAL -> filterLong(VectorOperators.NE, values, nulls, value, positionCount, bitmap);
+            case LESS_THAN -> filterLong(VectorOperators.LT, values, nulls, value, positionCount, bitmap);
+            case LESS_THAN_OR_EQUAL -> filterLong(VectorOperators.LE, values, nulls, value, positionCount, bitmap);
+            case GREATER_THAN -> filterLong(VectorOperators.GT, values, nulls, value, positionCount, bitmap);
+            case GREATER_THAN_OR_EQUAL -> filterLong(VectorOperators.GE, values, nulls, value, positionCount, bitmap);
+        };
+    }
+
+    /**
+     * @param nulls null if the column has no nulls
+     */
+    private static int filterLong(VectorOperators.Comparison operator, long[] values, byte[] nulls, long value, int count, int[] positions)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            output += (nulls == null || nulls[position] == 0) & test(operator, values[position], value) ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    // compares 64 rows at a time into a word, as in ColumnarNoNullsBMVector, and ANDs the word into the mask 64 bytes
+    // at a time, as in ColumnarVector
+    private static int filterLong(VectorOperators.Comparison operator, long[] values, byte[] nulls, long value, int positionCount, byte[] mask)
+    {
+        int count = 0;
+        int position = 0;
+        for (; position + 64 <= positionCount; position += 64) {
+            long word = compare(operator, values, nulls, value, position);
+            for (int lane = 0; lane < 64; lane += BYTE_SPECIES.length()) {
+                ByteVector selected = ByteVector.fromArray(BYTE_SPECIES, mask, position + lane)
+                        .blend((byte) 0, VectorMask.fromLong(BYTE_SPECIES, word >>> lane).not());
+                selected.intoArray(mask, position + lane);
+                count += selected.compare(VectorOperators.NE, (byte) 0).trueCount();
+            }
+        }
+
+        for (; position < positionCount; position++) {
+            int selected = mask[position] & ((nulls == null || nulls[position] == 0) & test(operator, values[position], value) ? 1 : 0);
+            mask[position] = (byte) selected;
+            count += selected;
+        }
+
+        return count;
+    }
+
+    private static int filterLong(VectorOperators.Comparison operator, long[] values, byte[] nulls, long value, int positionCount, long[] bitmap)
+    {
+        int count = 0;
+        int word = 0;
+        for (; (word + 1) * 64 <= positionCount; word++) {
+            long bits = bitmap[word];
+            if (bits != 0) {
+                bits &= compare(operator, values, nulls, value, word * 64);
+                bitmap[word] = bits;
+                count += Long.bitCount(bits);
+            }
+        }
+
+        if (word * 64 < positionCount) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                int position = word * 64 + bit;
+                result |= ((nulls == null || nulls[position] == 0) & test(operator, values[position], value) ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the word with bit {@code i} set if row {@code start + i} is not null and passes the comparison
+     */
+    private static long compare(VectorOperators.Comparison operator, long[] values, byte[] nulls, long value, int start)
+    {
+        long word = 0;
+        for (int lane = 0; lane < 64; lane += LONG_SPECIES.length()) {
+            word |= LongVector.fromArray(LONG_SPECIES, values, start + lane)
+                    .compare(operator, value)
+                    .toLong() << lane;
+        }
+
+        if (nulls != null) {
+            for (int lane = 0; lane < 64; lane += BYTE_SPECIES.length()) {
+                word &= ~(ByteVector.fromArray(BYTE_SPECIES, nulls, start + lane)
+                        .compare(VectorOperators.NE, (byte) 0)
+                        .toLong() << lane);
+            }
+        }
+
+        return word;
+    }
+
+    private static boolean test(VectorOperators.Comparison operator, long left, long right)
+    {
+        if (operator == VectorOperators.EQ) {
+            return left == right;
+        }
+        if (operator == VectorOperators.NE) {
+            return left != right;
+        }
+        if (operator == VectorOperators.LT) {
+            return left < right;
+        }
+        if (operator == VectorOperators.LE) {
+            return left <= right;
+        }
+        if (operator == VectorOperators.GT) {
+            return left > right;
+        }
+        return left >= right;
+    }
+
+    private static int filterVarchar(MethodHandle operator, int column, byte[] value, ByteVector vector, int count, int[] positions, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+            output += (boolean) operator.invokeExact(compare) ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int filterVarchar(MethodHandle operator, int column, byte[] value, ByteVector vector, int positionCount, byte[] mask, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (mask[position] != 0) {
+                int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+                int selected = (boolean) operator.invokeExact(compare) ? 1 : 0;
+                mask[position] = (byte) selected;
+                count += selected;
+            }
+        }
+
+        return count;
+    }
+
+    private static int filterVarchar(MethodHandle operator, int column, byte[] value, ByteVector vector, int positionCount, long[] bitmap, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                int position = word * 64 + bit;
+                int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+                result |= ((boolean) operator.invokeExact(compare) ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    private static int filterVarcharNullable(MethodHandle operator, int column, byte[] value, ByteVector vector, int count, int[] positions, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+        byte[] nulls = columns[column].nulls();
+
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+            output += nulls[position] == 0 & (boolean) operator.invokeExact(compare) ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int filterVarcharNullable(MethodHandle operator, int column, byte[] value, ByteVector vector, int positionCount, byte[] mask, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (mask[position] != 0) {
+                int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+                int selected = nulls[position] == 0 & (boolean) operator.invokeExact(compare) ? 1 : 0;
+                mask[position] = (byte) selected;
+                count += selected;
+            }
+        }
+
+        return count;
+    }
+
+    private static int filterVarcharNullable(MethodHandle operator, int column, byte[] value, ByteVector vector, int positionCount, long[] bitmap, Column[] columns)
+            throws Throwable
+    {
+        byte[] values = ((VarcharColumn) columns[column]).values();
+        int[] offsets = ((VarcharColumn) columns[column]).offsets();
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                int position = word * 64 + bit;
+                int compare = VarcharRange.compare(values, offsets[position], offsets[position + 1], value, vector);
+                result |= (nulls[position] == 0 & (boolean) operator.invokeExact(compare) ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    private static int filterNull(int column, int count, int[] positions, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            output += nulls[position] != 0 ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int filterNull(int column, int positionCount, byte[] mask, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            int selected = mask[position] & (nulls[position] != 0 ? 1 : 0);
+            mask[position] = (byte) selected;
+            count += selected;
+        }
+
+        return count;
+    }
+
+    private static int filterNull(int column, int positionCount, long[] bitmap, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                result |= (nulls[word * 64 + bit] != 0 ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    private static int filterNotNull(int column, int count, int[] positions, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = positions[input];
+            positions[output] = position;
+            output += nulls[position] == 0 ? 1 : 0;
+        }
+
+        return output;
+    }
+
+    private static int filterNotNull(int column, int positionCount, byte[] mask, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            int selected = mask[position] & (nulls[position] == 0 ? 1 : 0);
+            mask[position] = (byte) selected;
+            count += selected;
+        }
+
+        return count;
+    }
+
+    private static int filterNotNull(int column, int positionCount, long[] bitmap, Column[] columns)
+    {
+        byte[] nulls = columns[column].nulls();
+
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            long bits = bitmap[word];
+            long result = 0;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                result |= (nulls[word * 64 + bit] == 0 ? 1L : 0L) << bit;
+                bits &= bits - 1;
+            }
+            bitmap[word] = result;
+            count += Long.bitCount(result);
+        }
+
+        return count;
+    }
+
+    private static int filterNone(int count, int[] positions, Column[] columns)
+    {
+        return 0;
+    }
+
+    private static int filterNone(int positionCount, byte[] mask, Column[] columns)
+    {
+        Arrays.fill(mask, 0, positionCount, (byte) 0);
+        return 0;
+    }
+
+    private static int filterNone(int positionCount, long[] bitmap, Column[] columns)
+    {
+        Arrays.fill(bitmap, 0, SelectionVector.words(positionCount), 0);
+        return 0;
+    }
+
+    private static int filterAll(int count, int[] positions, Column[] columns)
+    {
+        return count;
+    }
+
+    private static int filterAll(int positionCount, byte[] mask, Column[] columns)
+    {
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            count += mask[position];
+        }
+        return count;
+    }
+
+    private static int filterAll(int positionCount, long[] bitmap, Column[] columns)
+    {
+        int count = 0;
+        for (int word = 0; word < SelectionVector.words(positionCount); word++) {
+            count += Long.bitCount(bitmap[word]);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import org.weakref.eval.expression.Column.LongColumn;
+import org.weakref.eval.expression.Column.VarcharColumn;
+import org.weakref.eval.expression.Expression.Arithmetic;
+import org.weakref.eval.expression.Expression.ColumnReference;
+import org.weakref.eval.expression.Expression.Comparison;
+import org.weakref.eval.expression.Expression.ComparisonOperator;
+import org.weakref.eval.expression.Expression.Constant;
+import org.weakref.eval.expression.Expression.IsNull;
+import org.weakref.eval.expression.Expression.Logical;
+import org.weakref.eval.expression.Expression.Not;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.invoke.MethodType.methodType;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compiles an expression into row-at-a-time method handles of type {@code (Column[], int position)}.
+ * <p>
+ * Boolean expressions produce an int in three-valued logic ({@link #FALSE}, {@link #UNKNOWN}, {@link #TRUE}),
+ * ordered so that AND is min, OR is max and NOT is {@code TRUE - x}.
+ */
+final class RowCompiler
+{
+    static final int FALSE = 0;
+    static final int UNKNOWN = 1;
+    static final int TRUE = 2;
+
+    static final MethodType ROW_TYPE = methodType(void.class, Column[].class, int.class);
+
+    private static final MethodHandle LONG_VALUE;
+    private static final MethodHandle IS_NULL;
+    private static final MethodHandle COMPARE_VARCHAR_CONSTANT;
+    private static final MethodHandle COMPARE_VARCHAR_COLUMNS;
+
+    private static final MethodHandle TO_TRI;
+    private static final MethodHandle TO_TRI_NULLABLE;
+    private static final MethodHandle AND;
+    private static final MethodHandle OR;
+    private static final MethodHandle NOT;
+    private static final MethodHandle IS_UNKNOWN;
+    private static final MethodHandle EITHER_NULL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            LONG_VALUE = lookup.findStatic(RowCompiler.class, "longValue", methodType(long.class, int.class, Column[].class, int.class));
+            IS_NULL = lookup.findStatic(RowCompiler.class, "isNull", methodType(boolean.class, int.class, Column[].class, int.class));
+            COMPARE_VARCHAR_CONSTANT = lookup.findStatic(RowCompiler.class, "compareVarchar", methodType(int.class, int.class, byte[].class, Column[].class, int.class));
+            COMPARE_VARCHAR_COLUMNS = lookup.findStatic(RowCompiler.class, "compareVarchar", methodType(int.class, int.class, int.class, Column[].class, int.class));
+
+            TO_TRI = lookup.findStatic(RowCompiler.class, "toTri", methodType(int.class, boolean.class));
+            TO_TRI_NULLABLE = lookup.findStatic(RowCompiler.class, "toTri", methodType(int.class, boolean.class, boolean.class));
+            AND = lookup.findStatic(Math.class, "min", methodType(int.class, int.class, int.class));
+            OR = lookup.findStatic(Math.class, "max", methodType(int.class, int.class, int.class));
+            NOT = lookup.findStatic(RowCompiler.class, "not", methodType(int.class, int.class));
+            IS_UNKNOWN = lookup.findStatic(RowCompiler.class, "isUnknown", methodType(int.class, int.class));
+            EITHER_NULL = lookup.findStatic(RowCompiler.class, "eitherNull", methodType(boolean.class, boolean.class, boolean.class));
+        }
+        catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @param value {@code (Column[], int)long}
+     * @param isNull {@code (Column[], int)boolean}
+     * @param mayBeNull false if {@code isNull} always returns false
+     */
+    record LongCode(MethodHandle value, MethodHandle isNull, boolean mayBeNull) {}
+
+    private final List<ColumnLayout> layout;
+
+    RowCompiler(List<ColumnLayout> layout)
+    {
+        this.layout = List.copyOf(layout);
+    }
+
+    /**
+     * @return {@code (Column[], int)int} in three-valued logic
+     */
+    MethodHandle compileBoolean(Expression expression)
+    {
+        checkArgument(expression.type() == Type.BOOLEAN, "Expected BOOLEAN expression: %s", expression);
+
+        return switch (expression) {
+            case Constant constant -> rowConstant(int.class, constant.value() == null ? UNKNOWN : (Boolean) constant.value() ? TRUE : FALSE);
+            case Comparison comparison -> compileComparison(comparison);
+            case Logical logical -> {
+                MethodHandle combiner = switch (logical.operator()) {
+                    case AND -> AND;
+                    case OR -> OR;
+                };
+
+                MethodHandle result = compileBoolean(logical.terms().get(0));
+                for (int i = 1; i < logical.terms().size(); i++) {
+                    result = combine(combiner, result, compileBoolean(logical.terms().get(i)));
+                }
+                yield result;
+            }
+            case Not not -> MethodHandles.filterReturnValue(compileBoolean(not.value()), NOT);
+            case IsNull isNull -> compileIsNull(isNull.value());
+            case ColumnReference reference -> throw new IllegalArgumentException("BOOLEAN columns are not supported: " + reference);
+            case Arithmetic arithmetic -> throw new IllegalArgumentException("Not a BOOLEAN expression: " + arithmetic);
+        };
+    }
+
+    LongCode compileLong(Expression expression)
+    {
+        checkArgument(expression.type() == Type.BIGINT, "Expected BIGINT expression: %s", expression);
+
+        return switch (expression) {
+            case Constant constant -> new LongCode(
+                    rowConstant(long.class, constant.value() == null ? 0L : (Long) constant.value()),
+                    rowConstant(boolean.class, constant.value() == null),
+                    constant.value() == null);
+            case ColumnReference reference -> {
+                ColumnLayout column = column(reference);
+                yield new LongCode(
+                        MethodHandles.insertArguments(LONG_VALUE, 0, reference.column()),
+                        columnIsNull(reference),
+                        column.mayHaveNull());
+            }
+            case Arithmetic arithmetic -> {
+                LongCode left = compileLong(arithmetic.left());
+                LongCode right = compileLong(arithmetic.right());
+
+                MethodHandle value = combine(arithmeticOperator(arithmetic.operator()), left.value(), right.value());
+                if (!left.mayBeNull() && !right.mayBeNull()) {
+                    yield new LongCode(value, rowConstant(boolean.class, false), false);
+                }
+                yield new LongCode(value, combine(EITHER_NULL, left.isNull(), right.isNull()), true);
+            }
+            default -> throw new IllegalArgumentException("Not a BIGINT expression: " + expression);
+        };
+    }
+
+    ColumnLayout column(ColumnReference reference)
+    {
+        checkArgument(reference.column() < layout.size(), "Invalid column %s for layout %s", reference.column(), layout);
+        ColumnLayout column = layout.get(reference.column());
+        checkArgument(column.type() == reference.type(), "Column %s is %s, not %s", reference.column(), column.type(), reference.type());
+        return column;
+    }
+
+    private MethodHandle compileComparison(Comparison comparison)
+    {
+        if (comparison.left().type() == Type.BIGINT) {
+            LongCode left = compileLong(comparison.left());
+            LongCode right = compileLong(comparison.right());
+
+            MethodHandle value = combine(comparisonOperator(comparison.operator()), left.value(), right.value());
+            if (!left.mayBeNull() && !right.mayBeNull()) {
+                return MethodHandles.filterReturnValue(value, TO_TRI);
+            }
+            return combine(TO_TRI_NULLABLE, value, combine(EITHER_NULL, left.isNull(), right.isNull()));
+        }
+
+        // VARCHAR: only column references and constants are supported as operands
+        Expression left = comparison.left();
+        Expression right = comparison.right();
+        ComparisonOperator operator = comparison.operator();
+        if (left instanceof Constant && right instanceof ColumnReference) {
+            left = comparison.right();
+            right = comparison.left();
+            operator = operator.flip();
+        }
+
+        if (left instanceof Constant leftConstant && right instanceof Constant rightConstant) {
+            if (leftConstant.value() == null || rightConstant.value() == null) {
+                return rowConstant(int.class, UNKNOWN);
+            }
+            int compare = Arrays.compareUnsigned(((String) leftConstant.value()).getBytes(UTF_8), ((String) rightConstant.value()).getBytes(UTF_8));
+            return rowConstant(int.class, evaluate(operator, compare) ? TRUE : FALSE);
+        }
+
+        checkArgument(left instanceof ColumnReference, "Unsupported VARCHAR operand: %s", left);
+        ColumnReference leftColumn = (ColumnReference) left;
+        column(leftColumn);
+
+        MethodHandle compare;
+        MethodHandle isNull;
+        boolean mayBeNull;
+        if (right instanceof Constant constant) {
+            if (constant.value() == null) {
+                return rowConstant(int.class, UNKNOWN);
+            }
+            compare = MethodHandles.insertArguments(COMPARE_VARCHAR_CONSTANT, 0, leftColumn.column(), ((String) constant.value()).getBytes(UTF_8));
+            isNull = columnIsNull(leftColumn);
+            mayBeNull = column(leftColumn).mayHaveNull();
+        }
+        else if (right instanceof ColumnReference rightColumn) {
+            column(rightColumn);
+            compare = MethodHandles.insertArguments(COMPARE_VARCHAR_COLUMNS, 0, leftColumn.column(), rightColumn.column());
+            isNull = combine(EITHER_NULL, columnIsNull(leftColumn), columnIsNull(rightColumn));
+            mayBeNull = column(leftColumn).mayHaveNull() || column(rightColumn).mayHaveNull();
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported VARCHAR operand: " + right);
+        }
+
+        MethodHandle value = MethodHandles.filterReturnValue(compare, compareResultOperator(operator));
+        if (!mayBeNull) {
+            return MethodHandles.filterReturnValue(value, TO_TRI);
+        }
+        return combine(TO_TRI_NULLABLE, value, isNull);
+    }
+
+    private MethodHandle compileIsNull(Expression value)
+    {
+        return switch (value.type()) {
+            case BOOLEAN -> MethodHandles.filterReturnValue(compileBoolean(value), IS_UNKNOWN);
+            case BIGINT -> MethodHandles.filterReturnValue(compileLong(value).isNull(), TO_TRI);
+            case VARCHAR -> switch (value) {
+                case Constant constant -> rowConstant(int.class, constant.value() == null ? TRUE : FALSE);
+                case ColumnReference reference -> {
+                    column(reference);
+                    yield MethodHandles.filterReturnValue(columnIsNull(reference), TO_TRI);
+                }
+                default -> throw new IllegalArgumentException("Unsupported VARCHAR expression: " + value);
+            };
+        };
+    }
+
+    private MethodHandle columnIsNull(ColumnReference reference)
+    {
+        if (!column(reference).mayHaveNull()) {
+            return rowConstant(boolean.class, false);
+        }
+        return MethodHandles.insertArguments(IS_NULL, 0, reference.column());
+    }
+
+    /**
+     * Applies {@code function} to the results of the row handles {@code arguments},
+     * producing a {@code (Column[], int)} handle.
+     */
+    static MethodHandle combine(MethodHandle function, MethodHandle... arguments)
+    {
+        MethodHandle result = function;
+        for (int i = arguments.length - 1; i >= 0; i--) {
+            result = MethodHandles.collectArguments(result, i, arguments[i]);
+        }
+
+        int[] reorder = new int[arguments.length * 2];
+        for (int i = 0; i < arguments.length; i++) {
+            reorder[i * 2] = 0;
+            reorder[i * 2 + 1] = 1;
+        }
+        return MethodHandles.permuteArguments(result, ROW_TYPE.changeReturnType(function.type().returnType()), reorder);
+    }
+
+    static MethodHandle rowConstant(Class<?> type, Object value)
+    {
+        return MethodHandles.dropArguments(MethodHandles.constant(type, value), 0, ROW_TYPE.parameterList());
+    }
+
+    /**
+     * @return {@code (long, long)boolean}
+     */
+    static MethodHandle comparisonOperator(ComparisonOperator operator)
+    {
+        String name = switch (operator) {
+            case EQUAL -> "equal";
+            case NOT_EQUAL -> "notEqual";
+            case LESS_THAN -> "lessThan";
+            case LESS_THAN_OR_EQUAL -> "lessThanOrEqual";
+            case GREATER_THAN -> "greaterThan";
+            case GREATER_THAN_OR_EQUAL -> "greaterThanOrEqual";
+        };
+
+        try {
+            return MethodHandles.lookup().findStatic(RowCompiler.class, name, methodType(boolean.class, long.class, long.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return {@code (int)boolean} that applies the operator to the result of a three-way comparison
+     */
+    static MethodHandle compareResultOperator(ComparisonOperator operator)
+    {
+        return MethodHandles.explicitCastArguments(
+                MethodHandles.insertArguments(comparisonOperator(operator), 1, 0L),
+                methodType(boolean.class, int.class));
+    }
+
+    /**
+     * @return {@code (long, long)long}
+     */
+    static MethodHandle arithmeticOperator(Expression.ArithmeticOperator operator)
+    {
+        String name = switch (operator) {
+            case ADD -> "add";
+            case SUBTRACT -> "subtract";
+            case MULTIPLY -> "multiply";
+        };
+
+        try {
+            return MethodHandles.lookup().findStatic(RowCompiler.class, name, methodType(long.class, long.class, long.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static boolean evaluate(ComparisonOperator operator, int compare)
+    {
+        return switch (operator) {
+            case EQUAL -> compare == 0;
+            case NOT_EQUAL -> compare != 0;
+            case LESS_THAN -> compare < 0;
+            case LESS_THAN_OR_EQUAL -> compare <= 0;
+            case GREATER_THAN -> compare > 0;
+            case GREATER_THAN_OR_EQUAL -> compare >= 0;
+        };
+    }
+
+    private static long longValue(int column, Column[] columns, int position)
+    {
+        return ((LongColumn) columns[column]).values()[position];
+    }
+
+    private static boolean isNull(int column, Column[] columns, int position)
+    {
+        return columns[column].nulls()[position] != 0;
+    }
+
+    private static int compareVarchar(int column, byte[] value, Column[] columns, int position)
+    {
+        VarcharColumn varchar = (VarcharColumn) columns[column];
+        int[] offsets = varchar.offsets();
+        return Arrays.compareUnsigned(varchar.values(), offsets[position], offsets[position + 1], value, 0, value.length);
+    }
+
+    private static int compareVarchar(int left, int right, Column[] columns, int position)
+    {
+        VarcharColumn leftColumn = (VarcharColumn) columns[left];
+        VarcharColumn rightColumn = (VarcharColumn) columns[right];
+        int[] leftOffsets = leftColumn.offsets();
+        int[] rightOffsets = rightColumn.offsets();
+        return Arrays.compareUnsigned(
+                leftColumn.values(), leftOffsets[position], leftOffsets[position + 1],
+                rightColumn.values(), rightOffsets[position], rightOffsets[position + 1]);
+    }
+
+    private static int toTri(boolean value)
+    {
+        return value ? TRUE : FALSE;
+    }
+
+    private static int toTri(boolean value, boolean isNull)
+    {
+        return isNull ? UNKNOWN : (value ? TRUE : FALSE);
+    }
+
+    private static int not(int value)
+    {
+        return TRUE - value;
+    }
+
+    private static int isUnknown(int value)
+    {
+        return value == UNKNOWN ? TRUE : FALSE;
+    }
+
+    private static boolean eitherNull(boolean left, boolean right)
+    {
+        return left | right;
+    }
+
+    private static boolean equal(long a, long b)
+    {
+        return a == b;
+    }
+
+    private static boolean notEqual(long a, long b)
+    {
+        return a != b;
+    }
+
+    private static boolean lessThan(long a, long b)
+    {
+        return a < b;
+    }
+
+    private static boolean lessThanOrEqual(long a, long b)
+    {
+        return a <= b;
+    }
+
+    private static boolean greaterThan(long a, long b)
+    {
+        return a > b;
+    }
+
+    private static boolean greaterThanOrEqual(long a, long b)
+    {
+        return a >= b;
+    }
+
+    private static long add(long a, long b)
+    {
+        return a + b;
+    }
+
+    private static long subtract(long a, long b)
+    {
+        return a - b;
+    }
+
+    private static long multiply(long a, long b)
+    {
+        return a * b;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.expression;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Set of selected positions in a batch that can be held as a list of positions
+ * (ColumnarActivePositionsNoNulls), a byte mask (ColumnarNoNulls) or a bitmap (ColumnarNoNullsBM).
+ * <p>
+ * After each conjunct the selection picks the representation the next conjunct should use based on
+ * the fraction of rows still selected: positions when few rows are left, so work is proportional to the
+ * selected rows, the byte mask when most rows are selected, so the loop is dense and branch free, and the
+ * bitmap in between. Conversions happen lazily, when a representation other than the current one is requested.
+ * <p>
+ * The default thresholds come from BenchmarkSelectionVector. The BIGINT mask and bitmap kernels in
+ * {@link FilterKernels} are vectorized and cost about the same per row, but the bitmap kernel skips empty words,
+ * so the bitmap wins in the middle. Below 5% the positions kernel only touches the rows that are left and wins.
+ * Above 60% the mask wins because turning it into positions is a branch free loop, while the bitmap has to visit
+ * every set bit.
+ * <p>
+ * The arrays are allocated once for the maximum batch size and reused across batches.
+ */
+public final class SelectionVector
+{
+    public static final double DEFAULT_SPARSE_THRESHOLD = 0.05;
+    public static final double DEFAULT_DENSE_THRESHOLD = 0.6;
+
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    public enum Representation
+    {
+        POSITIONS,
+        MASK,
+        BITMAP
+    }
+
+    private final int[] positions;
+    private final byte[] mask;
+    private final long[] bitmap;
+
+    private final double sparseThreshold;
+    private final double denseThreshold;
+    private final Representation fixed;
+
+    private int positionCount;
+    private int count;
+
+    // representation that holds the current selection, plus which others are still in sync with it
+    private Representation current;
+    private boolean positionsValid;
+    private boolean maskValid;
+    private boolean bitmapValid;
+
+    public SelectionVector(int capacity)
+    {
+        this(capacity, DEFAULT_SPARSE_THRESHOLD, DEFAULT_DENSE_THRESHOLD, null);
+    }
+
+    public SelectionVector(int capacity, double sparseThreshold, double denseThreshold)
+    {
+        this(capacity, sparseThreshold, denseThreshold, null);
+    }
+
+    /**
+     * Selection that always uses the given representation
+     */
+    public SelectionVector(int capacity, Representation representation)
+    {
+        this(capacity, DEFAULT_SPARSE_THRESHOLD, DEFAULT_DENSE_THRESHOLD, requireNonNull(representation, "representation is null"));
+    }
+
+    private SelectionVector(int capacity, double sparseThreshold, double denseThreshold, Representation fixed)
+    {
+        checkArgument(capacity >= 0, "capacity is negative");
+        checkArgument(sparseThreshold <= denseThreshold, "sparseThreshold must not be greater than denseThreshold");
+
+        this.positions = new int[capacity];
+        this.mask = new byte[capacity];
+        this.bitmap = new long[words(capacity)];
+        this.sparseThreshold = sparseThreshold;
+        this.denseThreshold = denseThreshold;
+        this.fixed = fixed;
+    }
+
+    /**
+     * Selects all positions of a batch of {@code positionCount} rows
+     */
+    public void selectAll(int positionCount)
+    {
+        checkArgument(positionCount <= positions.length, "positionCount %s exceeds capacity %s", positionCount, positions.length);
+        this.positionCount = positionCount;
+        this.count = positionCount;
+
+        current = preferred();
+        switch (current) {
+            case POSITIONS -> {
+                for (int i = 0; i < positionCount; i++) {
+                    positions[i] = i;
+                }
+            }
+            case MASK -> Arrays.fill(mask, 0, positionCount, (byte) 1);
+            case BITMAP -> {
+                int words = words(positionCount);
+                Arrays.fill(bitmap, 0, words, -1L);
+                clearTail();
+            }
+        }
+        invalidateOthers();
+    }
+
+    public int positionCount()
+    {
+        return positionCount;
+    }
+
+    public int count()
+    {
+        return count;
+    }
+
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    public Representation current()
+    {
+        return current;
+    }
+
+    /**
+     * Representation the next operation over this selection should use
+     */
+    public Representation preferred()
+    {
+        if (fixed != null) {
+            return fixed;
+        }
+
+        double selectivity = positionCount == 0 ? 0 : (double) count / positionCount;
+        if (selectivity < sparseThreshold) {
+            return Representation.POSITIONS;
+        }
+        if (selectivity >= denseThreshold) {
+            return Representation.MASK;
+        }
+        return Representation.BITMAP;
+    }
+
+    /**
+     * The first {@link #count()} entries are the selected positions, in increasing order
+     */
+    public int[] positions()
+    {
+        if (!positionsValid) {
+            switch (current) {
+                case MASK -> maskToPositions();
+                case BITMAP -> bitmapToPositions();
+                case POSITIONS -> throw new IllegalStateException();
+            }
+            positionsValid = true;
+        }
+        return positions;
+    }
+
+    /**
+     * The first {@link #positionCount()} entries are 1 for selected positions and 0 otherwise
+     */
+    public byte[] mask()
+    {
+        if (!maskValid) {
+            switch (current) {
+                case POSITIONS -> positionsToMask();
+                case BITMAP -> bitmapToMask();
+                case MASK -> throw new IllegalStateException();
+            }
+            maskValid = true;
+        }
+        return mask;
+    }
+
+    /**
+     * Bit {@code i % 64} of word {@code i / 64} is set for selected positions. Bits past {@link #positionCount()} are clear.
+     */
+    public long[] bitmap()
+    {
+        if (!bitmapValid) {
+            switch (current) {
+                case POSITIONS -> positionsToBitmap();
+                case MASK -> maskToBitmap();
+                case BITMAP -> throw new IllegalStateException();
+            }
+            bitmapValid = true;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Records that the array returned by {@link #positions()} was updated in place, leaving {@code count} positions selected
+     */
+    public void positionsUpdated(int count)
+    {
+        update(Representation.POSITIONS, count);
+    }
+
+    public void maskUpdated(int count)
+    {
+        update(Representation.MASK, count);
+    }
+
+    public void bitmapUpdated(int count)
+    {
+        update(Representation.BITMAP, count);
+    }
+
+    private void update(Representation representation, int count)
+    {
+        checkArgument(count >= 0 && count <= this.count, "invalid count %s", count);
+        this.count = count;
+        this.current = representation;
+        invalidateOthers();
+    }
+
+    private void invalidateOthers()
+    {
+        positionsValid = current == Representation.POSITIONS;
+        maskValid = current == Representation.MASK;
+        bitmapValid = current == Representation.BITMAP;
+    }
+
+    private void maskToPositions()
+    {
+        int output = 0;
+        int position = 0;
+        // a sparse mask is turned into words 64 bytes at a time and only the set bits are visited, as in bitmapToPositions.
+        // When a third or more is set, the branch free loop over every byte is faster.
+        if (count * 3 < positionCount) {
+            for (; position + 64 <= positionCount; position += 64) {
+                long bits = maskWord(position);
+                while (bits != 0) {
+                    positions[output] = position + Long.numberOfTrailingZeros(bits);
+                    output++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        for (; position < positionCount; position++) {
+            positions[output] = position;
+            output += mask[position];
+        }
+    }
+
+    private void bitmapToPositions()
+    {
+        int output = 0;
+        for (int word = 0; word < words(positionCount); word++) {
+            long bits = bitmap[word];
+            int base = word * 64;
+            while (bits != 0) {
+                positions[output] = base + Long.numberOfTrailingZeros(bits);
+                output++;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private void positionsToMask()
+    {
+        Arrays.fill(mask, 0, positionCount, (byte) 0);
+        for (int i = 0; i < count; i++) {
+            mask[positions[i]] = 1;
+        }
+    }
+
+    private void bitmapToMask()
+    {
+        int position = 0;
+        for (; position + 64 <= positionCount; position += 64) {
+            long bits = bitmap[position >>> 6];
+            for (int lane = 0; lane < 64; lane += BYTE_SPECIES.length()) {
+                ByteVector.zero(BYTE_SPECIES)
+                        .blend((byte) 1, VectorMask.fromLong(BYTE_SPECIES, bits >>> lane))
+                        .intoArray(mask, position + lane);
+            }
+        }
+        for (; position < positionCount; position++) {
+            mask[position] = (byte) ((bitmap[position >>> 6] >>> position) & 1);
+        }
+    }
+
+    private void positionsToBitmap()
+    {
+        Arrays.fill(bitmap, 0, words(positionCount), 0);
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            bitmap[position >>> 6] |= 1L << position;
+        }
+    }
+
+    private void maskToBitmap()
+    {
+        int word = 0;
+        for (; (word + 1) * 64 <= positionCount; word++) {
+            bitmap[word] = maskWord(word * 64);
+        }
+        for (; word < words(positionCount); word++) {
+            int base = word * 64;
+            int end = Math.min(base + 64, positionCount);
+            long bits = 0;
+            for (int position = base; position < end; position++) {
+                bits |= (long) mask[position] << (position - base);
+            }
+            bitmap[word] = bits;
+        }
+    }
+
+    /**
+     * @return bit {@code i} set if mask entry {@code start + i} is set
+     */
+    private long maskWord(int start)
+    {
+        long bits = 0;
+        for (int lane = 0; lane < 64; lane += BYTE_SPECIES.length()) {
+            bits |= ByteVector.fromArray(BYTE_SPECIES, mask, start + lane)
+                    .compare(VectorOperators.NE, (byte) 0)
+                    .toLong() << lane;
+        }
+        return bits;
+    }
+
+    private void clearTail()
+    {
+        int remainder = positionCount & 63;
+        if (remainder != 0) {
+            bitmap[positionCount >>> 6] &= (1L << remainder) - 1;
+        }
+    }
+
+    static int words(int positionCount)
+    {
+        return (positionCount + 63) >>> 6;
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.Math.toIntExact;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Reads some columns of a {@link ColumnarFile} in batches of a fixed number of rows, so a file of any size goes
+ * through the kernels in pieces that fit in the cache.
+ * <p>
+ * There are two batches. While the caller works on one, the other is filled with the next rows on
+ * {@code prefetchExecutor}, typically a single background thread, so reading overlaps with evaluation. With a
+ * direct executor the batches are filled in the calling thread.
+ * <p>
+ * {@link RangePredicate}s prune batches with the min/max statistics of the chunks they cover, before the rows are
+ * read. A batch in which no value of some predicate is in range is skipped, and a batch in which every value of a
+ * predicate is in range is returned with {@link Batch#alwaysTrue} set, so the kernel can leave that conjunct out.
+ * The statistics are per chunk, so batch sizes that are a multiple of the chunk size prune best.
+ * <p>
+ * The file must stay open until the reader is closed, since a prefetch can still be reading it. {@link #close}
+ * cancels the prefetch and waits for it if it already started.
+ * <pre>{@code
+ * try (BatchReader reader = new BatchReader(file, List.of("quantity", "shipdate"), 16 * 1024, Output.ARRAYS, executor)) {
+ *     for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+ *         // batch.positionCount() rows in batch.longs(0), batch.bytes(1) and batch.offsets(1)
+ *     }
+ * }
+ * }</pre>
+ */
+public class BatchReader
+        implements AutoCloseable
+{
+    public static final int MIN_BATCH_SIZE = 1024;
+    public static final int MAX_BATCH_SIZE = 64 * 1024;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
+    public enum Output
+    {
+        /**
+         * Fixed width columns are views of the mapped file, which the prefetch loads into memory. VARCHAR
+         * columns are copied to arrays, since a batch can span chunks.
+         */
+        SEGMENTS,
+        /**
+         * All columns are copied to arrays that are reused from batch to batch
+         */
+        ARRAYS,
+    }
+
+    private final ColumnarFile file;
+    private final int[] columns;
+    private final ColumnType[] types;
+    private final int batchSize;
+    private final Output output;
+    private final ExecutorService prefetchExecutor;
+
+    private final List<RangePredicate> predicates;
+    private final int[] predicateColumns;
+    private long prunedRows;
+
+    private final Batch[] batches = new Batch[2];
+    private int current;
+    // filling of the next batch, or null after the last one
+    private Future<Batch> pending;
+    private Fill pendingFill;
+
+    public BatchReader(ColumnarFile file, List<String> columnNames, int batchSize, Output output, ExecutorService prefetchExecutor)
+    {
+        this(file, columnNames, batchSize, output, List.of(), prefetchExecutor);
+    }
+
+    public BatchReader(ColumnarFile file, List<String> columnNames, int batchSize, Output output, List<RangePredicate> predicates, ExecutorService prefetchExecutor)
+    {
+        checkArgument(batchSize >= MIN_BATCH_SIZE && batchSize <= MAX_BATCH_SIZE, "batchSize must be between %s and %s", MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+        this.file = file;
+        this.batchSize = batchSize;
+        this.output = output;
+        this.prefetchExecutor = prefetchExecutor;
+
+        columns = new int[columnNames.size()];
+        types = new ColumnType[columnNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = file.columnIndex(columnNames.get(i));
+            types[i] = file.columns().get(columns[i]).type();
+        }
+
+        this.predicates = List.copyOf(predicates);
+        predicateColumns = new int[predicates.size()];
+        for (int i = 0; i < predicateColumns.length; i++) {
+            predicateColumns[i] = file.columnIndex(predicates.get(i).column());
+        }
+
+        batches[0] = new Batch(columns.length, predicates.size());
+        batches[1] = new Batch(columns.length, predicates.size());
+        current = 1;
+        prefetch(0);
+    }
+
+    /**
+     * @return the next batch, which stays valid until the following call, or null after the last batch
+     */
+    public Batch next()
+    {
+        if (pending == null) {
+            return null;
+        }
+
+        Batch batch;
+        try {
+            batch = pending.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+
+        // the batch returned by the previous call is free again
+        current = 1 - current;
+        prefetch(batch.firstRow() + batch.positionCount());
+        return batch;
+    }
+
+    /**
+     * Cancels the prefetch, or waits for it to finish if it already started, so the file is no longer read
+     * once this returns. {@link #next} returns null afterwards.
+     */
+    @Override
+    public void close()
+    {
+        if (pending == null) {
+            return;
+        }
+        pending.cancel(false);
+        try {
+            pendingFill.stop();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        finally {
+            pending = null;
+            pendingFill = null;
+        }
+    }
+
+    /**
+     * @return rows skipped so far because a predicate matched none of them
+     */
+    public long prunedRows()
+    {
+        return prunedRows;
+    }
+
+    private void prefetch(long firstRow)
+    {
+        Batch batch = batches[1 - current];
+        while (firstRow < file.rowCount() && !prune(batch, firstRow)) {
+            long rows = Math.min(batchSize, file.rowCount() - firstRow);
+            prunedRows += rows;
+            firstRow += rows;
+        }
+
+        if (firstRow >= file.rowCount()) {
+            pending = null;
+            pendingFill = null;
+            return;
+        }
+        pendingFill = new Fill(batch, firstRow);
+        pending = prefetchExecutor.submit(pendingFill);
+    }
+
+    /**
+     * Sets which predicates are always true for the rows of the batch starting at {@code firstRow}
+     *
+     * @return false if the batch can be skipped
+     */
+    private boolean prune(Batch batch, long firstRow)
+    {
+        long lastRow = Math.min(firstRow + batchSize, file.rowCount()) - 1;
+        int firstChunk = toIntExact(firstRow / file.rowsPerChunk());
+        int lastChunk = toIntExact(lastRow / file.rowsPerChunk());
+
+        for (int i = 0; i < predicateColumns.length; i++) {
+            ColumnMetadata column = file.columns().get(predicateColumns[i]);
+            RangePredicate.Match match = predicates.get(i).match(column.type(), column.chunks().get(firstChunk));
+            for (int chunk = firstChunk + 1; chunk <= lastChunk && match != RangePredicate.Match.SOME; chunk++) {
+                match = match.combine(predicates.get(i).match(column.type(), column.chunks().get(chunk)));
+            }
+
+            if (match == RangePredicate.Match.NONE) {
+                return false;
+            }
+            batch.alwaysTrue[i] = match == RangePredicate.Match.ALL;
+        }
+        return true;
+    }
+
+    private Batch fill(Batch batch, long firstRow)
+    {
+        int rows = (int) Math.min(batchSize, file.rowCount() - firstRow);
+        batch.firstRow = firstRow;
+        batch.positionCount = rows;
+
+        for (int i = 0; i < columns.length; i++) {
+            ColumnType type = types[i];
+            if (type == ColumnType.VARCHAR) {
+                fillVarchar(batch, i, firstRow, rows);
+                continue;
+            }
+
+            MemorySegment values = file.column(columns[i]).asSlice(firstRow * type.fixedWidth(), (long) rows * type.fixedWidth());
+            if (output == Output.SEGMENTS) {
+                values.load();
+                batch.segments[i] = values;
+            }
+            else if (type == ColumnType.BIGINT) {
+                batch.longs[i] = ensureCapacity(batch.longs[i], rows);
+                MemorySegment.copy(values, LONG, 0, batch.longs[i], 0, rows);
+            }
+            else {
+                batch.ints[i] = ensureCapacity(batch.ints[i], rows);
+                MemorySegment.copy(values, INT, 0, batch.ints[i], 0, rows);
+            }
+        }
+        return batch;
+    }
+
+    private void fillVarchar(Batch batch, int column, long firstRow, int rows)
+    {
+        int[] offsets = ensureCapacity(batch.offsets[column], rows + 1);
+        byte[] bytes = batch.bytes[column] == null ? new byte[0] : batch.bytes[column];
+
+        int row = 0;
+        int size = 0;
+        while (row < rows) {
+            long fileRow = firstRow + row;
+            int chunk = toIntExact(fileRow / file.rowsPerChunk());
+            int start = (int) (fileRow - (long) chunk * file.rowsPerChunk());
+            int end = Math.min(file.chunkRowCount(chunk), start + rows - row);
+
+            MemorySegment chunkOffsets = file.offsets(columns[column], chunk);
+            int base = chunkOffsets.getAtIndex(INT, start);
+            int length = chunkOffsets.getAtIndex(INT, end) - base;
+            for (int i = start; i < end; i++) {
+                offsets[row++] = size + chunkOffsets.getAtIndex(INT, i) - base;
+            }
+
+            if (bytes.length < size + length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+            }
+            MemorySegment.copy(file.values(columns[column], chunk), JAVA_BYTE, base, bytes, size, length);
+            size += length;
+        }
+        offsets[rows] = size;
+
+        batch.offsets[column] = offsets;
+        batch.bytes[column] = bytes;
+    }
+
+    /**
+     * Fills a batch, unless it is stopped before it starts. The executor may not drop a cancelled task, and a
+     * cancelled future does not tell whether the task is still running, so the task tracks that itself.
+     */
+    private final class Fill
+            implements Callable<Batch>
+    {
+        private final Batch batch;
+        private final long firstRow;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private Fill(Batch batch, long firstRow)
+        {
+            this.batch = batch;
+            this.firstRow = firstRow;
+        }
+
+        @Override
+        public Batch call()
+        {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return fill(batch, firstRow);
+            }
+            finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Keeps the fill from starting, or waits for it to finish
+         */
+        void stop()
+                throws InterruptedException
+        {
+            if (!started.compareAndSet(false, true)) {
+                finished.await();
+            }
+        }
+    }
+
+    private static long[] ensureCapacity(long[] array, int size)
+    {
+        return array != null && array.length >= size ? array : new long[size];
+    }
+
+    private static int[] ensureCapacity(int[] array, int size)
+    {
+        return array != null && array.length >= size ? array : new int[size];
+    }
+
+    /**
+     * Rows {@code firstRow} to {@code firstRow + positionCount} of the columns of the reader, in the order they
+     * were given. The arrays can be longer than the batch.
+     */
+    public static final class Batch
+    {
+        private long firstRow;
+        private int positionCount;
+
+        private final MemorySegment[] segments;
+        private final long[][] longs;
+        private final int[][] ints;
+        private final byte[][] bytes;
+        private final int[][] offsets;
+
+        private final boolean[] alwaysTrue;
+
+        private Batch(int columns, int predicates)
+        {
+            segments = new MemorySegment[columns];
+            longs = new long[columns][];
+            ints = new int[columns][];
+            bytes = new byte[columns][];
+            offsets = new int[columns][];
+            alwaysTrue = new boolean[predicates];
+        }
+
+        public long firstRow()
+        {
+            return firstRow;
+        }
+
+        /**
+         * @return whether every row of the batch is in the range of the predicate, by its position in the list
+         * given to the reader
+         */
+        public boolean alwaysTrue(int predicate)
+        {
+            return alwaysTrue[predicate];
+        }
+
+        public int positionCount()
+        {
+            return positionCount;
+        }
+
+        /**
+         * @return the values of a fixed width column, with {@link Output#SEGMENTS}
+         */
+        public MemorySegment segment(int column)
+        {
+            return segments[column];
+        }
+
+        /**
+         * @return the values of a BIGINT column, with {@link Output#ARRAYS}
+         */
+        public long[] longs(int column)
+        {
+            return longs[column];
+        }
+
+        /**
+         * @return the values of an INTEGER column, with {@link Output#ARRAYS}
+         */
+        public int[] ints(int column)
+        {
+            return ints[column];
+        }
+
+        /**
+         * @return the bytes of a VARCHAR column
+         */
+        public byte[] bytes(int column)
+        {
+            return bytes[column];
+        }
+
+        /**
+         * @return the start of each value of a VARCHAR column in {@link #bytes}, followed by the end of the last one
+         */
+        public int[] offsets(int column)
+        {
+            return offsets[column];
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+/**
+ * Location and statistics of the values of one column in one chunk of rows. {@code min} and {@code max} are set
+ * for fixed width columns, and {@code minValue} and {@code maxValue} for VARCHAR columns.
+ *
+ * @param offset position of the chunk in the file, a multiple of {@link ColumnarFile#ALIGNMENT}
+ * @param length bytes in the chunk, not counting the padding after it
+ */
+public record ChunkMetadata(long offset, long length, long min, long max, byte[] minValue, byte[] maxValue)
+{
+}
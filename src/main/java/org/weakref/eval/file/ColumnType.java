@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+public enum ColumnType
+{
+    BIGINT(Long.BYTES),
+    INTEGER(Integer.BYTES),
+    /**
+     * A chunk holds {@code rows + 1} int offsets into the bytes, which follow at the next aligned offset
+     */
+    VARCHAR(0);
+
+    private final int fixedWidth;
+
+    ColumnType(int fixedWidth)
+    {
+        this.fixedWidth = fixedWidth;
+    }
+
+    public boolean isFixedWidth()
+    {
+        return fixedWidth > 0;
+    }
+
+    /**
+     * @return bytes per value of a fixed width type
+     */
+    public int fixedWidth()
+    {
+        return fixedWidth;
+    }
+}
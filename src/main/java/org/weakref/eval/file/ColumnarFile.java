@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.toIntExact;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Columnar file mapped into memory. Opening it reads only the footer, so it takes the same time for any file
+ * size, and the columns are read in place as {@link MemorySegment}s, without copying them to the heap.
+ * <p>
+ * The file is written by {@link ColumnarFileWriter}:
+ * <pre>
+ * magic, padded to {@link #ALIGNMENT}
+ * for each column, for each chunk of rows: the values, padded to {@link #ALIGNMENT}
+ * footer: row count, rows per chunk, and for each column its name, type, and the offset, length and min/max of
+ *         each chunk
+ * footer length, magic
+ * </pre>
+ * Chunks of fixed width columns hold the values in little endian order. Since every chunk but the last is a whole
+ * number of aligned blocks, all the values of a fixed width column are also one contiguous segment, see
+ * {@link #column}.
+ */
+public class ColumnarFile
+        implements AutoCloseable
+{
+    static final byte[] MAGIC = "EVALCOL1".getBytes(UTF_8);
+    // cache line, and the widest vector register
+    public static final int ALIGNMENT = 64;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment data;
+
+    private final long rowCount;
+    private final int rowsPerChunk;
+    private final List<ColumnMetadata> columns;
+
+    private ColumnarFile(Arena arena, MemorySegment data)
+    {
+        this.arena = arena;
+        this.data = data;
+
+        long size = data.byteSize();
+        checkArgument(size >= 2L * MAGIC.length + Integer.BYTES && hasMagic(0) && hasMagic(size - MAGIC.length), "Not a columnar file");
+        int footerLength = data.get(INT, size - MAGIC.length - Integer.BYTES);
+        long position = size - MAGIC.length - Integer.BYTES - footerLength;
+
+        rowCount = data.get(LONG, position);
+        position += Long.BYTES;
+        rowsPerChunk = data.get(INT, position);
+        position += Integer.BYTES;
+        int columnCount = data.get(INT, position);
+        position += Integer.BYTES;
+
+        int chunkCount = toIntExact((rowCount + rowsPerChunk - 1) / rowsPerChunk);
+        ImmutableList.Builder<ColumnMetadata> columns = ImmutableList.builder();
+        for (int column = 0; column < columnCount; column++) {
+            byte[] name = readBytes(position);
+            position += Integer.BYTES + name.length;
+            ColumnType type = ColumnType.values()[data.get(JAVA_BYTE, position)];
+            position++;
+
+            ImmutableList.Builder<ChunkMetadata> chunks = ImmutableList.builder();
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long offset = data.get(LONG, position);
+                long length = data.get(LONG, position + Long.BYTES);
+                position += 2 * Long.BYTES;
+                if (type.isFixedWidth()) {
+                    chunks.add(new ChunkMetadata(offset, length, data.get(LONG, position), data.get(LONG, position + Long.BYTES), null, null));
+                    position += 2 * Long.BYTES;
+                }
+                else {
+                    byte[] minValue = readBytes(position);
+                    position += Integer.BYTES + minValue.length;
+                    byte[] maxValue = readBytes(position);
+                    position += Integer.BYTES + maxValue.length;
+                    chunks.add(new ChunkMetadata(offset, length, 0, 0, minValue, maxValue));
+                }
+            }
+            columns.add(new ColumnMetadata(new String(name, UTF_8), type, chunks.build()));
+        }
+        this.columns = columns.build();
+    }
+
+    /**
+     * Maps the file. The segments of the file can be used by any thread until it is closed.
+     */
+    public static ColumnarFile open(Path path)
+            throws IOException
+    {
+        Arena arena = Arena.openShared();
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return new ColumnarFile(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena.scope()));
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public long rowCount()
+    {
+        return rowCount;
+    }
+
+    public int rowsPerChunk()
+    {
+        return rowsPerChunk;
+    }
+
+    public int chunkCount()
+    {
+        return toIntExact((rowCount + rowsPerChunk - 1) / rowsPerChunk);
+    }
+
+    public int chunkRowCount(int chunk)
+    {
+        return (int) Math.min(rowsPerChunk, rowCount - (long) chunk * rowsPerChunk);
+    }
+
+    public List<ColumnMetadata> columns()
+    {
+        return columns;
+    }
+
+    public int columnIndex(String name)
+    {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column: " + name);
+    }
+
+    public ChunkMetadata chunk(int column, int chunk)
+    {
+        return columns.get(column).chunks().get(chunk);
+    }
+
+    /**
+     * @return all the values of a fixed width column
+     */
+    public MemorySegment column(int column)
+    {
+        ColumnType type = columns.get(column).type();
+        checkArgument(type.isFixedWidth(), "Column %s is not fixed width", columns.get(column).name());
+        if (rowCount == 0) {
+            return data.asSlice(0, 0);
+        }
+        return data.asSlice(chunk(column, 0).offset(), rowCount * type.fixedWidth());
+    }
+
+    /**
+     * @return the values of a fixed width column, or the bytes of a VARCHAR column, in the chunk
+     */
+    public MemorySegment values(int column, int chunk)
+    {
+        ChunkMetadata metadata = chunk(column, chunk);
+        if (columns.get(column).type().isFixedWidth()) {
+            return data.asSlice(metadata.offset(), metadata.length());
+        }
+        long bytesOffset = varcharBytesOffset(chunkRowCount(chunk));
+        return data.asSlice(metadata.offset() + bytesOffset, metadata.length() - bytesOffset);
+    }
+
+    /**
+     * @return the {@code rows + 1} int offsets of the values of a VARCHAR column into {@link #values}
+     */
+    public MemorySegment offsets(int column, int chunk)
+    {
+        checkArgument(columns.get(column).type() == ColumnType.VARCHAR, "Column %s is not VARCHAR", columns.get(column).name());
+        return data.asSlice(chunk(column, chunk).offset(), (chunkRowCount(chunk) + 1L) * Integer.BYTES);
+    }
+
+    /**
+     * Unmaps the file. Its segments cannot be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        arena.close();
+    }
+
+    private static long varcharBytesOffset(int rows)
+    {
+        return align((rows + 1L) * Integer.BYTES);
+    }
+
+    private static long align(long position)
+    {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private boolean hasMagic(long position)
+    {
+        return Arrays.equals(data.asSlice(position, MAGIC.length).toArray(JAVA_BYTE), MAGIC);
+    }
+
+    private byte[] readBytes(long position)
+    {
+        int length = data.get(INT, position);
+        return data.asSlice(position + Integer.BYTES, length).toArray(JAVA_BYTE);
+    }
+}
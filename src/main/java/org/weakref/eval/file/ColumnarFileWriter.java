@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.OutputStreamSliceOutput;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.weakref.eval.file.ColumnarFile.ALIGNMENT;
+import static org.weakref.eval.file.ColumnarFile.MAGIC;
+
+/**
+ * Writes columns of the same length to a file that {@link ColumnarFile} can map. The rows are split into chunks
+ * of {@code rowsPerChunk} rows, and each column is written chunk after chunk, every chunk at an aligned offset.
+ * <pre>{@code
+ * new ColumnarFileWriter(1024)
+ *         .addBigintColumn("quantity", quantity)
+ *         .addVarcharColumn("shipdate", shipDate, shipDateOffsets)
+ *         .write(path);
+ * }</pre>
+ */
+public class ColumnarFileWriter
+{
+    private final int rowsPerChunk;
+    private final List<Column> columns = new ArrayList<>();
+
+    /**
+     * @param rowsPerChunk a multiple of 16, so the chunks of a fixed width column fill whole aligned blocks and
+     * follow each other without padding
+     */
+    public ColumnarFileWriter(int rowsPerChunk)
+    {
+        checkArgument(rowsPerChunk > 0 && rowsPerChunk % 16 == 0, "rowsPerChunk must be a positive multiple of 16");
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    public ColumnarFileWriter addBigintColumn(String name, long[] values)
+    {
+        return add(new Column(name, ColumnType.BIGINT, values.length, values, null, null, null));
+    }
+
+    public ColumnarFileWriter addIntegerColumn(String name, int[] values)
+    {
+        return add(new Column(name, ColumnType.INTEGER, values.length, null, values, null, null));
+    }
+
+    /**
+     * @param offsets start of each value in {@code bytes}, followed by the end of the last one
+     */
+    public ColumnarFileWriter addVarcharColumn(String name, byte[] bytes, int[] offsets)
+    {
+        checkArgument(offsets.length > 0, "offsets is empty");
+        return add(new Column(name, ColumnType.VARCHAR, offsets.length - 1, null, null, bytes, offsets));
+    }
+
+    private ColumnarFileWriter add(Column column)
+    {
+        checkArgument(columns.stream().noneMatch(existing -> existing.name().equals(column.name())), "Duplicate column: %s", column.name());
+        checkArgument(columns.isEmpty() || columns.get(0).rows() == column.rows(), "Column %s has %s rows, expected %s", column.name(), column.rows(), columns.isEmpty() ? 0 : columns.get(0).rows());
+        columns.add(column);
+        return this;
+    }
+
+    public void write(Path path)
+            throws IOException
+    {
+        int rows = columns.isEmpty() ? 0 : columns.get(0).rows();
+        int chunkCount = (rows + rowsPerChunk - 1) / rowsPerChunk;
+
+        try (OutputStreamSliceOutput output = new OutputStreamSliceOutput(Files.newOutputStream(path))) {
+            output.writeBytes(MAGIC);
+            pad(output);
+
+            List<ColumnMetadata> metadata = new ArrayList<>();
+            for (Column column : columns) {
+                ImmutableList.Builder<ChunkMetadata> chunks = ImmutableList.builder();
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    int start = chunk * rowsPerChunk;
+                    int end = Math.min(start + rowsPerChunk, rows);
+                    chunks.add(writeChunk(output, column, start, end));
+                    pad(output);
+                }
+                metadata.add(new ColumnMetadata(column.name(), column.type(), chunks.build()));
+            }
+
+            long footerOffset = output.longSize();
+            output.writeLong(rows);
+            output.writeInt(rowsPerChunk);
+            output.writeInt(metadata.size());
+            for (ColumnMetadata column : metadata) {
+                writeBytes(output, column.name().getBytes(UTF_8));
+                output.writeByte(column.type().ordinal());
+                for (ChunkMetadata chunk : column.chunks()) {
+                    output.writeLong(chunk.offset());
+                    output.writeLong(chunk.length());
+                    if (column.type().isFixedWidth()) {
+                        output.writeLong(chunk.min());
+                        output.writeLong(chunk.max());
+                    }
+                    else {
+                        writeBytes(output, chunk.minValue());
+                        writeBytes(output, chunk.maxValue());
+                    }
+                }
+            }
+            output.writeInt((int) (output.longSize() - footerOffset));
+            output.writeBytes(MAGIC);
+        }
+    }
+
+    private static ChunkMetadata writeChunk(OutputStreamSliceOutput output, Column column, int start, int end)
+    {
+        long offset = output.longSize();
+        return switch (column.type()) {
+            case BIGINT -> {
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (int row = start; row < end; row++) {
+                    long value = column.longs()[row];
+                    output.writeLong(value);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                yield new ChunkMetadata(offset, output.longSize() - offset, min, max, null, null);
+            }
+            case INTEGER -> {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int row = start; row < end; row++) {
+                    int value = column.ints()[row];
+                    output.writeInt(value);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                yield new ChunkMetadata(offset, output.longSize() - offset, min, max, null, null);
+            }
+            case VARCHAR -> {
+                int[] offsets = column.offsets();
+                byte[] bytes = column.bytes();
+                int minRow = start;
+                int maxRow = start;
+                for (int row = start; row <= end; row++) {
+                    output.writeInt(offsets[row] - offsets[start]);
+                    if (row < end) {
+                        if (compare(bytes, offsets, row, minRow) < 0) {
+                            minRow = row;
+                        }
+                        if (compare(bytes, offsets, row, maxRow) > 0) {
+                            maxRow = row;
+                        }
+                    }
+                }
+                pad(output);
+                output.writeBytes(bytes, offsets[start], offsets[end] - offsets[start]);
+                yield new ChunkMetadata(
+                        offset,
+                        output.longSize() - offset,
+                        0,
+                        0,
+                        Arrays.copyOfRange(bytes, offsets[minRow], offsets[minRow + 1]),
+                        Arrays.copyOfRange(bytes, offsets[maxRow], offsets[maxRow + 1]));
+            }
+        };
+    }
+
+    private static int compare(byte[] bytes, int[] offsets, int left, int right)
+    {
+        return Arrays.compareUnsigned(bytes, offsets[left], offsets[left + 1], bytes, offsets[right], offsets[right + 1]);
+    }
+
+    private static void writeBytes(OutputStreamSliceOutput output, byte[] bytes)
+    {
+        output.writeInt(bytes.length);
+        output.writeBytes(bytes);
+    }
+
+    private static void pad(OutputStreamSliceOutput output)
+    {
+        while (output.longSize() % ALIGNMENT != 0) {
+            output.writeByte(0);
+        }
+    }
+
+    private record Column(String name, ColumnType type, int rows, long[] longs, int[] ints, byte[] bytes, int[] offsets)
+    {
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Range of values of a column that a conjunct keeps, for pruning chunks with their min/max statistics. BIGINT
+ * and INTEGER ranges include both bounds. VARCHAR ranges include the low bound and exclude the high bound, and
+ * compare bytes as unsigned, like the VARCHAR statistics. A null VARCHAR bound is open.
+ */
+public final class RangePredicate
+{
+    public enum Match
+    {
+        /**
+         * No value is in the range, so the rows can be skipped
+         */
+        NONE,
+        SOME,
+        /**
+         * Every value is in the range, so the conjunct does not need to be evaluated
+         */
+        ALL;
+
+        public Match combine(Match other)
+        {
+            return this == other ? this : SOME;
+        }
+    }
+
+    private final String column;
+    private final long low;
+    private final long high;
+    private final byte[] lowValue;
+    private final byte[] highValue;
+    private final boolean varchar;
+
+    private RangePredicate(String column, long low, long high, byte[] lowValue, byte[] highValue, boolean varchar)
+    {
+        this.column = requireNonNull(column, "column is null");
+        this.low = low;
+        this.high = high;
+        this.lowValue = lowValue == null ? null : lowValue.clone();
+        this.highValue = highValue == null ? null : highValue.clone();
+        this.varchar = varchar;
+    }
+
+    public static RangePredicate between(String column, long low, long high)
+    {
+        checkArgument(low <= high, "low is greater than high");
+        return new RangePredicate(column, low, high, null, null, false);
+    }
+
+    public static RangePredicate lessThan(String column, long value)
+    {
+        checkArgument(value > Long.MIN_VALUE, "Empty range");
+        return new RangePredicate(column, Long.MIN_VALUE, value - 1, null, null, false);
+    }
+
+    /**
+     * @param low inclusive, or null
+     * @param high exclusive, or null
+     */
+    public static RangePredicate varcharRange(String column, byte[] low, byte[] high)
+    {
+        return new RangePredicate(column, 0, 0, low, high, true);
+    }
+
+    public String column()
+    {
+        return column;
+    }
+
+    public Match match(ColumnType type, ChunkMetadata chunk)
+    {
+        checkArgument((type == ColumnType.VARCHAR) == varchar, "Predicate on %s does not apply to a %s column", column, type);
+        if (varchar) {
+            return match(chunk.minValue(), chunk.maxValue());
+        }
+        return match(chunk.min(), chunk.max());
+    }
+
+    private Match match(long min, long max)
+    {
+        if (max < low || min > high) {
+            return Match.NONE;
+        }
+        if (min >= low && max <= high) {
+            return Match.ALL;
+        }
+        return Match.SOME;
+    }
+
+    private Match match(byte[] min, byte[] max)
+    {
+        if ((highValue != null && Arrays.compareUnsigned(min, highValue) >= 0) || (lowValue != null && Arrays.compareUnsigned(max, lowValue) < 0)) {
+            return Match.NONE;
+        }
+        if ((lowValue == null || Arrays.compareUnsigned(min, lowValue) >= 0) && (highValue == null || Arrays.compareUnsigned(max, highValue) < 0)) {
+            return Match.ALL;
+        }
+        return Match.SOME;
+    }
+}
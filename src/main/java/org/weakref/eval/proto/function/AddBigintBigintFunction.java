@@ -13,17 +13,43 @@
  */
 package org.weakref.eval.proto.function;
 
-import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.mask.DenseMask;
 import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.RunLengthInt64Vector;
 
 public class AddBigintBigintFunction
 {
+    private static final BigintOperator ADD = BigintOperator.of(AddBigintBigintFunction.class, "add");
+
+    public void add(Int64Vector left, Int64Vector right, int count, Int64Vector output)
+    {
+        ADD.apply(left, right, count, output);
+    }
+
     public void add(Int64Vector left, Int64Vector right, Selection selection, Int64Vector output)
     {
-        selection.stream().forEach(i -> output.set(i, add(left.get(i), right.get(i))));
+        ADD.apply(left, right, selection, output);
     }
-    
-    public long add(long left, long right)
+
+    public void add(Int64Vector left, Int64Vector right, DenseMask selection, Int64Vector output)
+    {
+        ADD.apply(left, right, selection, output);
+    }
+
+    /**
+     * Adds once per run. The result has the same runs as {@code left}.
+     */
+    public RunLengthInt64Vector add(RunLengthInt64Vector left, long right)
+    {
+        long[] result = new long[left.runCount()];
+        for (int run = 0; run < result.length; run++) {
+            result[run] = add(left.value(run), right);
+        }
+        return new RunLengthInt64Vector(result, left.runEnds(), left.runCount());
+    }
+
+    public static long add(long left, long right)
     {
         return left + right;
     }
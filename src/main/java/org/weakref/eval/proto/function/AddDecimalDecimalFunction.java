@@ -13,24 +13,31 @@
  */
 package org.weakref.eval.proto.function;
 
-import org.weakref.eval.proto.vector.Int128Vector;
-import org.weakref.eval.proto.vector.Int128VectorView;
 import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int128Vector;
 
 public class AddDecimalDecimalFunction
 {
     public void add(Int128Vector left, Int128Vector right, Selection selection, Int128Vector output)
     {
-        Int128VectorView view = new Int128VectorView(output);
+        boolean overflow = false;
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            // the values at null positions are arbitrary, so an overflow there is not an error
+            overflow |= add(left, position, right, position, output, position) && !left.isNull(position) && !right.isNull(position);
+        }
 
-        selection.stream().forEach(i -> {
-            view.position(i);
-            add(left, i, right, i, view);
-        });
+        if (overflow) {
+            throw new ArithmeticException("Decimal overflow");
+        }
+        Nulls.propagate(left.nulls(), right.nulls(), positions, selection.size(), output.nulls());
     }
 
-    // TODO: view or vector+position ?
-    public void add(Int128Vector left, int leftPosition, Int128Vector right, int rightPosition, Int128VectorView output)
+    /**
+     * @return true if the result does not fit in DECIMAL(38)
+     */
+    public boolean add(Int128Vector left, int leftPosition, Int128Vector right, int rightPosition, Int128Vector output, int outputPosition)
     {
         long leftLow = left.low(leftPosition);
         long leftHigh = left.high(leftPosition);
@@ -38,10 +45,7 @@ public class AddDecimalDecimalFunction
         long rightLow = right.low(rightPosition);
         long rightHigh = right.high(rightPosition);
 
-        long resultLow = leftLow + rightLow;
-        long resultHigh = leftHigh + rightHigh;
-        // TODO: carry
-
-        output.set(resultLow, resultHigh);
+        boolean overflow = Int128Math.add(leftLow, leftHigh, rightLow, rightHigh, output, outputPosition);
+        return overflow | Int128Math.exceedsMaxPrecision(output.low(outputPosition), output.high(outputPosition));
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.core.VarcharRange;
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.DictionaryVector;
+import org.weakref.eval.proto.vector.VarcharVector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code lower <= value < upper}
+ * <p>
+ * Not thread safe: the results for the last dictionary and bounds are cached in the instance.
+ */
+public class BetweenVarcharFunction
+{
+    // per entry results for the last dictionary, reused while the input keeps the same dictionary
+    private VarcharVector cachedDictionary;
+    private byte[] cachedLower;
+    private byte[] cachedUpper;
+    private byte[] cachedResult;
+
+    public void between(VarcharVector value, byte[] lower, byte[] upper, Selection selection, BooleanVector output)
+    {
+        byte[] values = value.values();
+        int[] offsets = value.offsets();
+        boolean[] result = output.values();
+
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            result[position] = between(values, offsets[position], offsets[position + 1], lower, upper);
+        }
+    }
+
+    /**
+     * Only compares the positions set in the mask, since the comparison is too expensive to do for all of them
+     */
+    public void between(VarcharVector value, byte[] lower, byte[] upper, DenseMask selection, BooleanVector output)
+    {
+        byte[] values = value.values();
+        int[] offsets = value.offsets();
+        boolean[] mask = selection.mask();
+        boolean[] result = output.values();
+
+        int positionCount = value.size();
+        checkArgument(mask.length >= positionCount, "mask has %s positions, vector has %s", mask.length, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            result[position] = mask[position] && between(values, offsets[position], offsets[position + 1], lower, upper);
+        }
+    }
+
+    /**
+     * @param output receives the selected positions that pass. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(VarcharVector value, byte[] lower, byte[] upper, Selection selection, int[] output)
+    {
+        byte[] values = value.values();
+        int[] offsets = value.offsets();
+
+        int[] positions = selection.positions();
+        int selected = 0;
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += between(values, offsets[position], offsets[position + 1], lower, upper) ? 1 : 0;
+        }
+        return new Selection(output, selected);
+    }
+
+    public void between(DictionaryVector<VarcharVector> value, byte[] lower, byte[] upper, Selection selection, BooleanVector output)
+    {
+        byte[] matches = matches(value, lower, upper);
+        int[] ids = value.ids();
+        boolean[] result = output.values();
+
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            result[position] = matches[ids[position]] == 1;
+        }
+    }
+
+    /**
+     * Compares each dictionary entry once.
+     *
+     * @return 1 for the dictionary entries in the range and 0 for the rest, indexed by id
+     */
+    public byte[] matches(DictionaryVector<VarcharVector> value, byte[] lower, byte[] upper)
+    {
+        VarcharVector dictionary = value.dictionary();
+        if (dictionary != cachedDictionary || !Arrays.equals(lower, cachedLower) || !Arrays.equals(upper, cachedUpper)) {
+            int size = value.dictionarySize();
+            byte[] all = new byte[size];
+            Arrays.fill(all, (byte) 1);
+
+            byte[] result = new byte[size];
+            VarcharRange.between(size, all, result, dictionary.values(), dictionary.offsets(), lower, upper);
+
+            cachedDictionary = dictionary;
+            cachedLower = lower.clone();
+            cachedUpper = upper.clone();
+            cachedResult = result;
+        }
+
+        return cachedResult;
+    }
+
+    public static boolean between(byte[] values, int start, int end, byte[] lower, byte[] upper)
+    {
+        return Arrays.compareUnsigned(values, start, end, lower, 0, lower.length) >= 0 &&
+                Arrays.compareUnsigned(values, start, end, upper, 0, upper.length) < 0;
+    }
+}
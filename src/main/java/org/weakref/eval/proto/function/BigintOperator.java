@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * A scalar {@code (long, long) -> long} function expanded into loops over vectors, one per kind of selection:
+ * <ul>
+ * <li>all: every position below a count</li>
+ * <li>positions: the positions in a {@link Selection}</li>
+ * <li>mask: every position, keeping the previous output where the {@link DenseMask} is not set, so the loop has no
+ * branches. The function is also evaluated for positions that are not selected, so it must not fail on any input.</li>
+ * </ul>
+ * and for each, with a vector or a constant on the right side.
+ * <p>
+ * The loops are static methods with the function bound in as a {@link MethodHandle}. When the instance is held in a
+ * static final field, the JIT sees the handles as constants and inlines the function into the loop, as if the loop
+ * had been written by hand for that function.
+ * <p>
+ * The result is null when either input is null. The loops only deal with values, and the nulls are combined
+ * afterwards by {@link Nulls}, a word at a time for the all variants. When no input has nulls and the output
+ * cannot have nulls, that step is skipped, which is the same as calling a loop written for vectors without nulls.
+ */
+public record BigintOperator(
+        MethodHandle all,
+        MethodHandle allConstant,
+        MethodHandle positions,
+        MethodHandle positionsConstant,
+        MethodHandle mask,
+        MethodHandle maskConstant)
+{
+    private static final MethodType FUNCTION_TYPE = methodType(long.class, long.class, long.class);
+
+    private static final MethodType ALL_TYPE = methodType(void.class, int.class, long[].class, long[].class, long[].class);
+    private static final MethodType ALL_CONSTANT_TYPE = methodType(void.class, int.class, long[].class, long.class, long[].class);
+    private static final MethodType POSITIONS_TYPE = methodType(void.class, int[].class, int.class, long[].class, long[].class, long[].class);
+    private static final MethodType POSITIONS_CONSTANT_TYPE = methodType(void.class, int[].class, int.class, long[].class, long.class, long[].class);
+    private static final MethodType MASK_TYPE = methodType(void.class, boolean[].class, long[].class, long[].class, long[].class);
+    private static final MethodType MASK_CONSTANT_TYPE = methodType(void.class, boolean[].class, long[].class, long.class, long[].class);
+
+    /**
+     * @param name a public static {@code long name(long, long)} method of {@code clazz}
+     */
+    public static BigintOperator of(Class<?> clazz, String name)
+    {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle function = lookup.findStatic(clazz, name, FUNCTION_TYPE);
+
+            return new BigintOperator(
+                    bind(lookup, function, ALL_TYPE),
+                    bind(lookup, function, ALL_CONSTANT_TYPE),
+                    bind(lookup, function, POSITIONS_TYPE),
+                    bind(lookup, function, POSITIONS_CONSTANT_TYPE),
+                    bind(lookup, function, MASK_TYPE),
+                    bind(lookup, function, MASK_CONSTANT_TYPE));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No function long %s(long, long) in %s".formatted(name, clazz.getName()), e);
+        }
+    }
+
+    private static MethodHandle bind(MethodHandles.Lookup lookup, MethodHandle function, MethodType type)
+            throws ReflectiveOperationException
+    {
+        return lookup.findStatic(BigintOperator.class, "loop", type.insertParameterTypes(0, MethodHandle.class))
+                .bindTo(function);
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, int count, Int64Vector output)
+    {
+        try {
+            all.invokeExact(count, left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), right.nulls(), count, output.nulls());
+    }
+
+    public void apply(Int64Vector left, long right, int count, Int64Vector output)
+    {
+        try {
+            allConstant.invokeExact(count, left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), null, count, output.nulls());
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, Selection selection, Int64Vector output)
+    {
+        try {
+            positions.invokeExact(selection.positions(), selection.size(), left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), right.nulls(), selection.positions(), selection.size(), output.nulls());
+    }
+
+    public void apply(Int64Vector left, long right, Selection selection, Int64Vector output)
+    {
+        try {
+            positionsConstant.invokeExact(selection.positions(), selection.size(), left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), null, selection.positions(), selection.size(), output.nulls());
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, DenseMask selection, Int64Vector output)
+    {
+        try {
+            mask.invokeExact(selection.mask(), left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), right.nulls(), selection.mask(), output.nulls());
+    }
+
+    public void apply(Int64Vector left, long right, DenseMask selection, Int64Vector output)
+    {
+        try {
+            maskConstant.invokeExact(selection.mask(), left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        Nulls.propagate(left.nulls(), null, selection.mask(), output.nulls());
+    }
+
+    private static RuntimeException propagate(Throwable e)
+    {
+        throwIfUnchecked(e);
+        throw new RuntimeException(e);
+    }
+
+    private static void loop(MethodHandle function, int count, long[] left, long[] right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            output[i] = (long) function.invokeExact(left[i], right[i]);
+        }
+    }
+
+    private static void loop(MethodHandle function, int count, long[] left, long right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            output[i] = (long) function.invokeExact(left[i], right);
+        }
+    }
+
+    private static void loop(MethodHandle function, int[] positions, int count, long[] left, long[] right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[position] = (long) function.invokeExact(left[position], right[position]);
+        }
+    }
+
+    private static void loop(MethodHandle function, int[] positions, int count, long[] left, long right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[position] = (long) function.invokeExact(left[position], right);
+        }
+    }
+
+    private static void loop(MethodHandle function, boolean[] mask, long[] left, long[] right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < mask.length; i++) {
+            long result = (long) function.invokeExact(left[i], right[i]);
+            output[i] = mask[i] ? result : output[i];
+        }
+    }
+
+    private static void loop(MethodHandle function, boolean[] mask, long[] left, long right, long[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < mask.length; i++) {
+            long result = (long) function.invokeExact(left[i], right);
+            output[i] = mask[i] ? result : output[i];
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Same as {@link BigintOperator} for a scalar {@code (long, long) -> boolean} function. The mask loops AND the
+ * result with the mask, so their output can be used as the mask for the next predicate.
+ * <p>
+ * The filter loops compact the positions of a {@link Selection} that pass the predicate, like the in-place
+ * loops of ColumnarActivePositionsNoNullsInPlace.
+ * <p>
+ * A null input makes the result false, so null positions are never selected, and null in the output if it can
+ * have nulls. The filter loops take the null positions out of the selection before evaluating the predicate.
+ */
+public record BigintPredicate(
+        MethodHandle all,
+        MethodHandle allConstant,
+        MethodHandle positions,
+        MethodHandle positionsConstant,
+        MethodHandle mask,
+        MethodHandle maskConstant,
+        MethodHandle filter,
+        MethodHandle filterConstant)
+{
+    private static final MethodType FUNCTION_TYPE = methodType(boolean.class, long.class, long.class);
+
+    private static final MethodType ALL_TYPE = methodType(void.class, int.class, long[].class, long[].class, boolean[].class);
+    private static final MethodType ALL_CONSTANT_TYPE = methodType(void.class, int.class, long[].class, long.class, boolean[].class);
+    private static final MethodType POSITIONS_TYPE = methodType(void.class, int[].class, int.class, long[].class, long[].class, boolean[].class);
+    private static final MethodType POSITIONS_CONSTANT_TYPE = methodType(void.class, int[].class, int.class, long[].class, long.class, boolean[].class);
+    private static final MethodType MASK_TYPE = methodType(void.class, boolean[].class, long[].class, long[].class, boolean[].class);
+    private static final MethodType MASK_CONSTANT_TYPE = methodType(void.class, boolean[].class, long[].class, long.class, boolean[].class);
+    private static final MethodType FILTER_TYPE = methodType(int.class, int[].class, int.class, long[].class, long[].class, int[].class);
+    private static final MethodType FILTER_CONSTANT_TYPE = methodType(int.class, int[].class, int.class, long[].class, long.class, int[].class);
+
+    /**
+     * @param name a public static {@code boolean name(long, long)} method of {@code clazz}
+     */
+    public static BigintPredicate of(Class<?> clazz, String name)
+    {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle function = lookup.findStatic(clazz, name, FUNCTION_TYPE);
+
+            return new BigintPredicate(
+                    bind(lookup, function, "loop", ALL_TYPE),
+                    bind(lookup, function, "loop", ALL_CONSTANT_TYPE),
+                    bind(lookup, function, "loop", POSITIONS_TYPE),
+                    bind(lookup, function, "loop", POSITIONS_CONSTANT_TYPE),
+                    bind(lookup, function, "loop", MASK_TYPE),
+                    bind(lookup, function, "loop", MASK_CONSTANT_TYPE),
+                    bind(lookup, function, "filterLoop", FILTER_TYPE),
+                    bind(lookup, function, "filterLoop", FILTER_CONSTANT_TYPE));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No function boolean %s(long, long) in %s".formatted(name, clazz.getName()), e);
+        }
+    }
+
+    private static MethodHandle bind(MethodHandles.Lookup lookup, MethodHandle function, String loop, MethodType type)
+            throws ReflectiveOperationException
+    {
+        return lookup.findStatic(BigintPredicate.class, loop, type.insertParameterTypes(0, MethodHandle.class))
+                .bindTo(function);
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, int count, BooleanVector output)
+    {
+        try {
+            all.invokeExact(count, left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls() || right.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), right.nulls(), count, output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), right.nulls(), count, output.nulls());
+        }
+    }
+
+    public void apply(Int64Vector left, long right, int count, BooleanVector output)
+    {
+        try {
+            allConstant.invokeExact(count, left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), null, count, output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), null, count, output.nulls());
+        }
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, Selection selection, BooleanVector output)
+    {
+        try {
+            positions.invokeExact(selection.positions(), selection.size(), left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls() || right.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), right.nulls(), selection.positions(), selection.size(), output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), right.nulls(), selection.positions(), selection.size(), output.nulls());
+        }
+    }
+
+    public void apply(Int64Vector left, long right, Selection selection, BooleanVector output)
+    {
+        try {
+            positionsConstant.invokeExact(selection.positions(), selection.size(), left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), null, selection.positions(), selection.size(), output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), null, selection.positions(), selection.size(), output.nulls());
+        }
+    }
+
+    public void apply(Int64Vector left, Int64Vector right, DenseMask selection, BooleanVector output)
+    {
+        try {
+            mask.invokeExact(selection.mask(), left.values(), right.values(), output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls() || right.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), right.nulls(), selection.mask().length, output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), right.nulls(), selection.mask(), output.nulls());
+        }
+    }
+
+    public void apply(Int64Vector left, long right, DenseMask selection, BooleanVector output)
+    {
+        try {
+            maskConstant.invokeExact(selection.mask(), left.values(), right, output.values());
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+        if (left.hasNulls()) {
+            Nulls.clearNulls(left.nulls(), null, selection.mask().length, output.values());
+        }
+        if (output.nulls() != null) {
+            Nulls.propagate(left.nulls(), null, selection.mask(), output.nulls());
+        }
+    }
+
+    /**
+     * @param output receives the selected positions that pass. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(Int64Vector left, Int64Vector right, Selection selection, int[] output)
+    {
+        int[] positions = selection.positions();
+        int count = selection.size();
+        if (left.hasNulls() || right.hasNulls()) {
+            count = Nulls.removeNulls(left.nulls(), right.nulls(), positions, count, output);
+            positions = output;
+        }
+
+        try {
+            count = (int) filter.invokeExact(positions, count, left.values(), right.values(), output);
+            return new Selection(output, count);
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * @param output receives the selected positions that pass. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(Int64Vector left, long right, Selection selection, int[] output)
+    {
+        int[] positions = selection.positions();
+        int count = selection.size();
+        if (left.hasNulls()) {
+            count = Nulls.removeNulls(left.nulls(), null, positions, count, output);
+            positions = output;
+        }
+
+        try {
+            count = (int) filterConstant.invokeExact(positions, count, left.values(), right, output);
+            return new Selection(output, count);
+        }
+        catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable e)
+    {
+        throwIfUnchecked(e);
+        throw new RuntimeException(e);
+    }
+
+    private static void loop(MethodHandle function, int count, long[] left, long[] right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            output[i] = (boolean) function.invokeExact(left[i], right[i]);
+        }
+    }
+
+    private static void loop(MethodHandle function, int count, long[] left, long right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            output[i] = (boolean) function.invokeExact(left[i], right);
+        }
+    }
+
+    private static void loop(MethodHandle function, int[] positions, int count, long[] left, long[] right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[position] = (boolean) function.invokeExact(left[position], right[position]);
+        }
+    }
+
+    private static void loop(MethodHandle function, int[] positions, int count, long[] left, long right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[position] = (boolean) function.invokeExact(left[position], right);
+        }
+    }
+
+    private static void loop(MethodHandle function, boolean[] mask, long[] left, long[] right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < mask.length; i++) {
+            output[i] = mask[i] & (boolean) function.invokeExact(left[i], right[i]);
+        }
+    }
+
+    private static void loop(MethodHandle function, boolean[] mask, long[] left, long right, boolean[] output)
+            throws Throwable
+    {
+        for (int i = 0; i < mask.length; i++) {
+            output[i] = mask[i] & (boolean) function.invokeExact(left[i], right);
+        }
+    }
+
+    private static int filterLoop(MethodHandle function, int[] positions, int count, long[] left, long[] right, int[] output)
+            throws Throwable
+    {
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += (boolean) function.invokeExact(left[position], right[position]) ? 1 : 0;
+        }
+        return selected;
+    }
+
+    private static int filterLoop(MethodHandle function, int[] positions, int count, long[] left, long right, int[] output)
+            throws Throwable
+    {
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += (boolean) function.invokeExact(left[position], right) ? 1 : 0;
+        }
+        return selected;
+    }
+}
@@ -13,18 +13,104 @@
  */
 package org.weakref.eval.proto.function;
 
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
 import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.DictionaryVector;
 import org.weakref.eval.proto.vector.Int64Vector;
-import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.RunLengthBooleanVector;
+import org.weakref.eval.proto.vector.RunLengthInt64Vector;
 
+/**
+ * {@code left = right}
+ * <p>
+ * Keeps the results for the last dictionary, so an instance must not be shared between threads.
+ */
 public class EqualsBigintBigintFunction
 {
+    private static final BigintPredicate EQUALS = BigintPredicate.of(EqualsBigintBigintFunction.class, "equals");
+
+    // per entry results for the last dictionary, reused while the input keeps the same dictionary
+    private Int64Vector cachedDictionary;
+    private long cachedRight;
+    private boolean[] cachedResult;
+
+    public void equals(Int64Vector left, Int64Vector right, int count, BooleanVector output)
+    {
+        EQUALS.apply(left, right, count, output);
+    }
+
     public void equals(Int64Vector left, Int64Vector right, Selection selection, BooleanVector output)
     {
-        selection.stream().forEach(i -> output.set(i, equals(left.get(i), right.get(i))));
+        EQUALS.apply(left, right, selection, output);
+    }
+
+    public void equals(Int64Vector left, Int64Vector right, DenseMask selection, BooleanVector output)
+    {
+        EQUALS.apply(left, right, selection, output);
+    }
+
+    public void equals(Int64Vector left, long right, int count, BooleanVector output)
+    {
+        EQUALS.apply(left, right, count, output);
+    }
+
+    public void equals(Int64Vector left, long right, Selection selection, BooleanVector output)
+    {
+        EQUALS.apply(left, right, selection, output);
+    }
+
+    public void equals(Int64Vector left, long right, DenseMask selection, BooleanVector output)
+    {
+        EQUALS.apply(left, right, selection, output);
+    }
+
+    public Selection filter(Int64Vector left, long right, Selection selection, int[] output)
+    {
+        return EQUALS.filter(left, right, selection, output);
+    }
+
+    /**
+     * Compares once per run. The result has the same runs as {@code left}.
+     */
+    public RunLengthBooleanVector equals(RunLengthInt64Vector left, long right)
+    {
+        boolean[] result = new boolean[left.runCount()];
+        for (int run = 0; run < result.length; run++) {
+            result[run] = equals(left.value(run), right);
+        }
+        return new RunLengthBooleanVector(result, left.runEnds(), left.runCount());
+    }
+
+    /**
+     * Compares each dictionary entry once and maps the results over the ids
+     */
+    public void equals(DictionaryVector<Int64Vector> left, long right, Selection selection, BooleanVector output)
+    {
+        Int64Vector dictionary = left.dictionary();
+        if (dictionary != cachedDictionary || right != cachedRight) {
+            boolean[] result = new boolean[left.dictionarySize()];
+            for (int id = 0; id < result.length; id++) {
+                result[id] = equals(dictionary.get(id), right);
+            }
+
+            cachedDictionary = dictionary;
+            cachedRight = right;
+            cachedResult = result;
+        }
+
+        boolean[] matches = cachedResult;
+        int[] ids = left.ids();
+        boolean[] result = output.values();
+
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            result[position] = matches[ids[position]];
+        }
     }
 
-    public boolean equals(long left, long right)
+    public static boolean equals(long left, long right)
     {
         return left == right;
     }
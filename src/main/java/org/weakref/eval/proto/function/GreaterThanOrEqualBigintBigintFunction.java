@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+public class GreaterThanOrEqualBigintBigintFunction
+{
+    private static final BigintPredicate GREATER_THAN_OR_EQUAL = BigintPredicate.of(GreaterThanOrEqualBigintBigintFunction.class, "greaterThanOrEqual");
+
+    public void greaterThanOrEqual(Int64Vector left, Int64Vector right, int count, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, count, output);
+    }
+
+    public void greaterThanOrEqual(Int64Vector left, Int64Vector right, Selection selection, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, selection, output);
+    }
+
+    public void greaterThanOrEqual(Int64Vector left, Int64Vector right, DenseMask selection, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, selection, output);
+    }
+
+    public void greaterThanOrEqual(Int64Vector left, long right, int count, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, count, output);
+    }
+
+    public void greaterThanOrEqual(Int64Vector left, long right, Selection selection, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, selection, output);
+    }
+
+    public void greaterThanOrEqual(Int64Vector left, long right, DenseMask selection, BooleanVector output)
+    {
+        GREATER_THAN_OR_EQUAL.apply(left, right, selection, output);
+    }
+
+    public Selection filter(Int64Vector left, long right, Selection selection, int[] output)
+    {
+        return GREATER_THAN_OR_EQUAL.filter(left, right, selection, output);
+    }
+
+    public static boolean greaterThanOrEqual(long left, long right)
+    {
+        return left >= right;
+    }
+}
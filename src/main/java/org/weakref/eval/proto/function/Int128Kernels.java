@@ -0,0 +1,269 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+import org.weakref.eval.proto.vector.Int128Vector;
+import org.weakref.eval.proto.vector.SplitInt128Vector;
+
+import java.util.Arrays;
+
+/**
+ * {@link LongVector} kernels over many rows of 128-bit values, for both the interleaved {@link Int128Vector}
+ * and the {@link SplitInt128Vector} layouts. Rows past the last full vector go through {@link Int128Math}, or
+ * through a masked iteration when the output layout allows it.
+ * <p>
+ * With the split layout, a vector holds the low (or high) words of consecutive rows, so the carry out of
+ * the low words lines up with the lane it goes into. With the interleaved layout, a vector holds half as many
+ * rows, alternating low and high words, and the carry has to be moved from each even lane to the odd lane
+ * next to it with a shuffle.
+ * <p>
+ * Row selections are bitmaps, with bit {@code i % 64} of word {@code i / 64} set for selected rows.
+ */
+public final class Int128Kernels
+{
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    // interleaved layout: low words are in the even lanes and high words in the odd lanes
+    private static final int ROWS_PER_VECTOR = SPECIES.length() / 2;
+    private static final long EVEN_LANES = 0x5555_5555_5555_5555L;
+    private static final long ODD_LANES = 0xAAAA_AAAA_AAAA_AAAAL;
+    private static final VectorMask<Long> HIGH_LANES = VectorMask.fromLong(SPECIES, ODD_LANES);
+    private static final VectorShuffle<Long> SWAP_PAIRS = VectorShuffle.fromOp(SPECIES, lane -> lane ^ 1);
+
+    private Int128Kernels() {}
+
+    /**
+     * @return true if any of the results does not fit in 128 bits
+     */
+    public static boolean add(SplitInt128Vector left, SplitInt128Vector right, int count, SplitInt128Vector output)
+    {
+        long[] leftLows = left.lows();
+        long[] leftHighs = left.highs();
+        long[] rightLows = right.lows();
+        long[] rightHighs = right.highs();
+        long[] outputLows = output.lows();
+        long[] outputHighs = output.highs();
+
+        // the last iteration is masked, instead of finishing with scalar code
+        LongVector overflow = LongVector.zero(SPECIES);
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            VectorMask<Long> mask = SPECIES.indexInRange(i, count);
+            LongVector leftLow = LongVector.fromArray(SPECIES, leftLows, i, mask);
+            LongVector leftHigh = LongVector.fromArray(SPECIES, leftHighs, i, mask);
+            LongVector rightLow = LongVector.fromArray(SPECIES, rightLows, i, mask);
+            LongVector rightHigh = LongVector.fromArray(SPECIES, rightHighs, i, mask);
+
+            LongVector low = leftLow.add(rightLow);
+            LongVector high = leftHigh.add(rightHigh).add(carry(leftLow, rightLow, low));
+            overflow = overflow.or(leftHigh.lanewise(VectorOperators.XOR, high).and(rightHigh.lanewise(VectorOperators.XOR, high)));
+
+            low.intoArray(outputLows, i, mask);
+            high.intoArray(outputHighs, i, mask);
+        }
+
+        return overflow.compare(VectorOperators.LT, 0).anyTrue();
+    }
+
+    /**
+     * @return true if any of the results does not fit in 128 bits
+     */
+    public static boolean add(Int128Vector left, Int128Vector right, int count, Int128Vector output)
+    {
+        long[] leftValues = left.values();
+        long[] rightValues = right.values();
+        long[] outputValues = output.values();
+
+        LongVector overflow = LongVector.zero(SPECIES);
+        int i = 0;
+        for (; i + ROWS_PER_VECTOR <= count; i += ROWS_PER_VECTOR) {
+            LongVector leftVector = LongVector.fromArray(SPECIES, leftValues, i * 2);
+            LongVector rightVector = LongVector.fromArray(SPECIES, rightValues, i * 2);
+
+            // the carry out of each low word is added to the high word in the next lane
+            LongVector sum = leftVector.add(rightVector);
+            LongVector carry = carry(leftVector, rightVector, sum).rearrange(SWAP_PAIRS);
+            LongVector result = sum.add(carry, HIGH_LANES);
+            overflow = overflow.or(leftVector.lanewise(VectorOperators.XOR, result).and(rightVector.lanewise(VectorOperators.XOR, result)));
+
+            result.intoArray(outputValues, i * 2);
+        }
+
+        boolean overflowed = overflow.compare(VectorOperators.LT, 0, HIGH_LANES).anyTrue();
+        for (; i < count; i++) {
+            overflowed |= Int128Math.add(left.low(i), left.high(i), right.low(i), right.high(i), output, i);
+        }
+        return overflowed;
+    }
+
+    /**
+     * Sets the bits of the rows that are less than {@code (low, high)} in {@code result} and clears the others
+     */
+    public static void lessThan(SplitInt128Vector input, long low, long high, int count, long[] result)
+    {
+        long[] lows = input.lows();
+        long[] highs = input.highs();
+
+        Arrays.fill(result, 0, (count + 63) >>> 6, 0);
+
+        int i = 0;
+        for (; i < SPECIES.loopBound(count); i += SPECIES.length()) {
+            LongVector highVector = LongVector.fromArray(SPECIES, highs, i);
+            LongVector lowVector = LongVector.fromArray(SPECIES, lows, i);
+
+            long bits = highVector.compare(VectorOperators.LT, high)
+                    .or(highVector.compare(VectorOperators.EQ, high).and(lowVector.compare(VectorOperators.UNSIGNED_LT, low)))
+                    .toLong();
+            result[i >>> 6] |= bits << i;
+        }
+
+        for (; i < count; i++) {
+            long bit = Int128Math.lessThan(lows[i], highs[i], low, high) ? 1 : 0;
+            result[i >>> 6] |= bit << i;
+        }
+    }
+
+    /**
+     * Sets the bits of the rows that are less than {@code (low, high)} in {@code result} and clears the others
+     */
+    public static void lessThan(Int128Vector input, long low, long high, int count, long[] result)
+    {
+        long[] values = input.values();
+        LongVector constant = LongVector.broadcast(SPECIES, low).blend(high, HIGH_LANES);
+
+        Arrays.fill(result, 0, (count + 63) >>> 6, 0);
+
+        int i = 0;
+        for (; i + ROWS_PER_VECTOR <= count; i += ROWS_PER_VECTOR) {
+            LongVector vector = LongVector.fromArray(SPECIES, values, i * 2);
+
+            // high words compare signed, in the odd lanes, and low words unsigned, in the even lanes
+            long less = vector.compare(VectorOperators.LT, constant).toLong();
+            long equal = vector.compare(VectorOperators.EQ, constant).toLong();
+            long lessUnsigned = vector.compare(VectorOperators.UNSIGNED_LT, constant).toLong();
+
+            long bits = Long.compress(less | (equal & (lessUnsigned << 1)), ODD_LANES);
+            result[i >>> 6] |= bits << i;
+        }
+
+        for (; i < count; i++) {
+            long bit = Int128Math.lessThan(input.low(i), input.high(i), low, high) ? 1 : 0;
+            result[i >>> 6] |= bit << i;
+        }
+    }
+
+    /**
+     * Writes the sum of the selected rows to {@code output} at {@code position}. Each lane accumulates its own
+     * partial sum, and overflow is reported if any partial sum overflows, even if the total would fit.
+     *
+     * @return true if the sum does not fit in 128 bits
+     */
+    public static boolean sum(SplitInt128Vector input, long[] selected, int count, Int128Vector output, int position)
+    {
+        long[] lows = input.lows();
+        long[] highs = input.highs();
+
+        LongVector lowSum = LongVector.zero(SPECIES);
+        LongVector highSum = LongVector.zero(SPECIES);
+        LongVector carries = LongVector.zero(SPECIES);
+        LongVector overflow = LongVector.zero(SPECIES);
+
+        int i = 0;
+        for (; i < SPECIES.loopBound(count); i += SPECIES.length()) {
+            VectorMask<Long> mask = VectorMask.fromLong(SPECIES, selected[i >>> 6] >>> i);
+            LongVector low = LongVector.fromArray(SPECIES, lows, i, mask);
+            LongVector high = LongVector.fromArray(SPECIES, highs, i, mask);
+
+            LongVector newLowSum = lowSum.add(low);
+            carries = carries.add(carry(lowSum, low, newLowSum));
+            lowSum = newLowSum;
+
+            LongVector newHighSum = highSum.add(high);
+            overflow = overflow.or(highSum.lanewise(VectorOperators.XOR, newHighSum).and(high.lanewise(VectorOperators.XOR, newHighSum)));
+            highSum = newHighSum;
+        }
+
+        boolean overflowed = overflow.compare(VectorOperators.LT, 0).anyTrue();
+        output.set(position, 0, 0);
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            overflowed |= Int128Math.add(output.low(position), output.high(position), lowSum.lane(lane), highSum.lane(lane), output, position);
+            overflowed |= Int128Math.add(output.low(position), output.high(position), 0, carries.lane(lane), output, position);
+        }
+
+        for (; i < count; i++) {
+            if ((selected[i >>> 6] & (1L << i)) != 0) {
+                overflowed |= Int128Math.add(output.low(position), output.high(position), lows[i], highs[i], output, position);
+            }
+        }
+        return overflowed;
+    }
+
+    /**
+     * Same as {@link #sum(SplitInt128Vector, long[], int, Int128Vector, int)} for the interleaved layout.
+     * The sums of the low words stay in the even lanes and the sums of the high words in the odd lanes, so
+     * the carries are only moved to the high words once, at the end.
+     *
+     * @return true if the sum does not fit in 128 bits
+     */
+    public static boolean sum(Int128Vector input, long[] selected, int count, Int128Vector output, int position)
+    {
+        long[] values = input.values();
+        long rowBits = (1L << ROWS_PER_VECTOR) - 1;
+
+        LongVector sum = LongVector.zero(SPECIES);
+        LongVector carries = LongVector.zero(SPECIES);
+        LongVector overflow = LongVector.zero(SPECIES);
+
+        int i = 0;
+        for (; i + ROWS_PER_VECTOR <= count; i += ROWS_PER_VECTOR) {
+            // each selected row selects both of its lanes
+            long lanes = Long.expand((selected[i >>> 6] >>> i) & rowBits, EVEN_LANES);
+            VectorMask<Long> mask = VectorMask.fromLong(SPECIES, lanes | (lanes << 1));
+            LongVector vector = LongVector.fromArray(SPECIES, values, i * 2, mask);
+
+            LongVector newSum = sum.add(vector);
+            carries = carries.add(carry(sum, vector, newSum));
+            overflow = overflow.or(sum.lanewise(VectorOperators.XOR, newSum).and(vector.lanewise(VectorOperators.XOR, newSum)));
+            sum = newSum;
+        }
+
+        boolean overflowed = overflow.compare(VectorOperators.LT, 0, HIGH_LANES).anyTrue();
+        output.set(position, 0, 0);
+        for (int lane = 0; lane < SPECIES.length(); lane += 2) {
+            overflowed |= Int128Math.add(output.low(position), output.high(position), sum.lane(lane), sum.lane(lane + 1), output, position);
+            overflowed |= Int128Math.add(output.low(position), output.high(position), 0, carries.lane(lane), output, position);
+        }
+
+        for (; i < count; i++) {
+            if ((selected[i >>> 6] & (1L << i)) != 0) {
+                overflowed |= Int128Math.add(output.low(position), output.high(position), input.low(i), input.high(i), output, position);
+            }
+        }
+        return overflowed;
+    }
+
+    /**
+     * @return 1 in the lanes where {@code left + right} carried out of 64 bits, 0 in the others
+     */
+    private static LongVector carry(LongVector left, LongVector right, LongVector sum)
+    {
+        return left.and(right)
+                .or(left.or(right).and(sum.not()))
+                .lanewise(VectorOperators.LSHR, 63);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.vector.Int128Vector;
+
+import java.math.BigInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Signed 128-bit two's complement arithmetic on (low, high) pairs, as stored in {@link Int128Vector}.
+ * <p>
+ * Operations write the result to a position of an {@link Int128Vector} and return whether it overflowed
+ * instead of throwing, so a loop can OR the flags together and check once per batch. Carries, borrows and
+ * overflow are computed with bit operations, so add, subtract, multiply and compare have no data dependent
+ * branches and nothing is allocated.
+ */
+public final class Int128Math
+{
+    public static final int MAX_PRECISION = 38;
+
+    // 10^i for i in [0, 38]
+    private static final long[] POWERS_OF_TEN_LOW = new long[MAX_PRECISION + 1];
+    private static final long[] POWERS_OF_TEN_HIGH = new long[MAX_PRECISION + 1];
+
+    // 10^38 - 1
+    private static final long MAX_DECIMAL_LOW;
+    private static final long MAX_DECIMAL_HIGH;
+
+    // largest power of ten below 2^30, so that (remainder << 32 | 32 bits) fits in a long when dividing
+    private static final int DIVISOR_DIGITS = 9;
+
+    static {
+        for (int i = 0; i <= MAX_PRECISION; i++) {
+            BigInteger power = BigInteger.TEN.pow(i);
+            POWERS_OF_TEN_LOW[i] = power.longValue();
+            POWERS_OF_TEN_HIGH[i] = power.shiftRight(64).longValue();
+        }
+
+        BigInteger max = BigInteger.TEN.pow(MAX_PRECISION).subtract(BigInteger.ONE);
+        MAX_DECIMAL_LOW = max.longValue();
+        MAX_DECIMAL_HIGH = max.shiftRight(64).longValue();
+    }
+
+    private Int128Math() {}
+
+    /**
+     * @return true if the result does not fit in 128 bits
+     */
+    public static boolean add(long leftLow, long leftHigh, long rightLow, long rightHigh, Int128Vector output, int position)
+    {
+        long low = leftLow + rightLow;
+        long high = leftHigh + rightHigh + carry(leftLow, rightLow, low);
+
+        output.set(position, low, high);
+        return ((leftHigh ^ high) & (rightHigh ^ high)) < 0;
+    }
+
+    /**
+     * @return true if the result does not fit in 128 bits
+     */
+    public static boolean subtract(long leftLow, long leftHigh, long rightLow, long rightHigh, Int128Vector output, int position)
+    {
+        long low = leftLow - rightLow;
+        long high = leftHigh - rightHigh - borrow(leftLow, rightLow, low);
+
+        output.set(position, low, high);
+        return ((leftHigh ^ rightHigh) & (leftHigh ^ high)) < 0;
+    }
+
+    /**
+     * @return true if the result does not fit in 128 bits
+     */
+    public static boolean multiply(long leftLow, long leftHigh, long rightLow, long rightHigh, Int128Vector output, int position)
+    {
+        // multiply the absolute values as unsigned numbers and fix the sign at the end.
+        // The absolute value of -2^127 is itself, which is correct when read as unsigned.
+        long leftSign = leftHigh >> 63;
+        long rightSign = rightHigh >> 63;
+        long sign = leftSign ^ rightSign;
+
+        long leftAbsLow = (leftLow ^ leftSign) - leftSign;
+        long leftAbsHigh = (leftHigh ^ leftSign) + (leftSign & isZero(leftLow));
+        long rightAbsLow = (rightLow ^ rightSign) - rightSign;
+        long rightAbsHigh = (rightHigh ^ rightSign) + (rightSign & isZero(rightLow));
+
+        // (lh * 2^64 + ll) * (rh * 2^64 + rl) = lh * rh * 2^128 + (ll * rh + lh * rl) * 2^64 + ll * rl
+        long low = leftAbsLow * rightAbsLow;
+        long cross1 = leftAbsLow * rightAbsHigh;
+        long cross2 = leftAbsHigh * rightAbsLow;
+        long middle = Math.unsignedMultiplyHigh(leftAbsLow, rightAbsLow);
+        long partial = middle + cross1;
+        long high = partial + cross2;
+        long carry = carry(middle, cross1, partial) | carry(partial, cross2, high);
+
+        long overflow = (nonZero(leftAbsHigh) & nonZero(rightAbsHigh)) |
+                nonZero(Math.unsignedMultiplyHigh(leftAbsLow, rightAbsHigh)) |
+                nonZero(Math.unsignedMultiplyHigh(leftAbsHigh, rightAbsLow)) |
+                carry;
+
+        // the magnitude must be below 2^127, except for -2^127 itself
+        long minValue = sign & isZero(low) & isZero(high ^ Long.MIN_VALUE);
+        overflow |= (high >>> 63) & ~minValue;
+
+        long resultLow = (low ^ sign) - sign;
+        long resultHigh = (high ^ sign) + (sign & isZero(low));
+
+        output.set(position, resultLow, resultHigh);
+        return overflow != 0;
+    }
+
+    /**
+     * Multiplies by {@code 10^scaleChange} when it is positive, or divides by {@code 10^-scaleChange}
+     * rounding half away from zero when it is negative.
+     * <p>
+     * Division of magnitudes that fit in a long takes a single division. Larger values are divided 9 digits at
+     * a time, so that loops {@code -scaleChange / 9} times.
+     *
+     * @return true if the result does not fit in 128 bits
+     */
+    public static boolean rescale(long low, long high, int scaleChange, Int128Vector output, int position)
+    {
+        checkArgument(scaleChange >= -MAX_PRECISION && scaleChange <= MAX_PRECISION, "scaleChange out of range: %s", scaleChange);
+
+        if (scaleChange >= 0) {
+            return multiply(low, high, POWERS_OF_TEN_LOW[scaleChange], POWERS_OF_TEN_HIGH[scaleChange], output, position);
+        }
+
+        long sign = high >> 63;
+        long absLow = (low ^ sign) - sign;
+        long absHigh = (high ^ sign) + (sign & isZero(low));
+
+        if (absHigh == 0 && absLow >= 0 && scaleChange >= -18) {
+            // the magnitude fits in a long, which is the common case for money columns
+            long divisor = POWERS_OF_TEN_LOW[-scaleChange];
+            long quotient = absLow / divisor;
+            long roundUp = (divisor - 1 - (absLow - quotient * divisor) * 2) >>> 63;
+            quotient += roundUp;
+
+            output.set(position, (quotient ^ sign) - sign, sign + (sign & isZero(quotient)));
+            return false;
+        }
+
+        // divide by 10^9 while more than 9 digits remain, then by the rest. Since the last divisor is a
+        // multiple of 10, the last remainder alone decides the rounding.
+        int digits = -scaleChange;
+        long remainder = 0;
+        long divisor = 1;
+        while (digits > 0) {
+            int step = Math.min(digits, DIVISOR_DIGITS);
+            digits -= step;
+            divisor = POWERS_OF_TEN_LOW[step];
+
+            long chunk = absHigh >>> 32;
+            long quotient3 = chunk / divisor;
+            chunk = ((chunk - quotient3 * divisor) << 32) | (absHigh & 0xFFFF_FFFFL);
+            long quotient2 = chunk / divisor;
+            chunk = ((chunk - quotient2 * divisor) << 32) | (absLow >>> 32);
+            long quotient1 = chunk / divisor;
+            chunk = ((chunk - quotient1 * divisor) << 32) | (absLow & 0xFFFF_FFFFL);
+            long quotient0 = chunk / divisor;
+            remainder = chunk - quotient0 * divisor;
+
+            absHigh = (quotient3 << 32) | quotient2;
+            absLow = (quotient1 << 32) | quotient0;
+        }
+
+        long roundUp = (divisor - 1 - remainder * 2) >>> 63;
+        long roundedLow = absLow + roundUp;
+        long roundedHigh = absHigh + carry(absLow, roundUp, roundedLow);
+
+        output.set(position, (roundedLow ^ sign) - sign, (roundedHigh ^ sign) + (sign & isZero(roundedLow)));
+        return false;
+    }
+
+    public static int compare(long leftLow, long leftHigh, long rightLow, long rightHigh)
+    {
+        int high = Long.compare(leftHigh, rightHigh);
+        int low = Long.compareUnsigned(leftLow, rightLow);
+        return high != 0 ? high : low;
+    }
+
+    public static boolean lessThan(long leftLow, long leftHigh, long rightLow, long rightHigh)
+    {
+        return leftHigh < rightHigh | (leftHigh == rightHigh & Long.compareUnsigned(leftLow, rightLow) < 0);
+    }
+
+    /**
+     * @return true if the absolute value is larger than {@code 10^38 - 1}, the largest DECIMAL(38) value
+     */
+    public static boolean exceedsMaxPrecision(long low, long high)
+    {
+        long sign = high >> 63;
+        long absLow = (low ^ sign) - sign;
+        long absHigh = (high ^ sign) + (sign & isZero(low));
+
+        return Long.compareUnsigned(absHigh, MAX_DECIMAL_HIGH) > 0 |
+                (absHigh == MAX_DECIMAL_HIGH & Long.compareUnsigned(absLow, MAX_DECIMAL_LOW) > 0);
+    }
+
+    /**
+     * @return 1 if {@code left + right} carried out of 64 bits, 0 otherwise
+     */
+    private static long carry(long left, long right, long sum)
+    {
+        return ((left & right) | ((left | right) & ~sum)) >>> 63;
+    }
+
+    /**
+     * @return 1 if {@code left - right} borrowed, 0 otherwise
+     */
+    private static long borrow(long left, long right, long difference)
+    {
+        return ((~left & right) | (~(left ^ right) & difference)) >>> 63;
+    }
+
+    private static long nonZero(long value)
+    {
+        return (value | -value) >>> 63;
+    }
+
+    private static long isZero(long value)
+    {
+        return nonZero(value) ^ 1;
+    }
+}
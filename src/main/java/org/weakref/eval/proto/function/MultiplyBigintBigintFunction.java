@@ -13,29 +13,152 @@
  */
 package org.weakref.eval.proto.function;
 
-import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.mask.DenseMask;
+import org.weakref.eval.proto.mask.RangeSelection;
 import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.DictionaryVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.RunLengthInt64Vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
+/**
+ * {@code left * right}
+ * <p>
+ * The products for the last dictionary and constant are cached in the instance, so use one instance per thread.
+ */
 public class MultiplyBigintBigintFunction
 {
+    private static final BigintOperator MULTIPLY = BigintOperator.of(MultiplyBigintBigintFunction.class, "multiply");
+
+    // result of the last dictionary * constant, reused while the input keeps the same dictionary
+    private Int64Vector cachedDictionary;
+    private long cachedRight;
+    private Int64Vector cachedResult;
+
+    public void multiply(Int64Vector left, Int64Vector right, int count, Int64Vector output)
+    {
+        MULTIPLY.apply(left, right, count, output);
+    }
+
     public void multiply(Int64Vector left, Int64Vector right, Selection selection, Int64Vector output)
     {
-        selection.stream().forEach(i -> output.set(i, multiply(left.get(i), right.get(i))));
+        MULTIPLY.apply(left, right, selection, output);
+    }
+
+    public void multiply(Int64Vector left, Int64Vector right, DenseMask selection, Int64Vector output)
+    {
+        MULTIPLY.apply(left, right, selection, output);
+    }
+
+    public void multiply(Int64Vector left, long right, int count, Int64Vector output)
+    {
+        MULTIPLY.apply(left, right, count, output);
     }
 
     public void multiply(Int64Vector left, long right, Selection selection, Int64Vector output)
     {
-        selection.stream().forEach(i -> output.set(i, multiply(left.get(i), right)));
+        MULTIPLY.apply(left, right, selection, output);
+    }
+
+    public void multiply(Int64Vector left, long right, DenseMask selection, Int64Vector output)
+    {
+        MULTIPLY.apply(left, right, selection, output);
     }
 
     public void multiply(long left, Int64Vector right, Selection selection, Int64Vector output)
     {
-        selection.stream().forEach(i -> output.set(i, multiply(left, right.get(i))));
+        // multiplication is commutative, so this reuses the loop with the constant on the right
+        MULTIPLY.apply(right, left, selection, output);
     }
 
-    // TODO: need variant for dictionary indirection?
+    public void multiply(Int64Vector left, long right, RangeSelection selection, Int64Vector output)
+    {
+        for (int range = 0; range < selection.rangeCount(); range++) {
+            for (int i = selection.start(range); i < selection.end(range); i++) {
+                output.set(i, multiply(left.get(i), right));
+            }
+        }
+    }
+
+    /**
+     * Multiplies once per run. The result has the same runs as {@code left}.
+     */
+    public RunLengthInt64Vector multiply(RunLengthInt64Vector left, long right)
+    {
+        long[] result = new long[left.runCount()];
+        for (int run = 0; run < result.length; run++) {
+            result[run] = multiply(left.value(run), right);
+        }
+        return new RunLengthInt64Vector(result, left.runEnds(), left.runCount());
+    }
+
+    /**
+     * Multiplies once per pair of overlapping runs. The result has a run boundary wherever either input has one.
+     */
+    public RunLengthInt64Vector multiply(RunLengthInt64Vector left, RunLengthInt64Vector right)
+    {
+        checkArgument(left.size() == right.size(), "left has %s positions and right has %s", left.size(), right.size());
+
+        int maxRuns = left.runCount() + right.runCount();
+        long[] result = new long[maxRuns];
+        int[] runEnds = new int[maxRuns];
+
+        int leftRun = 0;
+        int rightRun = 0;
+        int output = 0;
+        while (leftRun < left.runCount() && rightRun < right.runCount()) {
+            int end = Math.min(left.runEnd(leftRun), right.runEnd(rightRun));
+            result[output] = multiply(left.value(leftRun), right.value(rightRun));
+            runEnds[output] = end;
+            output++;
+
+            if (left.runEnd(leftRun) == end) {
+                leftRun++;
+            }
+            if (right.runEnd(rightRun) == end) {
+                rightRun++;
+            }
+        }
+
+        return new RunLengthInt64Vector(result, runEnds, output);
+    }
+
+    /**
+     * Multiplies each dictionary entry once. The result is dictionary encoded and shares the ids of {@code left}.
+     */
+    public DictionaryVector<Int64Vector> multiply(DictionaryVector<Int64Vector> left, long right)
+    {
+        Int64Vector dictionary = left.dictionary();
+        if (dictionary != cachedDictionary || right != cachedRight) {
+            long[] result = new long[left.dictionarySize()];
+            for (int id = 0; id < result.length; id++) {
+                result[id] = multiply(dictionary.get(id), right);
+            }
+
+            cachedDictionary = dictionary;
+            cachedRight = right;
+            cachedResult = new Int64Vector(result);
+        }
+
+        return new DictionaryVector<>(cachedResult, left.dictionarySize(), left.ids());
+    }
+
+    public void multiply(DictionaryVector<Int64Vector> left, Int64Vector right, Selection selection, Int64Vector output)
+    {
+        long[] dictionary = left.dictionary().values();
+        int[] ids = left.ids();
+        long[] values = right.values();
+        long[] result = output.values();
+
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            result[position] = multiply(dictionary[ids[position]], values[position]);
+        }
+    }
 
-    public long multiply(long left, long right)
+    public static long multiply(long left, long right)
     {
         return left * right;
     }
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int128Vector;
+
+/**
+ * Multiplies the unscaled values, so the scale of the result is the sum of the scales of the inputs
+ */
+public class MultiplyDecimalDecimalFunction
+{
+    public void multiply(Int128Vector left, Int128Vector right, Selection selection, Int128Vector output)
+    {
+        boolean overflow = false;
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            overflow |= multiply(left, position, right, position, output, position) && !left.isNull(position) && !right.isNull(position);
+        }
+
+        if (overflow) {
+            throw new ArithmeticException("Decimal overflow");
+        }
+        Nulls.propagate(left.nulls(), right.nulls(), positions, selection.size(), output.nulls());
+    }
+
+    /**
+     * @return true if the result does not fit in DECIMAL(38)
+     */
+    public boolean multiply(Int128Vector left, int leftPosition, Int128Vector right, int rightPosition, Int128Vector output, int outputPosition)
+    {
+        long leftLow = left.low(leftPosition);
+        long leftHigh = left.high(leftPosition);
+
+        long rightLow = right.low(rightPosition);
+        long rightHigh = right.high(rightPosition);
+
+        boolean overflow = Int128Math.multiply(leftLow, leftHigh, rightLow, rightHigh, output, outputPosition);
+        return overflow | Int128Math.exceedsMaxPrecision(output.low(outputPosition), output.high(outputPosition));
+    }
+}
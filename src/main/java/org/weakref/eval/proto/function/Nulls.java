@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.weakref.eval.proto.vector.NullBitmap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Null handling for functions whose result is null when any input is null. The value loops run over null
+ * positions too, with whatever values are there, and these fix up the output afterwards, so the value loops
+ * are the same with and without nulls.
+ * <p>
+ * A null {@link NullBitmap} stands for a vector that cannot have nulls.
+ */
+final class Nulls
+{
+    private Nulls() {}
+
+    static boolean hasNulls(NullBitmap nulls)
+    {
+        return nulls != null && nulls.hasNulls();
+    }
+
+    /**
+     * Sets the output nulls of positions {@code [0, count)} to {@code left | right}
+     */
+    static void propagate(NullBitmap left, NullBitmap right, int count, NullBitmap output)
+    {
+        if (!checkOutput(left, right, output)) {
+            return;
+        }
+
+        long[] leftWords = left == null ? null : left.words();
+        long[] rightWords = right == null ? null : right.words();
+        long[] result = output.words();
+
+        int fullWords = count >>> 6;
+        for (int word = 0; word < fullWords; word++) {
+            result[word] = word(leftWords, word) | word(rightWords, word);
+        }
+
+        int remainder = count & 63;
+        if (remainder != 0) {
+            long mask = (1L << remainder) - 1;
+            long nulls = word(leftWords, fullWords) | word(rightWords, fullWords);
+            result[fullWords] = (result[fullWords] & ~mask) | (nulls & mask);
+        }
+    }
+
+    /**
+     * Sets the output nulls of the selected positions to {@code left | right}
+     */
+    static void propagate(NullBitmap left, NullBitmap right, int[] positions, int count, NullBitmap output)
+    {
+        if (!checkOutput(left, right, output)) {
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output.set(position, isNull(left, position) | isNull(right, position));
+        }
+    }
+
+    /**
+     * Sets the output nulls of the positions set in {@code mask} to {@code left | right}
+     */
+    static void propagate(NullBitmap left, NullBitmap right, boolean[] mask, NullBitmap output)
+    {
+        if (!checkOutput(left, right, output)) {
+            return;
+        }
+
+        for (int position = 0; position < mask.length; position++) {
+            boolean isNull = isNull(left, position) | isNull(right, position);
+            output.set(position, mask[position] ? isNull : output.isNull(position));
+        }
+    }
+
+    /**
+     * Sets the predicate results of null positions in {@code [0, count)} to false, so they are not selected
+     */
+    static void clearNulls(NullBitmap left, NullBitmap right, int count, boolean[] values)
+    {
+        for (int position = 0; position < count; position++) {
+            values[position] &= !(isNull(left, position) | isNull(right, position));
+        }
+    }
+
+    /**
+     * Sets the predicate results of the selected null positions to false, so they are not selected
+     */
+    static void clearNulls(NullBitmap left, NullBitmap right, int[] positions, int count, boolean[] values)
+    {
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            values[position] &= !(isNull(left, position) | isNull(right, position));
+        }
+    }
+
+    /**
+     * Compacts the selected positions that are not null in either input into {@code output}, which can be {@code positions}
+     *
+     * @return the number of positions left
+     */
+    static int removeNulls(NullBitmap left, NullBitmap right, int[] positions, int count, int[] output)
+    {
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += isNull(left, position) | isNull(right, position) ? 0 : 1;
+        }
+        return selected;
+    }
+
+    /**
+     * @return false if there is nothing to do: no input has nulls and the output cannot have nulls
+     */
+    private static boolean checkOutput(NullBitmap left, NullBitmap right, NullBitmap output)
+    {
+        if (output != null) {
+            return true;
+        }
+        checkArgument(!hasNulls(left) && !hasNulls(right), "output cannot have nulls, but an input has nulls");
+        return false;
+    }
+
+    private static boolean isNull(NullBitmap nulls, int position)
+    {
+        return nulls != null && nulls.isNull(position);
+    }
+
+    private static long word(long[] words, int word)
+    {
+        return words == null ? 0 : words[word];
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.mask;
+
+import org.weakref.eval.proto.vector.RunLengthBooleanVector;
+
+/**
+ * Selected positions as a list of ranges {@code [start(i), end(i))}, in increasing order and not adjacent
+ */
+public class RangeSelection
+{
+    private final int[] starts;
+    private final int[] ends;
+    private final int rangeCount;
+
+    public RangeSelection(int[] starts, int[] ends, int rangeCount)
+    {
+        this.starts = starts;
+        this.ends = ends;
+        this.rangeCount = rangeCount;
+    }
+
+    /**
+     * One range per group of consecutive true runs, without visiting the individual positions
+     */
+    public static RangeSelection fromVector(RunLengthBooleanVector vector)
+    {
+        int[] starts = new int[vector.runCount()];
+        int[] ends = new int[vector.runCount()];
+        int output = 0;
+        for (int run = 0; run < vector.runCount(); run++) {
+            if (vector.value(run)) {
+                if (output > 0 && ends[output - 1] == vector.runStart(run)) {
+                    ends[output - 1] = vector.runEnd(run);
+                }
+                else {
+                    starts[output] = vector.runStart(run);
+                    ends[output] = vector.runEnd(run);
+                    output++;
+                }
+            }
+        }
+
+        return new RangeSelection(starts, ends, output);
+    }
+
+    public int rangeCount()
+    {
+        return rangeCount;
+    }
+
+    public int start(int range)
+    {
+        return starts[range];
+    }
+
+    public int end(int range)
+    {
+        return ends[range];
+    }
+
+    /**
+     * @return the number of selected positions
+     */
+    public int size()
+    {
+        int size = 0;
+        for (int range = 0; range < rangeCount; range++) {
+            size += ends[range] - starts[range];
+        }
+        return size;
+    }
+
+    /**
+     * @param output receives the positions, so it can be reused from batch to batch. It must hold {@link #size}
+     * positions.
+     */
+    public Selection toSelection(int[] output)
+    {
+        int size = 0;
+        for (int range = 0; range < rangeCount; range++) {
+            for (int position = starts[range]; position < ends[range]; position++) {
+                output[size++] = position;
+            }
+        }
+        return new Selection(output, size);
+    }
+}
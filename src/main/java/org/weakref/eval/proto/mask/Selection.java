@@ -43,6 +43,19 @@ public class Selection
         return new Selection(positions, output);
     }
 
+    /**
+     * The first {@link #size()} entries are the selected positions
+     */
+    public int[] positions()
+    {
+        return positions;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
     public IntStream stream()
     {
         return Arrays.stream(positions).limit(size);
@@ -16,10 +16,20 @@ package org.weakref.eval.proto.vector;
 public final class BooleanVector
 {
     private final boolean[] values;
+    private final NullBitmap nulls;
 
     public BooleanVector(boolean[] values)
+    {
+        this(values, null);
+    }
+
+    /**
+     * @param nulls null positions, or null if the vector cannot have nulls
+     */
+    public BooleanVector(boolean[] values, NullBitmap nulls)
     {
         this.values = values;
+        this.nulls = nulls;
     }
 
     public boolean get(int position)
@@ -32,6 +42,32 @@ public final class BooleanVector
         values[position] = value;
     }
 
+    public boolean[] values()
+    {
+        return values;
+    }
+
+    /**
+     * @return true if any position is null. When false, the values can be used without checking {@link #isNull}.
+     */
+    public boolean hasNulls()
+    {
+        return nulls != null && nulls.hasNulls();
+    }
+
+    public boolean isNull(int position)
+    {
+        return nulls != null && nulls.isNull(position);
+    }
+
+    /**
+     * @return the null positions, or null if the vector cannot have nulls
+     */
+    public NullBitmap nulls()
+    {
+        return nulls;
+    }
+
     public int size()
     {
         return values.length;
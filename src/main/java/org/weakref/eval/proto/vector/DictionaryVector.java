@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+/**
+ * Values stored as ids into a dictionary vector of type {@code T}. The value at a position
+ * is the dictionary entry at {@code id(position)}.
+ * <p>
+ * Functions evaluate over the dictionary once and map the results over the ids. Several dictionary
+ * vectors can share the same dictionary instance (e.g., consecutive batches of the same page), so
+ * functions key any per-dictionary results on the dictionary's identity.
+ * <p>
+ * The dictionary is immutable: it must not be modified once it is in a dictionary vector, since the
+ * cached results would no longer match it. A new dictionary is a new instance. This includes the
+ * dictionaries of the vectors that functions return, which can be their cached results.
+ */
+public final class DictionaryVector<T>
+{
+    private final T dictionary;
+    private final int dictionarySize;
+    private final int[] ids;
+
+    public DictionaryVector(T dictionary, int dictionarySize, int[] ids)
+    {
+        this.dictionary = dictionary;
+        this.dictionarySize = dictionarySize;
+        this.ids = ids;
+    }
+
+    public T dictionary()
+    {
+        return dictionary;
+    }
+
+    public int dictionarySize()
+    {
+        return dictionarySize;
+    }
+
+    public int id(int position)
+    {
+        return ids[position];
+    }
+
+    public int[] ids()
+    {
+        return ids;
+    }
+
+    public int size()
+    {
+        return ids.length;
+    }
+}
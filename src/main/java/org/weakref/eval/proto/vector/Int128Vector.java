@@ -13,13 +13,27 @@
  */
 package org.weakref.eval.proto.vector;
 
+/**
+ * Position {@code i} is stored at {@code values[2 * i]} (low) and {@code values[2 * i + 1]} (high).
+ * See {@link SplitInt128Vector} for a layout with separate low and high arrays.
+ */
 public final class Int128Vector
 {
     private final long[] values;
+    private final NullBitmap nulls;
 
     public Int128Vector(long[] values)
+    {
+        this(values, null);
+    }
+
+    /**
+     * @param nulls null positions, or null if the vector cannot have nulls
+     */
+    public Int128Vector(long[] values, NullBitmap nulls)
     {
         this.values = values;
+        this.nulls = nulls;
     }
 
     public long high(int position)
@@ -38,6 +52,32 @@ public final class Int128Vector
         values[position * 2 + 1] = high;
     }
 
+    public long[] values()
+    {
+        return values;
+    }
+
+    /**
+     * @return true if any position is null. When false, the values can be used without checking {@link #isNull}.
+     */
+    public boolean hasNulls()
+    {
+        return nulls != null && nulls.hasNulls();
+    }
+
+    public boolean isNull(int position)
+    {
+        return nulls != null && nulls.isNull(position);
+    }
+
+    /**
+     * @return the null positions, or null if the vector cannot have nulls
+     */
+    public NullBitmap nulls()
+    {
+        return nulls;
+    }
+
     public int size()
     {
         return values.length / 2;
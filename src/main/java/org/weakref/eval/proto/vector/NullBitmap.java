@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Null flags of a vector, one bit per position: bit {@code i % 64} of word {@code i / 64} is set when position
+ * {@code i} is null. Compared to the boolean[] and byte[] flags in TpchData, 1024 positions take 16 words, so
+ * checking whether a batch has any nulls or combining the nulls of two inputs is cheap.
+ */
+public final class NullBitmap
+{
+    private final long[] words;
+    private final int size;
+
+    public NullBitmap(int size)
+    {
+        checkArgument(size >= 0, "size is negative");
+        this.words = new long[words(size)];
+        this.size = size;
+    }
+
+    public static NullBitmap fromBooleans(boolean[] isNull)
+    {
+        NullBitmap nulls = new NullBitmap(isNull.length);
+        for (int i = 0; i < isNull.length; i++) {
+            nulls.words[i >>> 6] |= (isNull[i] ? 1L : 0L) << i;
+        }
+        return nulls;
+    }
+
+    /**
+     * @param isNull 1 for null positions and 0 for the others, as in TpchData
+     */
+    public static NullBitmap fromBytes(byte[] isNull)
+    {
+        NullBitmap nulls = new NullBitmap(isNull.length);
+        for (int i = 0; i < isNull.length; i++) {
+            nulls.words[i >>> 6] |= (long) (isNull[i] & 1) << i;
+        }
+        return nulls;
+    }
+
+    public boolean isNull(int position)
+    {
+        return (words[position >>> 6] & (1L << position)) != 0;
+    }
+
+    public void set(int position, boolean isNull)
+    {
+        long bit = 1L << position;
+        int word = position >>> 6;
+        words[word] = (words[word] & ~bit) | (isNull ? bit : 0);
+    }
+
+    /**
+     * @return true if any position is null
+     */
+    public boolean hasNulls()
+    {
+        long any = 0;
+        for (long word : words) {
+            any |= word;
+        }
+        return any != 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(words, 0);
+    }
+
+    public long[] words()
+    {
+        return words;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public static int words(int size)
+    {
+        return (size + 63) >>> 6;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Run {@code r} covers positions {@code [runStart(r), runEnd(r))} and has value {@code value(r)}
+ */
+public final class RunLengthBooleanVector
+{
+    private final boolean[] values;
+    private final int[] runEnds;
+    private final int runCount;
+
+    public RunLengthBooleanVector(boolean[] values, int[] runEnds, int runCount)
+    {
+        checkArgument(runCount <= values.length && runCount <= runEnds.length, "runCount is larger than the arrays");
+        this.values = values;
+        this.runEnds = runEnds;
+        this.runCount = runCount;
+    }
+
+    public boolean value(int run)
+    {
+        return values[run];
+    }
+
+    public int runStart(int run)
+    {
+        return run == 0 ? 0 : runEnds[run - 1];
+    }
+
+    public int runEnd(int run)
+    {
+        return runEnds[run];
+    }
+
+    public int runCount()
+    {
+        return runCount;
+    }
+
+    public int size()
+    {
+        return runCount == 0 ? 0 : runEnds[runCount - 1];
+    }
+}
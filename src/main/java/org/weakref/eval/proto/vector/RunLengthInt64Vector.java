@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Run {@code r} covers positions {@code [runStart(r), runEnd(r))} and has value {@code value(r)}
+ */
+public final class RunLengthInt64Vector
+{
+    private final long[] values;
+    private final int[] runEnds;
+    private final int runCount;
+
+    public RunLengthInt64Vector(long[] values, int[] runEnds, int runCount)
+    {
+        checkArgument(runCount <= values.length && runCount <= runEnds.length, "runCount is larger than the arrays");
+        this.values = values;
+        this.runEnds = runEnds;
+        this.runCount = runCount;
+    }
+
+    public static RunLengthInt64Vector encode(long[] values, int count)
+    {
+        long[] runValues = new long[count];
+        int[] runEnds = new int[count];
+        int runCount = 0;
+        for (int position = 0; position < count; position++) {
+            if (runCount == 0 || values[position] != runValues[runCount - 1]) {
+                runValues[runCount] = values[position];
+                runCount++;
+            }
+            runEnds[runCount - 1] = position + 1;
+        }
+
+        return new RunLengthInt64Vector(runValues, runEnds, runCount);
+    }
+
+    public long get(int position)
+    {
+        return values[run(position)];
+    }
+
+    /**
+     * @return the run that contains {@code position}
+     */
+    public int run(int position)
+    {
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (runEnds[middle] <= position) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public long value(int run)
+    {
+        return values[run];
+    }
+
+    public int runStart(int run)
+    {
+        return run == 0 ? 0 : runEnds[run - 1];
+    }
+
+    public int runEnd(int run)
+    {
+        return runEnds[run];
+    }
+
+    public int[] runEnds()
+    {
+        return runEnds;
+    }
+
+    public int runCount()
+    {
+        return runCount;
+    }
+
+    public int size()
+    {
+        return runCount == 0 ? 0 : runEnds[runCount - 1];
+    }
+}
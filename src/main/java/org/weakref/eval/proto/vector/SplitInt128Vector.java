@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * 128-bit values with the low and high words in separate arrays, so that consecutive positions
+ * can be loaded into a vector register without a gather or shuffle
+ */
+public final class SplitInt128Vector
+{
+    private final long[] lows;
+    private final long[] highs;
+
+    public SplitInt128Vector(long[] lows, long[] highs)
+    {
+        checkArgument(lows.length == highs.length, "lows and highs have different lengths");
+        this.lows = lows;
+        this.highs = highs;
+    }
+
+    public long high(int position)
+    {
+        return highs[position];
+    }
+
+    public long low(int position)
+    {
+        return lows[position];
+    }
+
+    public void set(int position, long low, long high)
+    {
+        lows[position] = low;
+        highs[position] = high;
+    }
+
+    public long[] lows()
+    {
+        return lows;
+    }
+
+    public long[] highs()
+    {
+        return highs;
+    }
+
+    public int size()
+    {
+        return lows.length;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.vector;
+
+public final class VarcharVector
+{
+    private final byte[] values;
+    private final int[] offsets;
+
+    public VarcharVector(byte[] values, int[] offsets)
+    {
+        this.values = values;
+        this.offsets = offsets;
+    }
+
+    public byte[] values()
+    {
+        return values;
+    }
+
+    public int[] offsets()
+    {
+        return offsets;
+    }
+
+    public int start(int position)
+    {
+        return offsets[position];
+    }
+
+    public int end(int position)
+    {
+        return offsets[position + 1];
+    }
+
+    public int size()
+    {
+        return offsets.length - 1;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+/**
+ * Aggregation state for each group, in arrays indexed by group id
+ */
+public interface Accumulator
+{
+    /**
+     * Makes room for groups {@code [0, groupCount)}
+     */
+    void ensureCapacity(int groupCount);
+
+    /**
+     * Adds the value at the i-th selected position to group {@code groupIds[i]}. Null values are skipped.
+     */
+    void add(int[] groupIds, Int64Vector values, Selection selection);
+}
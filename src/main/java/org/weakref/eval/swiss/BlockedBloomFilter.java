@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bloom filter where all the bits of a value are in one 64-bit word, so a lookup is one load and one compare
+ * and touches a single cache line. The word comes from the high bits of the {@link SwissVector} hash, and the four
+ * bits within the word from 6-bit fields of the low bits. With at least {@link #BITS_PER_VALUE} bits of filter per
+ * value, about 0.3% of the values that are not in the set get through (0.5% at 16 bits, since the four bits of a
+ * value share one word).
+ * <p>
+ * The filter methods have the shapes of the eval.core predicates: in place on active positions, ANDed into a
+ * byte mask, or on a {@link Selection}. They drop most of the probe rows of a selective join before they reach
+ * the hash table or any projection.
+ */
+public class BlockedBloomFilter
+{
+    private static final int BITS_PER_VALUE = 20;
+    private static final int MAX_WORDS = 1 << 30;
+
+    private final long[] words;
+    private final int shift;
+
+    /**
+     * @param expectedSize number of values the filter is sized for
+     */
+    public BlockedBloomFilter(long expectedSize)
+    {
+        checkArgument(expectedSize > 0, "expectedSize must be greater than 0");
+        long wordCount = Math.max(1, expectedSize * BITS_PER_VALUE / Long.SIZE);
+        wordCount = 1L << (64 - Long.numberOfLeadingZeros(wordCount - 1));
+        checkArgument(wordCount <= MAX_WORDS, "Too large (" + expectedSize + " expected elements)");
+
+        words = new long[(int) wordCount];
+        // with one word the shift is 64, which Java takes as 0, so mask the index too
+        shift = 64 - Long.numberOfTrailingZeros(wordCount);
+    }
+
+    public void add(long value)
+    {
+        addHash(SwissVector.hash(value));
+    }
+
+    public boolean mightContain(long value)
+    {
+        return mightContainHash(SwissVector.hash(value));
+    }
+
+    /**
+     * Keeps the active positions whose value might be in the set, in place
+     *
+     * @return number of positions kept
+     */
+    public int filter(int count, int[] activePositions, long[] values)
+    {
+        int output = 0;
+        for (int input = 0; input < count; input++) {
+            int position = activePositions[input];
+            activePositions[output] = position;
+            output += mightContainHash(SwissVector.hash(values[position])) ? 1 : 0;
+        }
+        return output;
+    }
+
+    /**
+     * Clears the mask of the positions whose value is not in the set
+     *
+     * @return number of positions left in the mask
+     */
+    public int filter(int positionCount, byte[] mask, long[] values)
+    {
+        int count = 0;
+        for (int position = 0; position < positionCount; position++) {
+            byte match = (byte) (mask[position] & (mightContainHash(SwissVector.hash(values[position])) ? 1 : 0));
+            mask[position] = match;
+            count += match;
+        }
+        return count;
+    }
+
+    /**
+     * Keeps the selected positions whose value might be in the set. Null values are not kept.
+     *
+     * @param output receives the positions. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(Int64Vector values, Selection selection, int[] output)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        int selected = 0;
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += mightContainHash(SwissVector.hash(valueArray[position])) & !(hasNulls && values.isNull(position)) ? 1 : 0;
+        }
+        return new Selection(output, selected);
+    }
+
+    public long sizeInBytes()
+    {
+        return (long) words.length * Long.BYTES;
+    }
+
+    void addHash(long hash)
+    {
+        words[index(hash)] |= bits(hash);
+    }
+
+    private boolean mightContainHash(long hash)
+    {
+        long bits = bits(hash);
+        return (words[index(hash)] & bits) == bits;
+    }
+
+    private int index(long hash)
+    {
+        return (int) (hash >>> shift) & (words.length - 1);
+    }
+
+    private static long bits(long hash)
+    {
+        return (1L << hash) | (1L << (hash >>> 6)) | (1L << (hash >>> 12)) | (1L << (hash >>> 18));
+    }
+}
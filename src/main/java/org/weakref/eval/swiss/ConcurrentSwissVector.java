@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import jdk.incubator.vector.ByteVector;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.weakref.eval.swiss.ControlBytes.SPECIES;
+import static org.weakref.eval.swiss.ControlBytes.bucket;
+import static org.weakref.eval.swiss.ControlBytes.controlByte;
+
+/**
+ * Set of longs that any number of threads can add to and look up at the same time, without locks. It has the
+ * control bytes of {@link SwissVector}, but does not grow: it is sized up front, like a shared join build table.
+ * <p>
+ * A thread claims an empty slot by changing its control byte from 0 to {@link #CLAIMED} with a CAS, writes the
+ * value, and then publishes the slot by storing the hash prefix with release semantics. Readers load a group of
+ * control bytes without synchronization, and read the control byte of a candidate slot again with acquire
+ * semantics before they look at its value, so they never see a slot before its value.
+ * <p>
+ * Slots are never emptied, and a slot is only claimed after every slot before it in the probe sequence, so two
+ * threads adding the same value meet at the same slot: the second one waits for the first to publish the slot and
+ * then sees the value. Lookups do not wait; a value that is still being added is not found yet.
+ */
+public class ConcurrentSwissVector
+{
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // slot being written. Published slots have the high bit set.
+    private static final byte CLAIMED = 1;
+
+    private static final VarHandle CONTROL = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final byte[] control;
+    private final long[] values;
+
+    private final int capacity;
+    private final int mask;
+
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * @param expectedSize number of entries at a load factor of 7/8. More can be added until the table is full,
+     * but probes get longer.
+     */
+    public ConcurrentSwissVector(int expectedSize)
+    {
+        checkArgument(expectedSize > 0, "expectedSize must be greater than 0");
+        long expandedSize = expectedSize * 8L / 7L;
+        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
+        checkArgument(expandedSize <= MAX_CAPACITY, "Too large (" + expectedSize + " expected elements with load factor 7/8)");
+
+        capacity = (int) expandedSize;
+        mask = capacity - 1;
+        control = new byte[capacity + SPECIES.length()];
+        values = new long[capacity];
+    }
+
+    /**
+     * @return true if the value was added by this call, false if it was already in the set
+     */
+    public boolean put(long value)
+    {
+        long hash = SwissVector.hash(value);
+        byte hashPrefix = controlByte(hash);
+        int bucket = bucket(hash, mask);
+
+        for (int groups = 0; groups <= capacity / SPECIES.length(); ) {
+            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+            long empty = controlVector.eq((byte) 0).toLong();
+
+            // only the slots before the first empty one are part of the probe sequence
+            long candidates = controlVector.eq(hashPrefix).or(controlVector.eq(CLAIMED)).toLong();
+            if (empty != 0) {
+                candidates &= (empty & -empty) - 1;
+            }
+            while (candidates != 0) {
+                int slot = (bucket + Long.numberOfTrailingZeros(candidates)) & mask;
+                if (awaitPublished(slot) == hashPrefix && values[slot] == value) {
+                    return false;
+                }
+                candidates = candidates & (candidates - 1);
+            }
+
+            if (empty == 0) {
+                bucket = (bucket + SPECIES.length()) & mask;
+                groups++;
+                continue;
+            }
+
+            int slot = (bucket + Long.numberOfTrailingZeros(empty)) & mask;
+            if (CONTROL.compareAndSet(control, slot, (byte) 0, CLAIMED)) {
+                values[slot] = value;
+                publish(slot, hashPrefix);
+                size.increment();
+                return true;
+            }
+            // another thread took the slot, or the copy of a slot in the first group was stale: look at the
+            // group again, which may now hold the value
+        }
+        throw new IllegalStateException("Table is full");
+    }
+
+    public boolean find(long value)
+    {
+        long hash = SwissVector.hash(value);
+        byte hashPrefix = controlByte(hash);
+        int bucket = bucket(hash, mask);
+
+        for (int groups = 0; groups <= capacity / SPECIES.length(); groups++) {
+            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+
+            long matches = controlVector.eq(hashPrefix).toLong();
+            while (matches != 0) {
+                int slot = (bucket + Long.numberOfTrailingZeros(matches)) & mask;
+                if ((byte) CONTROL.getAcquire(control, slot) == hashPrefix && values[slot] == value) {
+                    return true;
+                }
+                matches = matches & (matches - 1);
+            }
+
+            if (controlVector.eq((byte) 0).anyTrue()) {
+                return false;
+            }
+
+            bucket = (bucket + SPECIES.length()) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the selected values. Null values are not added.
+     */
+    public void putAll(Int64Vector values, Selection selection)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            if (!values.isNull(position)) {
+                put(valueArray[position]);
+            }
+        }
+    }
+
+    /**
+     * @return number of values, which is exact only when no values are being added
+     */
+    public long size()
+    {
+        return size.sum();
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the control byte of the slot once it is no longer {@link #CLAIMED}
+     */
+    private byte awaitPublished(int slot)
+    {
+        byte value = (byte) CONTROL.getAcquire(control, slot);
+        while (value == CLAIMED) {
+            Thread.onSpinWait();
+            value = (byte) CONTROL.getAcquire(control, slot);
+        }
+        return value;
+    }
+
+    private void publish(int slot, byte hashPrefix)
+    {
+        CONTROL.setRelease(control, slot, hashPrefix);
+        if (slot < SPECIES.length()) {
+            CONTROL.setRelease(control, slot + capacity, hashPrefix);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Probing of tables that keep the control bytes of {@link SwissVector} in a byte[] of {@code capacity +
+ * SPECIES.length()} entries. A probe starts at the bucket given by the hash bits above the 7 in the control byte,
+ * and moves one group of {@code SPECIES.length()} slots at a time until a group has an empty slot.
+ */
+final class ControlBytes
+{
+    static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private ControlBytes() {}
+
+    /**
+     * @return the control byte of a full slot: the low 7 bits of the hash with the high bit set
+     */
+    static byte controlByte(long hash)
+    {
+        return (byte) (hash & 0x7F | 0x80);
+    }
+
+    static int bucket(long hash, int mask)
+    {
+        return (int) (hash >> 7) & mask;
+    }
+
+    /**
+     * Probes a table that holds the key of each slot at {@code entries[2 * slot]}
+     *
+     * @return the slot of the key, or {@code -1 - slot} of the first empty slot of the probe sequence
+     */
+    static int probe(byte[] control, long[] entries, int mask, long key, long hash)
+    {
+        byte controlByte = controlByte(hash);
+        int bucket = bucket(hash, mask);
+
+        while (true) {
+            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+
+            long matches = controlVector.eq(controlByte).toLong();
+            while (matches != 0) {
+                int slot = (bucket + Long.numberOfTrailingZeros(matches)) & mask;
+                if (entries[2 * slot] == key) {
+                    return slot;
+                }
+
+                matches = matches & (matches - 1);
+            }
+
+            long empty = controlVector.eq((byte) 0).toLong();
+            if (empty != 0) {
+                return -1 - ((bucket + Long.numberOfTrailingZeros(empty)) & mask);
+            }
+
+            bucket = (bucket + SPECIES.length()) & mask;
+        }
+    }
+
+    /**
+     * @return the first empty slot of the probe sequence of the hash, where a key that is not in the table goes
+     */
+    static int emptySlot(byte[] control, int mask, long hash)
+    {
+        int bucket = bucket(hash, mask);
+        while (true) {
+            long empty = ByteVector.fromArray(SPECIES, control, bucket).eq((byte) 0).toLong();
+            if (empty != 0) {
+                return (bucket + Long.numberOfTrailingZeros(empty)) & mask;
+            }
+            bucket = (bucket + SPECIES.length()) & mask;
+        }
+    }
+
+    /**
+     * Sets the control byte of the slot, and its copy after the last slot if it is in the first group
+     */
+    static void setControl(byte[] control, int capacity, int slot, byte value)
+    {
+        control[slot] = value;
+        if (slot < SPECIES.length()) {
+            control[slot + capacity] = value;
+        }
+    }
+}
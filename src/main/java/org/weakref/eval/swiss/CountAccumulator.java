@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+/**
+ * Number of non-null values
+ */
+public class CountAccumulator
+        implements Accumulator
+{
+    private long[] counts = new long[0];
+
+    @Override
+    public void ensureCapacity(int groupCount)
+    {
+        if (counts.length < groupCount) {
+            counts = Arrays.copyOf(counts, Math.max(groupCount, counts.length * 2));
+        }
+    }
+
+    @Override
+    public void add(int[] groupIds, Int64Vector values, Selection selection)
+    {
+        if (!values.hasNulls()) {
+            for (int i = 0; i < selection.size(); i++) {
+                counts[groupIds[i]]++;
+            }
+            return;
+        }
+
+        int[] positions = selection.positions();
+        for (int i = 0; i < selection.size(); i++) {
+            counts[groupIds[i]] += values.isNull(positions[i]) ? 0 : 1;
+        }
+    }
+
+    public long count(int groupId)
+    {
+        return counts[groupId];
+    }
+}
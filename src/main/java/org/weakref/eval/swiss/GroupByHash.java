@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.weakref.eval.swiss.ControlBytes.SPECIES;
+import static org.weakref.eval.swiss.ControlBytes.controlByte;
+import static org.weakref.eval.swiss.ControlBytes.emptySlot;
+import static org.weakref.eval.swiss.ControlBytes.probe;
+import static org.weakref.eval.swiss.ControlBytes.setControl;
+
+/**
+ * Assigns group ids 0, 1, 2, ... to long keys in the order they are first seen. The table has the control bytes of
+ * {@link SwissVector}, and each slot holds the key and its group id next to each other, so a match needs no other
+ * memory access. The keys are also kept in group id order, to produce the output and to rehash.
+ * <p>
+ * Null keys are a group of their own.
+ */
+public class GroupByHash
+{
+    private static final int BATCH_SIZE = 256;
+    // two longs per slot in one array
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private byte[] control;
+    // key at 2 * slot, group id at 2 * slot + 1
+    private long[] entries;
+
+    private int capacity;
+    private int mask;
+    private int size;
+    private int maxSize;
+
+    private long[] groupKeys;
+    private int groupCount;
+    private int nullGroupId = -1;
+
+    private final long[] hashes = new long[BATCH_SIZE];
+
+    public GroupByHash(int expectedGroups)
+    {
+        checkArgument(expectedGroups > 0, "expectedGroups must be greater than 0");
+        long expandedSize = expectedGroups * 8L / 7L;
+        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
+        checkArgument(expandedSize <= MAX_CAPACITY, "Too large (" + expectedGroups + " expected groups with load factor 7/8)");
+
+        allocate((int) expandedSize);
+        groupKeys = new long[expectedGroups];
+    }
+
+    /**
+     * Sets {@code groupIds[i]} to the group of the key at the i-th selected position, adding groups for new keys
+     */
+    public void getGroupIds(Int64Vector keys, Selection selection, int[] groupIds)
+    {
+        long[] values = keys.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = keys.hasNulls();
+
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            for (int i = start; i < end; i++) {
+                hashes[i - start] = SwissVector.hash(values[positions[i]]);
+            }
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                if (hasNulls && keys.isNull(position)) {
+                    groupIds[i] = nullGroupId();
+                }
+                else {
+                    groupIds[i] = getGroupId(values[position], hashes[i - start]);
+                }
+            }
+        }
+    }
+
+    public int getGroupId(long key)
+    {
+        return getGroupId(key, SwissVector.hash(key));
+    }
+
+    public int groupCount()
+    {
+        return groupCount;
+    }
+
+    public long key(int groupId)
+    {
+        return groupKeys[groupId];
+    }
+
+    public boolean isNull(int groupId)
+    {
+        return groupId == nullGroupId;
+    }
+
+    private int getGroupId(long key, long hash)
+    {
+        int slot = probe(control, entries, mask, key, hash);
+        if (slot >= 0) {
+            return (int) entries[2 * slot + 1];
+        }
+
+        if (size == maxSize) {
+            rehash(capacity * 2);
+            slot = emptySlot(control, mask, hash);
+        }
+        else {
+            slot = -1 - slot;
+        }
+
+        int groupId = addGroup(key);
+        insert(slot, controlByte(hash), key, groupId);
+        return groupId;
+    }
+
+    private int nullGroupId()
+    {
+        if (nullGroupId < 0) {
+            nullGroupId = addGroup(0);
+        }
+        return nullGroupId;
+    }
+
+    private int addGroup(long key)
+    {
+        if (groupCount == groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, groupCount * 2);
+        }
+        groupKeys[groupCount] = key;
+        return groupCount++;
+    }
+
+    private void insert(int slot, byte controlByte, long key, int groupId)
+    {
+        size++;
+        setControl(control, capacity, slot, controlByte);
+        entries[2 * slot] = key;
+        entries[2 * slot + 1] = groupId;
+    }
+
+    /**
+     * Rebuilds the table from the keys in group id order, which are distinct, so there is nothing to compare
+     */
+    private void rehash(int newCapacity)
+    {
+        checkState(newCapacity <= MAX_CAPACITY, "Table is full");
+        allocate(newCapacity);
+
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            if (groupId == nullGroupId) {
+                continue;
+            }
+
+            long key = groupKeys[groupId];
+            long hash = SwissVector.hash(key);
+            insert(emptySlot(control, mask, hash), controlByte(hash), key, groupId);
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.capacity = capacity;
+        mask = capacity - 1;
+        size = 0;
+        maxSize = (int) (capacity * 7L / 8L);
+        control = new byte[capacity + SPECIES.length()];
+        entries = new long[2 * capacity];
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import com.google.common.collect.ImmutableList;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * GROUP BY over a long key. Each batch is turned into one group id per selected position by {@link GroupByHash},
+ * and each accumulator then runs its own loop over the group ids and its input column. Nothing is allocated for a
+ * batch, other than when the number of groups or the batch size grows past what was seen before.
+ */
+public class HashAggregation
+{
+    private final GroupByHash groupByHash;
+    private final List<Accumulator> accumulators;
+
+    private int[] groupIds = new int[1024];
+
+    public HashAggregation(int expectedGroups, List<Accumulator> accumulators)
+    {
+        this.groupByHash = new GroupByHash(expectedGroups);
+        this.accumulators = ImmutableList.copyOf(accumulators);
+    }
+
+    /**
+     * @param inputs the input column of each accumulator
+     */
+    public void add(Int64Vector keys, List<Int64Vector> inputs, Selection selection)
+    {
+        checkArgument(inputs.size() == accumulators.size(), "expected %s inputs, got %s", accumulators.size(), inputs.size());
+
+        if (groupIds.length < selection.size()) {
+            groupIds = new int[selection.size()];
+        }
+        groupByHash.getGroupIds(keys, selection, groupIds);
+
+        for (int i = 0; i < accumulators.size(); i++) {
+            Accumulator accumulator = accumulators.get(i);
+            accumulator.ensureCapacity(groupByHash.groupCount());
+            accumulator.add(groupIds, inputs.get(i), selection);
+        }
+    }
+
+    public int groupCount()
+    {
+        return groupByHash.groupCount();
+    }
+
+    public long key(int groupId)
+    {
+        return groupByHash.key(groupId);
+    }
+
+    public boolean isNullKey(int groupId)
+    {
+        return groupByHash.isNull(groupId);
+    }
+}
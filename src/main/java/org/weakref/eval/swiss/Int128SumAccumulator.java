@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.function.Int128Math;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int128Vector;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+/**
+ * Sum of the non-null values as a 128-bit integer, so it cannot overflow for fewer than 2^64 values. The sums
+ * are in an {@link Int128Vector} indexed by group id.
+ */
+public class Int128SumAccumulator
+        implements Accumulator
+{
+    private Int128Vector sums = new Int128Vector(new long[0]);
+    private boolean[] hasValue = new boolean[0];
+
+    @Override
+    public void ensureCapacity(int groupCount)
+    {
+        if (hasValue.length < groupCount) {
+            int capacity = Math.max(groupCount, hasValue.length * 2);
+            sums = new Int128Vector(Arrays.copyOf(sums.values(), 2 * capacity));
+            hasValue = Arrays.copyOf(hasValue, capacity);
+        }
+    }
+
+    @Override
+    public void add(int[] groupIds, Int64Vector values, Selection selection)
+    {
+        long[] input = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        boolean overflow = false;
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            int groupId = groupIds[i];
+
+            boolean isNull = hasNulls && values.isNull(position);
+            long value = isNull ? 0 : input[position];
+            overflow |= Int128Math.add(sums.low(groupId), sums.high(groupId), value, value >> 63, sums, groupId);
+            hasValue[groupId] |= !isNull;
+        }
+
+        if (overflow) {
+            throw new ArithmeticException("Sum overflow");
+        }
+    }
+
+    public boolean isNull(int groupId)
+    {
+        return !hasValue[groupId];
+    }
+
+    public long low(int groupId)
+    {
+        return sums.low(groupId);
+    }
+
+    public long high(int groupId)
+    {
+        return sums.high(groupId);
+    }
+}
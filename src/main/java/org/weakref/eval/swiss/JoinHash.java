@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.weakref.eval.swiss.ControlBytes.SPECIES;
+import static org.weakref.eval.swiss.ControlBytes.controlByte;
+import static org.weakref.eval.swiss.ControlBytes.emptySlot;
+import static org.weakref.eval.swiss.ControlBytes.probe;
+import static org.weakref.eval.swiss.ControlBytes.setControl;
+
+/**
+ * Build side of a hash join on a long key. Build rows get ids 0, 1, 2, ... in the order they are added. The table
+ * has the control bytes of {@link SwissVector} and holds each distinct key once, next to the id of its last added
+ * row. The other rows with the same key are chained through {@link #next(int)}, so duplicates do not make the
+ * table any larger or the probes any longer.
+ * <p>
+ * Rows with a null key get an id but are not in the table, so they never match. See {@link JoinProbe} for the
+ * probe side.
+ */
+public class JoinHash
+{
+    // two longs per slot in one array
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private byte[] control;
+    // key at 2 * slot, last row with the key at 2 * slot + 1
+    private long[] entries;
+
+    private int capacity;
+    private int mask;
+    private int size;
+    private int maxSize;
+
+    // previous row with the same key, or -1
+    private int[] next;
+    private int rowCount;
+
+    public JoinHash(int expectedKeys)
+    {
+        checkArgument(expectedKeys > 0, "expectedKeys must be greater than 0");
+        long expandedSize = expectedKeys * 8L / 7L;
+        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
+        checkArgument(expandedSize <= MAX_CAPACITY, "Too large (" + expectedKeys + " expected keys with load factor 7/8)");
+
+        allocate((int) expandedSize);
+        next = new int[expectedKeys];
+    }
+
+    /**
+     * Adds a build row for each selected position
+     *
+     * @return the id of the row of the first selected position. The others follow in order.
+     */
+    public int addRows(Int64Vector keys, Selection selection)
+    {
+        int firstRow = rowCount;
+        if (next.length < rowCount + selection.size()) {
+            next = Arrays.copyOf(next, Math.max(rowCount + selection.size(), next.length * 2));
+        }
+
+        long[] values = keys.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = keys.hasNulls();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            int row = rowCount++;
+            if (hasNulls && keys.isNull(position)) {
+                next[row] = -1;
+            }
+            else {
+                long key = values[position];
+                next[row] = add(key, SwissVector.hash(key), row);
+            }
+        }
+        return firstRow;
+    }
+
+    public int rowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * @return the last added row with the key, or -1
+     */
+    public int first(long key)
+    {
+        return first(key, SwissVector.hash(key));
+    }
+
+    /**
+     * @return the row added before {@code row} with the same key, or -1
+     */
+    public int next(int row)
+    {
+        return next[row];
+    }
+
+    int first(long key, long hash)
+    {
+        int slot = probe(control, entries, mask, key, hash);
+        return slot >= 0 ? (int) entries[2 * slot + 1] : -1;
+    }
+
+    /**
+     * Makes {@code row} the first row of the key
+     *
+     * @return the previous first row, or -1
+     */
+    private int add(long key, long hash, int row)
+    {
+        int slot = probe(control, entries, mask, key, hash);
+        if (slot >= 0) {
+            int previous = (int) entries[2 * slot + 1];
+            entries[2 * slot + 1] = row;
+            return previous;
+        }
+
+        if (size == maxSize) {
+            rehash(capacity * 2);
+            slot = emptySlot(control, mask, hash);
+        }
+        else {
+            slot = -1 - slot;
+        }
+        insert(slot, controlByte(hash), key, row);
+        return -1;
+    }
+
+    private void insert(int slot, byte controlByte, long key, long row)
+    {
+        size++;
+        setControl(control, capacity, slot, controlByte);
+        entries[2 * slot] = key;
+        entries[2 * slot + 1] = row;
+    }
+
+    private void rehash(int newCapacity)
+    {
+        checkState(newCapacity <= MAX_CAPACITY, "Table is full");
+        byte[] oldControl = control;
+        long[] oldEntries = entries;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            if (oldControl[oldSlot] == 0) {
+                continue;
+            }
+
+            long key = oldEntries[2 * oldSlot];
+            insert(emptySlot(control, mask, SwissVector.hash(key)), oldControl[oldSlot], key, oldEntries[2 * oldSlot + 1]);
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.capacity = capacity;
+        mask = capacity - 1;
+        size = 0;
+        maxSize = (int) (capacity * 7L / 8L);
+        control = new byte[capacity + SPECIES.length()];
+        entries = new long[2 * capacity];
+    }
+}
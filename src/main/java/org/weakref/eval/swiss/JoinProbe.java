@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Probe side of a hash join against a {@link JoinHash}. {@link #reset} looks up the first matching build row of
+ * every selected position in one pass over the batch. {@link #next} then walks the chains of duplicates and emits
+ * the matching (probe position, build row) pairs into two arrays, at most {@code maxOutputSize} at a time, so a
+ * key with many duplicates takes as many calls as it needs.
+ * <pre>{@code
+ * probe.reset(keys, selection);
+ * while (probe.next()) {
+ *     // the first probe.size() entries of probe.probePositions() and probe.buildRows()
+ * }
+ * }</pre>
+ */
+public class JoinProbe
+{
+    private final JoinHash hash;
+
+    private final int[] probePositions;
+    private final int[] buildRows;
+    private int size;
+
+    private int[] positions;
+    private int count;
+    // first build row of each selected position, or -1
+    private int[] firstRows = new int[0];
+
+    private int index;
+    private int row;
+
+    public JoinProbe(JoinHash hash, int maxOutputSize)
+    {
+        checkArgument(maxOutputSize > 0, "maxOutputSize must be greater than 0");
+        this.hash = hash;
+        probePositions = new int[maxOutputSize];
+        buildRows = new int[maxOutputSize];
+    }
+
+    /**
+     * Starts probing the selected positions. The selection must not change until {@link #next} returns false.
+     */
+    public void reset(Int64Vector keys, Selection selection)
+    {
+        positions = selection.positions();
+        count = selection.size();
+        if (firstRows.length < count) {
+            firstRows = new int[count];
+        }
+
+        long[] values = keys.values();
+        boolean hasNulls = keys.hasNulls();
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            long key = values[position];
+            firstRows[i] = hasNulls && keys.isNull(position) ? -1 : hash.first(key, SwissVector.hash(key));
+        }
+
+        index = 0;
+        row = count == 0 ? -1 : firstRows[0];
+        size = 0;
+    }
+
+    /**
+     * Emits the next pairs
+     *
+     * @return false if there are no more pairs
+     */
+    public boolean next()
+    {
+        size = 0;
+        while (index < count) {
+            if (row < 0) {
+                index++;
+                row = index < count ? firstRows[index] : -1;
+                continue;
+            }
+            if (size == probePositions.length) {
+                return true;
+            }
+
+            probePositions[size] = positions[index];
+            buildRows[size] = row;
+            size++;
+            row = hash.next(row);
+        }
+        return size > 0;
+    }
+
+    public int[] probePositions()
+    {
+        return probePositions;
+    }
+
+    public int[] buildRows()
+    {
+        return buildRows;
+    }
+
+    /**
+     * @return number of pairs emitted by the last call to {@link #next}
+     */
+    public int size()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+/**
+ * Smallest non-null value, or null if there are none
+ */
+public class MinAccumulator
+        implements Accumulator
+{
+    private long[] mins = new long[0];
+    private boolean[] hasValue = new boolean[0];
+
+    @Override
+    public void ensureCapacity(int groupCount)
+    {
+        if (mins.length < groupCount) {
+            int capacity = Math.max(groupCount, mins.length * 2);
+            int previous = mins.length;
+            mins = Arrays.copyOf(mins, capacity);
+            Arrays.fill(mins, previous, capacity, Long.MAX_VALUE);
+            hasValue = Arrays.copyOf(hasValue, capacity);
+        }
+    }
+
+    @Override
+    public void add(int[] groupIds, Int64Vector values, Selection selection)
+    {
+        long[] input = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            int groupId = groupIds[i];
+
+            boolean isNull = hasNulls && values.isNull(position);
+            long value = isNull ? Long.MAX_VALUE : input[position];
+            mins[groupId] = Math.min(mins[groupId], value);
+            hasValue[groupId] |= !isNull;
+        }
+    }
+
+    public boolean isNull(int groupId)
+    {
+        return !hasValue[groupId];
+    }
+
+    public long min(int groupId)
+    {
+        return mins[groupId];
+    }
+}
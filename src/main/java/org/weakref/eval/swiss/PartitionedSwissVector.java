@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+/**
+ * Set of longs split into a power of two number of {@link SwissVector} partitions by the high bits of the hash.
+ * The tables use the low bits, so the bits that pick the partition do not make the tables any more crowded.
+ * <p>
+ * {@link #build} builds the set from a column in three parallel steps, each split into one task per thread of the
+ * executor, or fewer for small inputs:
+ * <ol>
+ * <li>hash a slice of the input and count the values of each partition</li>
+ * <li>copy the values and hashes of the slice into one array grouped by partition, at offsets that come from
+ * the counts, so no two tasks write to the same place</li>
+ * <li>build the tables of a range of partitions from their parts of the array</li>
+ * </ol>
+ * No task waits for another or shares a table, so the build scales with the number of threads until memory
+ * bandwidth runs out. Lookups go to the table of the partition the hash picks.
+ */
+public class PartitionedSwissVector
+        implements AutoCloseable
+{
+    private static final int MAX_PARTITIONS = 1 << 12;
+    // the counts and offsets are chunks x partitions ints
+    private static final int MAX_CHUNKS = 1 << 8;
+    private static final int MIN_CHUNK_SIZE = 1 << 14;
+
+    private final SwissVector[] partitions;
+    private final int partitionMask;
+    private final int shift;
+
+    private PartitionedSwissVector(SwissVector[] partitions)
+    {
+        this.partitions = partitions;
+        partitionMask = partitions.length - 1;
+        // with one partition the shift is 64, which Java takes as 0, and the mask makes it partition 0 anyway
+        shift = 64 - Integer.numberOfTrailingZeros(partitions.length);
+    }
+
+    /**
+     * Builds a set of the selected values. Null values are not added.
+     *
+     * @param partitionCount number of tables, a power of two. At least the number of threads of
+     * {@code executor}, so that every thread has a table to build.
+     */
+    public static PartitionedSwissVector build(Int64Vector values, Selection selection, int partitionCount, ExecutorService executor)
+    {
+        checkArgument(partitionCount > 0 && partitionCount <= MAX_PARTITIONS && Integer.bitCount(partitionCount) == 1,
+                "partitionCount must be a power of two between 1 and %s", MAX_PARTITIONS);
+
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        int size = selection.size();
+        int mask = partitionCount - 1;
+        int shift = 64 - Integer.numberOfTrailingZeros(partitionCount);
+
+        int chunkCount = Math.max(1, Math.min(Math.min(parallelism(executor), MAX_CHUNKS), size / MIN_CHUNK_SIZE));
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+
+        // hash and count
+        long[] hashes = new long[size];
+        int[][] counts = new int[chunkCount][partitionCount];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int start = Math.min(chunk * chunkSize, size);
+            int end = Math.min(start + chunkSize, size);
+            int[] chunkCounts = counts[chunk];
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    int position = positions[i];
+                    if (!values.isNull(position)) {
+                        long hash = SwissVector.hash(valueArray[position]);
+                        hashes[i] = hash;
+                        chunkCounts[(int) (hash >>> shift) & mask]++;
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(executor, tasks);
+
+        // each chunk writes its values of a partition after those of the chunks before it
+        int[][] offsets = new int[chunkCount][partitionCount];
+        int[] partitionStarts = new int[partitionCount + 1];
+        int offset = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitionStarts[partition] = offset;
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                offsets[chunk][partition] = offset;
+                offset += counts[chunk][partition];
+            }
+        }
+        partitionStarts[partitionCount] = offset;
+
+        // scatter
+        long[] partitionedValues = new long[offset];
+        long[] partitionedHashes = new long[offset];
+        tasks.clear();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int start = Math.min(chunk * chunkSize, size);
+            int end = Math.min(start + chunkSize, size);
+            int[] chunkOffsets = offsets[chunk];
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    int position = positions[i];
+                    if (!values.isNull(position)) {
+                        long hash = hashes[i];
+                        int target = chunkOffsets[(int) (hash >>> shift) & mask]++;
+                        partitionedValues[target] = valueArray[position];
+                        partitionedHashes[target] = hash;
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(executor, tasks);
+
+        // build
+        SwissVector[] partitions = new SwissVector[partitionCount];
+        tasks.clear();
+        int partitionsPerTask = (partitionCount + chunkCount - 1) / chunkCount;
+        for (int first = 0; first < partitionCount; first += partitionsPerTask) {
+            int firstPartition = first;
+            int lastPartition = Math.min(first + partitionsPerTask, partitionCount);
+            tasks.add(() -> {
+                for (int partition = firstPartition; partition < lastPartition; partition++) {
+                    int start = partitionStarts[partition];
+                    int end = partitionStarts[partition + 1];
+                    SwissVector table = new SwissVector(Math.max(end - start, 1));
+                    for (int i = start; i < end; i++) {
+                        table.put(partitionedValues[i], partitionedHashes[i]);
+                    }
+                    partitions[partition] = table;
+                }
+                return null;
+            });
+        }
+        runAll(executor, tasks);
+
+        return new PartitionedSwissVector(partitions);
+    }
+
+    public boolean find(long value)
+    {
+        long hash = SwissVector.hash(value);
+        return partition(hash).find(value, hash);
+    }
+
+    /**
+     * Sets each selected position of {@code output} to whether the value is in the set. Null values are not.
+     */
+    public void find(Int64Vector values, Selection selection, BooleanVector output)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            output.set(position, find(valueArray[position]) & !(hasNulls && values.isNull(position)));
+        }
+    }
+
+    /**
+     * Keeps the selected positions whose value is in the set. Null values are not kept.
+     *
+     * @param output receives the positions. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(Int64Vector values, Selection selection, int[] output)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        int selected = 0;
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            output[selected] = position;
+            selected += find(valueArray[position]) & !(hasNulls && values.isNull(position)) ? 1 : 0;
+        }
+        return new Selection(output, selected);
+    }
+
+    public int partitionCount()
+    {
+        return partitions.length;
+    }
+
+    public long size()
+    {
+        long size = 0;
+        for (SwissVector partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    public long sizeInBytes()
+    {
+        long bytes = 0;
+        for (SwissVector partition : partitions) {
+            bytes += partition.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close()
+    {
+        for (SwissVector partition : partitions) {
+            partition.close();
+        }
+    }
+
+    private SwissVector partition(long hash)
+    {
+        return partitions[(int) (hash >>> shift) & partitionMask];
+    }
+
+    private static int parallelism(ExecutorService executor)
+    {
+        if (executor instanceof ForkJoinPool pool) {
+            return pool.getParallelism();
+        }
+        if (executor instanceof ThreadPoolExecutor pool) {
+            return pool.getMaximumPoolSize();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks)
+    {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
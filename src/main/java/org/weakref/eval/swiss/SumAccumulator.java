@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.Int64Vector;
+
+import java.util.Arrays;
+
+/**
+ * Sum of the non-null values, or null if there are none. Fails on overflow.
+ */
+public class SumAccumulator
+        implements Accumulator
+{
+    private long[] sums = new long[0];
+    private boolean[] hasValue = new boolean[0];
+
+    @Override
+    public void ensureCapacity(int groupCount)
+    {
+        if (sums.length < groupCount) {
+            int capacity = Math.max(groupCount, sums.length * 2);
+            sums = Arrays.copyOf(sums, capacity);
+            hasValue = Arrays.copyOf(hasValue, capacity);
+        }
+    }
+
+    @Override
+    public void add(int[] groupIds, Int64Vector values, Selection selection)
+    {
+        long[] input = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        boolean overflow = false;
+        for (int i = 0; i < selection.size(); i++) {
+            int position = positions[i];
+            int groupId = groupIds[i];
+
+            // a null adds 0 and leaves hasValue as it is
+            boolean isNull = hasNulls && values.isNull(position);
+            long value = isNull ? 0 : input[position];
+            long sum = sums[groupId];
+            long result = sum + value;
+
+            overflow |= ((sum ^ result) & (value ^ result)) < 0;
+            sums[groupId] = result;
+            hasValue[groupId] |= !isNull;
+        }
+
+        if (overflow) {
+            throw new ArithmeticException("Sum overflow");
+        }
+    }
+
+    public boolean isNull(int groupId)
+    {
+        return !hasValue[groupId];
+    }
+
+    public long sum(int groupId)
+    {
+        return sums[groupId];
+    }
+}
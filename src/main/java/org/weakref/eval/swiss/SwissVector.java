@@ -16,128 +16,474 @@ package org.weakref.eval.swiss;
 import jdk.incubator.vector.ByteVector;
 import jdk.incubator.vector.VectorMask;
 import jdk.incubator.vector.VectorSpecies;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
 
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.VarHandle;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentScope;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Long.rotateLeft;
-import static java.lang.Math.toIntExact;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
 
+/**
+ * Set of longs. The table doubles when it reaches a load factor of 7/8. Rather than moving every entry at once,
+ * the old table is kept until its entries have been moved, a few slots for every put, so no single put has to
+ * rehash the whole table. Until then, lookups check both tables.
+ * <p>
+ * Tables whose arrays fit in a byte[] are on heap, and larger ones are off heap. Tables created with
+ * {@link #offHeap} are always off heap, each in its own {@link Arena}, so the old table is freed as soon as its
+ * entries have been moved, and the current one by {@link #close()}, without waiting for the GC.
+ * <p>
+ * The batch methods work on the selected positions of a column, {@link #BATCH_SIZE} positions at a time. They
+ * hash the whole batch and load the first control byte of every probe before probing any of them, so the cache
+ * misses of a batch overlap instead of being taken one after the other. The control byte is also a shortcut:
+ * slots are never emptied, so if the first slot of a probe is empty, the value is not in the table.
+ */
 public class SwissVector
+        implements AutoCloseable
 {
     private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
-    private static final VarHandle LONG_HANDLE = MethodHandles.byteArrayViewVarHandle(long[].class, LITTLE_ENDIAN);
     private static final int VALUE_WIDTH = Long.BYTES;
 
-    private final byte[] control;
-    private final byte[] values;
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    // the bucket comes from the hash bits above the 7 used for the control byte
+    private static final long MAX_CAPACITY = 1L << 56;
+
+    // largest byte[] the VM can allocate
+    private static final long MAX_HEAP_BYTES = Integer.MAX_VALUE - 8;
+
+    // Slots moved out of the old table on every put. The new table takes another 7/8 * capacity puts before
+    // it is full, so anything above 8/7 of a slot per put finishes in time.
+    private static final int MIGRATION_STEP = SPECIES.length();
+
+    private static final int BATCH_SIZE = 256;
+
+    private final boolean offHeap;
+
+    private Table table;
+
+    // table being moved into {@link #table}, or null
+    private Table previous;
+    private long migrated;
 
-    private final int capacity;
-    private final int mask;
+    private long size;
 
-    private int size;
-    private final int maxSize;
+    private final long[] hashes = new long[BATCH_SIZE];
+    private final byte[] firstControls = new byte[BATCH_SIZE];
 
-    public SwissVector(int maxSize)
+    public SwissVector()
     {
-        checkArgument(maxSize > 0, "maxSize must be greater than 0");
-        long expandedSize = maxSize * 8L / 7L;
-        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
-        checkArgument(expandedSize < (1L << 30), "Too large (" + maxSize + " expected elements with load factor 7/8)");
-        capacity = (int) expandedSize;
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * @param expectedSize number of entries that fit before the first resize
+     */
+    public SwissVector(long expectedSize)
+    {
+        this(expectedSize, false);
+    }
 
-        this.maxSize = maxSize;
-        mask = capacity - 1;
-        control = new byte[capacity + SPECIES.length()];
-        values = new byte[toIntExact(((long) VALUE_WIDTH * capacity))];
+    /**
+     * Creates a set that is off heap at any size, and must be closed
+     */
+    public static SwissVector offHeap(long expectedSize)
+    {
+        return new SwissVector(expectedSize, true);
+    }
+
+    private SwissVector(long expectedSize, boolean offHeap)
+    {
+        this.offHeap = offHeap;
+        checkArgument(expectedSize > 0, "expectedSize must be greater than 0");
+        long expandedSize = expectedSize * 8 / 7;
+        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
+        checkArgument(expandedSize <= MAX_CAPACITY, "Too large (" + expectedSize + " expected elements with load factor 7/8)");
+        table = new Table(expandedSize, offHeap);
     }
 
     public boolean put(long value)
     {
-        checkState(size < maxSize, "Table is full");
+        return put(value, hash(value));
+    }
 
-        long hash = hash(value);
+    boolean put(long value, long hash)
+    {
+        long slot = table.probe(value, hash);
+        if (slot >= 0 || (previous != null && previous.find(value, hash))) {
+            return true;
+        }
 
-        byte hashPrefix = (byte) (hash & 0x7F | 0x80);
-        int bucket = bucket((int) (hash >> 7));
+        if (table.size >= table.maxSize) {
+            grow();
+            table.insert(value, hash);
+        }
+        else {
+            // the probe stopped at the first empty slot, which is where insert would put the value
+            table.insertAt(-1 - slot, value, hash);
+        }
+        size++;
 
-        while (true) {
-            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+        if (previous != null) {
+            migrate();
+        }
+        return true;
+    }
 
-            long matches = controlVector.eq(hashPrefix).toLong();
-            while (matches != 0) {
-                int index = bucket(bucket + Long.numberOfTrailingZeros(matches)) * VALUE_WIDTH;
+    public boolean find(long value)
+    {
+        return find(value, hash(value));
+    }
 
-                if ((long) LONG_HANDLE.get(values, index) == value) {
-                    return true;
-                }
+    boolean find(long value, long hash)
+    {
+        return table.find(value, hash) || (previous != null && previous.find(value, hash));
+    }
 
-                matches = matches & (matches - 1);
+    /**
+     * Adds the selected values. Null values are not added.
+     */
+    public void putAll(Int64Vector values, Selection selection)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(valueArray, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                if (!values.isNull(position)) {
+                    put(valueArray[position], hashes[i - start]);
+                }
             }
+        }
+    }
 
-            VectorMask<Byte> isEmpty = controlVector.eq((byte) 0);
-            if (isEmpty.anyTrue()) {
-                int emptyIndex = bucket(bucket + isEmpty.firstTrue());
-                control[emptyIndex] = hashPrefix;
-                if (emptyIndex < SPECIES.length()) {
-                    control[emptyIndex + capacity] = hashPrefix;
-                }
+    /**
+     * Sets each selected position of {@code output} to whether the value is in the set. Null values are not.
+     */
+    public void find(Int64Vector values, Selection selection, BooleanVector output)
+    {
+        find(values.values(), selection, output.values());
 
-                int index = emptyIndex * VALUE_WIDTH;
-                LONG_HANDLE.set(values, index, value);
+        if (values.hasNulls()) {
+            int[] positions = selection.positions();
+            for (int i = 0; i < selection.size(); i++) {
+                int position = positions[i];
+                output.set(position, output.get(position) & !values.isNull(position));
+            }
+        }
+    }
 
-                size++;
-                return true;
+    public void find(long[] values, Selection selection, boolean[] output)
+    {
+        int[] positions = selection.positions();
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(values, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                output[position] = find(values[position], hashes[i - start], firstControls[i - start]);
             }
+        }
+    }
 
-            bucket = bucket(bucket + SPECIES.length());
+    /**
+     * Keeps the selected positions whose value is in the set, as for a semi join or an IN list. Null values are
+     * not kept.
+     *
+     * @param output receives the positions. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(Int64Vector values, Selection selection, int[] output)
+    {
+        long[] valueArray = values.values();
+        int[] positions = selection.positions();
+        boolean hasNulls = values.hasNulls();
+
+        int selected = 0;
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(valueArray, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                output[selected] = position;
+                boolean found = find(valueArray[position], hashes[i - start], firstControls[i - start]);
+                selected += found & !(hasNulls && values.isNull(position)) ? 1 : 0;
+            }
         }
+        return new Selection(output, selected);
     }
 
-    public boolean find(long value)
+    public long size()
     {
-        long hash = hash(value);
+        return size;
+    }
 
-        byte hashPrefix = (byte) (hash & 0x7F | 0x80);
-        int bucket = bucket((int) (hash >> 7));
+    /**
+     * Builds a {@link BlockedBloomFilter} of the values, sized for the current number of values. Call it once the
+     * set is complete, to drop the probes that cannot match before they reach the table.
+     */
+    public BlockedBloomFilter bloomFilter()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(Math.max(size, 1));
+        addTo(filter, table);
+        if (previous != null) {
+            addTo(filter, previous);
+        }
+        return filter;
+    }
 
-        while (true) {
-            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+    private static void addTo(BlockedBloomFilter filter, Table table)
+    {
+        for (long slot = 0; slot < table.capacity; slot++) {
+            if (table.isFull(slot)) {
+                long value = table.value(slot);
+                filter.addHash(hash(value));
+            }
+        }
+    }
 
-            long matches = controlVector.eq(hashPrefix).toLong();
-            while (matches != 0) {
-                int index = bucket(bucket + Long.numberOfTrailingZeros(matches)) * VALUE_WIDTH;
+    /**
+     * @return bytes used by the tables, including the old table while it is being moved
+     */
+    public long sizeInBytes()
+    {
+        return table.sizeInBytes() + (previous == null ? 0 : previous.sizeInBytes());
+    }
 
-                if ((long) LONG_HANDLE.get(values, index) == value) {
-                    return true;
-                }
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
 
-                matches = matches & (matches - 1);
-            }
+    /**
+     * Frees the memory of an off heap set. The set cannot be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        table.close();
+        if (previous != null) {
+            previous.close();
+        }
+    }
 
-            VectorMask<Byte> isEmpty = controlVector.eq((byte) 0);
-            if (isEmpty.anyTrue()) {
-                return false;
-            }
+    /**
+     * @return number of slots in the current table
+     */
+    public long capacity()
+    {
+        return table.capacity;
+    }
 
-            bucket = bucket(bucket + SPECIES.length());
+    /**
+     * @param firstControl the control byte at the start of the probe in {@link #table}
+     */
+    private boolean find(long value, long hash, byte firstControl)
+    {
+        return (firstControl != 0 && table.find(value, hash)) || (previous != null && previous.find(value, hash));
+    }
+
+    private void hash(long[] values, int[] positions, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            long hash = hash(values[positions[i]]);
+            hashes[i - start] = hash;
+            firstControls[i - start] = table.firstControl(hash);
         }
     }
 
-    private int bucket(int hash)
+    private void grow()
     {
-        return hash & mask;
+        // the step is large enough that this only happens if the table was created too small to need it
+        while (previous != null) {
+            migrate();
+        }
+
+        checkState(table.capacity * 2 <= MAX_CAPACITY, "Table is full");
+        previous = table;
+        migrated = 0;
+        table = new Table(table.capacity * 2, offHeap);
     }
 
-    private long hash(long value)
+    private void migrate()
+    {
+        long end = Math.min(migrated + MIGRATION_STEP, previous.capacity);
+        for (long slot = migrated; slot < end; slot++) {
+            if (previous.isFull(slot)) {
+                long value = previous.value(slot);
+                table.insert(value, hash(value));
+            }
+        }
+
+        migrated = end;
+        if (migrated == previous.capacity) {
+            previous.close();
+            previous = null;
+        }
+    }
+
+    static long hash(long value)
     {
         // xxHash64 mix
         return rotateLeft(value * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B185EBCA87L;
     }
 
+    /**
+     * Open addressing with one control byte per slot: 0 for empty, or the low 7 bits of the hash with the high bit
+     * set. The first group of control bytes is repeated after the last slot, so a group can be loaded at any slot.
+     */
+    private static final class Table
+    {
+        // owns the memory of an off heap table, or null
+        private final Arena arena;
+
+        private final MemorySegment control;
+        private final MemorySegment values;
+
+        private final long capacity;
+        private final long mask;
+
+        private long size;
+        private final long maxSize;
+
+        public Table(long capacity, boolean offHeap)
+        {
+            this.capacity = capacity;
+            mask = capacity - 1;
+            maxSize = capacity * 7 / 8;
+
+            // shared, so a table built by one thread can be probed by others
+            arena = offHeap ? Arena.openShared() : null;
+            control = allocate(capacity + SPECIES.length());
+            values = allocate(VALUE_WIDTH * capacity);
+        }
+
+        public boolean find(long value, long hash)
+        {
+            return probe(value, hash) >= 0;
+        }
+
+        /**
+         * @return the slot of the value, or {@code -1 - slot} of the first empty slot of the probe sequence
+         */
+        public long probe(long value, long hash)
+        {
+            byte hashPrefix = (byte) (hash & 0x7F | 0x80);
+            long bucket = bucket(hash >> 7);
+
+            while (true) {
+                ByteVector controlVector = ByteVector.fromMemorySegment(SPECIES, control, bucket, LITTLE_ENDIAN);
+
+                long matches = controlVector.eq(hashPrefix).toLong();
+                while (matches != 0) {
+                    long slot = bucket(bucket + Long.numberOfTrailingZeros(matches));
+                    if (value(slot) == value) {
+                        return slot;
+                    }
+
+                    matches = matches & (matches - 1);
+                }
+
+                long empty = controlVector.eq((byte) 0).toLong();
+                if (empty != 0) {
+                    return -1 - bucket(bucket + Long.numberOfTrailingZeros(empty));
+                }
+
+                bucket = bucket(bucket + SPECIES.length());
+            }
+        }
+
+        /**
+         * Inserts a value that is not in the table
+         */
+        public void insert(long value, long hash)
+        {
+            long bucket = bucket(hash >> 7);
+
+            while (true) {
+                VectorMask<Byte> isEmpty = ByteVector.fromMemorySegment(SPECIES, control, bucket, LITTLE_ENDIAN).eq((byte) 0);
+                if (isEmpty.anyTrue()) {
+                    insertAt(bucket(bucket + isEmpty.firstTrue()), value, hash);
+                    return;
+                }
+
+                bucket = bucket(bucket + SPECIES.length());
+            }
+        }
+
+        public void insertAt(long slot, long value, long hash)
+        {
+            byte hashPrefix = (byte) (hash & 0x7F | 0x80);
+            control.set(JAVA_BYTE, slot, hashPrefix);
+            if (slot < SPECIES.length()) {
+                control.set(JAVA_BYTE, slot + capacity, hashPrefix);
+            }
+            values.set(JAVA_LONG_UNALIGNED, slot * VALUE_WIDTH, value);
+
+            size++;
+        }
+
+        public byte firstControl(long hash)
+        {
+            return control.get(JAVA_BYTE, bucket(hash >> 7));
+        }
+
+        public boolean isFull(long slot)
+        {
+            return control.get(JAVA_BYTE, slot) != 0;
+        }
+
+        public long value(long slot)
+        {
+            return values.get(JAVA_LONG_UNALIGNED, slot * VALUE_WIDTH);
+        }
+
+        private long bucket(long hash)
+        {
+            return hash & mask;
+        }
+
+        public long sizeInBytes()
+        {
+            return control.byteSize() + values.byteSize();
+        }
+
+        public void close()
+        {
+            if (arena != null) {
+                arena.close();
+            }
+        }
+
+        private MemorySegment allocate(long bytes)
+        {
+            if (arena != null) {
+                MemorySegment segment = MemorySegment.allocateNative(bytes, arena.scope());
+                segment.fill((byte) 0);
+                return segment;
+            }
+
+            if (bytes <= MAX_HEAP_BYTES) {
+                return MemorySegment.ofArray(new byte[(int) bytes]);
+            }
+            // freed when the table is no longer reachable
+            MemorySegment segment = MemorySegment.allocateNative(bytes, SegmentScope.auto());
+            segment.fill((byte) 0);
+            return segment;
+        }
+    }
+
     public static void main(String[] args)
     {
         SwissVector table = new SwissVector(1000);
@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.slice.XxHash64;
+import jdk.incubator.vector.ByteVector;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.VarcharVector;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.weakref.eval.swiss.ControlBytes.SPECIES;
+import static org.weakref.eval.swiss.ControlBytes.bucket;
+import static org.weakref.eval.swiss.ControlBytes.controlByte;
+import static org.weakref.eval.swiss.ControlBytes.emptySlot;
+import static org.weakref.eval.swiss.ControlBytes.setControl;
+
+/**
+ * Set of byte strings, with the same control bytes as {@link SwissVector}. Each slot is three longs:
+ * <ul>
+ * <li>the 64-bit hash, so most mismatches are rejected without looking at the bytes, and growing does not hash
+ * anything again</li>
+ * <li>the length in the low 32 bits and the first 4 bytes in the high 32 bits</li>
+ * <li>bytes 4 to 11 for strings of up to {@link #INLINE_LENGTH} bytes, or the offset of the string in a separate
+ * byte[] arena for longer ones</li>
+ * </ul>
+ * Short strings, like the dates in TpchData, are compared with three long compares.
+ */
+public class VarcharSwissVector
+{
+    private static final int BATCH_SIZE = 256;
+
+    private static final int INLINE_LENGTH = 12;
+    private static final int SLOT_WIDTH = 3;
+    private static final int MAX_CAPACITY = 1 << 28;
+
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    private byte[] control;
+    private long[] entries;
+
+    private int capacity;
+    private int mask;
+    private int size;
+    private int maxSize;
+
+    private byte[] arena = new byte[1024];
+    private int arenaSize;
+
+    private final long[] hashes = new long[BATCH_SIZE];
+
+    public VarcharSwissVector()
+    {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public VarcharSwissVector(int expectedSize)
+    {
+        checkArgument(expectedSize > 0, "expectedSize must be greater than 0");
+        long expandedSize = expectedSize * 8L / 7L;
+        expandedSize = Math.max(SPECIES.length(), 1L << (64 - Long.numberOfLeadingZeros(expandedSize - 1)));
+        checkArgument(expandedSize <= MAX_CAPACITY, "Too large (" + expectedSize + " expected elements with load factor 7/8)");
+        allocate((int) expandedSize);
+    }
+
+    public boolean put(byte[] bytes, int offset, int length)
+    {
+        put(bytes, offset, length, hash(Slices.wrappedBuffer(bytes), offset, length));
+        return true;
+    }
+
+    public boolean find(byte[] bytes, int offset, int length)
+    {
+        return find(bytes, offset, length, hash(Slices.wrappedBuffer(bytes), offset, length));
+    }
+
+    public void putAll(VarcharVector values, Selection selection)
+    {
+        byte[] bytes = values.values();
+        int[] positions = selection.positions();
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(values, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                int offset = values.start(position);
+                put(bytes, offset, values.end(position) - offset, hashes[i - start]);
+            }
+        }
+    }
+
+    /**
+     * Sets each selected position of {@code output} to whether the value is in the set
+     */
+    public void find(VarcharVector values, Selection selection, BooleanVector output)
+    {
+        byte[] bytes = values.values();
+        int[] positions = selection.positions();
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(values, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                int offset = values.start(position);
+                output.set(position, find(bytes, offset, values.end(position) - offset, hashes[i - start]));
+            }
+        }
+    }
+
+    /**
+     * Keeps the selected positions whose value is in the set
+     *
+     * @param output receives the positions. It can be the positions array of {@code selection}.
+     */
+    public Selection filter(VarcharVector values, Selection selection, int[] output)
+    {
+        byte[] bytes = values.values();
+        int[] positions = selection.positions();
+
+        int selected = 0;
+        for (int start = 0; start < selection.size(); start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, selection.size());
+            hash(values, positions, start, end);
+
+            for (int i = start; i < end; i++) {
+                int position = positions[i];
+                int offset = values.start(position);
+                output[selected] = position;
+                selected += find(bytes, offset, values.end(position) - offset, hashes[i - start]) ? 1 : 0;
+            }
+        }
+        return new Selection(output, selected);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return bytes used by strings longer than {@link #INLINE_LENGTH}
+     */
+    public int arenaSize()
+    {
+        return arenaSize;
+    }
+
+    private void hash(VarcharVector values, int[] positions, int start, int end)
+    {
+        Slice slice = Slices.wrappedBuffer(values.values());
+        for (int i = start; i < end; i++) {
+            int position = positions[i];
+            int offset = values.start(position);
+            hashes[i - start] = hash(slice, offset, values.end(position) - offset);
+        }
+    }
+
+    private boolean find(byte[] bytes, int offset, int length, long hash)
+    {
+        return findSlot(bytes, offset, length, hash) >= 0;
+    }
+
+    private void put(byte[] bytes, int offset, int length, long hash)
+    {
+        if (findSlot(bytes, offset, length, hash) >= 0) {
+            return;
+        }
+
+        if (size == maxSize) {
+            rehash(capacity * 2);
+        }
+
+        int slot = emptySlot(control, mask, hash);
+        int index = slot * SLOT_WIDTH;
+        entries[index] = hash;
+        entries[index + 1] = lengthAndPrefix(bytes, offset, length);
+        if (length <= INLINE_LENGTH) {
+            entries[index + 2] = suffix(bytes, offset, length);
+        }
+        else {
+            entries[index + 2] = append(bytes, offset, length);
+        }
+        setControl(control, capacity, slot, controlByte(hash));
+        size++;
+    }
+
+    /**
+     * @return the slot of the value, or -1
+     */
+    private int findSlot(byte[] bytes, int offset, int length, long hash)
+    {
+        byte hashPrefix = controlByte(hash);
+        int bucket = bucket(hash, mask);
+        long lengthAndPrefix = lengthAndPrefix(bytes, offset, length);
+
+        while (true) {
+            ByteVector controlVector = ByteVector.fromArray(SPECIES, control, bucket);
+
+            long matches = controlVector.eq(hashPrefix).toLong();
+            while (matches != 0) {
+                int slot = (bucket + Long.numberOfTrailingZeros(matches)) & mask;
+                int index = slot * SLOT_WIDTH;
+                if (entries[index] == hash && entries[index + 1] == lengthAndPrefix && equals(entries[index + 2], bytes, offset, length)) {
+                    return slot;
+                }
+
+                matches = matches & (matches - 1);
+            }
+
+            if (controlVector.eq((byte) 0).anyTrue()) {
+                return -1;
+            }
+
+            bucket = (bucket + SPECIES.length()) & mask;
+        }
+    }
+
+    /**
+     * Compares the part of the value not in the length and prefix word
+     */
+    private boolean equals(long stored, byte[] bytes, int offset, int length)
+    {
+        if (length <= INLINE_LENGTH) {
+            return stored == suffix(bytes, offset, length);
+        }
+        int arenaOffset = (int) stored;
+        return Arrays.equals(arena, arenaOffset, arenaOffset + length, bytes, offset, offset + length);
+    }
+
+    private long append(byte[] bytes, int offset, int length)
+    {
+        if (arena.length - arenaSize < length) {
+            long newSize = Math.max((long) arenaSize + length, arena.length * 2L);
+            checkState(newSize <= Integer.MAX_VALUE - 8, "Arena is full");
+            arena = Arrays.copyOf(arena, (int) newSize);
+        }
+
+        int arenaOffset = arenaSize;
+        System.arraycopy(bytes, offset, arena, arenaOffset, length);
+        arenaSize += length;
+        return arenaOffset;
+    }
+
+    /**
+     * Moves the slots into a table of {@code newCapacity} slots, using the stored hashes
+     */
+    private void rehash(int newCapacity)
+    {
+        checkState(newCapacity <= MAX_CAPACITY, "Table is full");
+        byte[] oldControl = control;
+        long[] oldEntries = entries;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            if (oldControl[oldSlot] != 0) {
+                int oldIndex = oldSlot * SLOT_WIDTH;
+                int slot = emptySlot(control, mask, oldEntries[oldIndex]);
+                System.arraycopy(oldEntries, oldIndex, entries, slot * SLOT_WIDTH, SLOT_WIDTH);
+                setControl(control, capacity, slot, oldControl[oldSlot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.capacity = capacity;
+        mask = capacity - 1;
+        maxSize = (int) (capacity * 7L / 8L);
+        control = new byte[capacity + SPECIES.length()];
+        entries = new long[SLOT_WIDTH * capacity];
+    }
+
+    private static long hash(Slice slice, int offset, int length)
+    {
+        return XxHash64.hash(slice, offset, length);
+    }
+
+    private static long lengthAndPrefix(byte[] bytes, int offset, int length)
+    {
+        return (length & 0xFFFF_FFFFL) | (bytes(bytes, offset, Math.min(length, 4)) << 32);
+    }
+
+    /**
+     * Bytes 4 to 11 of a value of at most {@link #INLINE_LENGTH} bytes
+     */
+    private static long suffix(byte[] bytes, int offset, int length)
+    {
+        return length <= 4 ? 0 : bytes(bytes, offset + 4, length - 4);
+    }
+
+    /**
+     * Up to 8 bytes in little endian order, padded with zeros
+     */
+    private static long bytes(byte[] bytes, int offset, int length)
+    {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (bytes[offset + i] & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import org.junit.jupiter.api.Test;
+import org.weakref.eval.file.BatchReader.Batch;
+import org.weakref.eval.file.BatchReader.Output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.weakref.eval.file.TestColumnarFile.varchar;
+
+public class TestBatchReader
+{
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
+    // not a divisor of the batch size, so batches start and end inside chunks
+    private static final int ROWS_PER_CHUNK = 1008;
+    private static final int ROWS = 5000;
+
+    @Test
+    public void testBatchesSpanChunks()
+            throws IOException, InterruptedException
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ColumnarFile file = data.open()) {
+            for (ExecutorService prefetchExecutor : List.of(newDirectExecutorService(), executor)) {
+                for (Output output : Output.values()) {
+                    for (int batchSize : new int[] {BatchReader.MIN_BATCH_SIZE, 3000, BatchReader.MAX_BATCH_SIZE}) {
+                        assertBatches(data, file, batchSize, output, prefetchExecutor);
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            data.delete();
+        }
+    }
+
+    @Test
+    public void testBatchSize()
+            throws IOException
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        try (ColumnarFile file = data.open()) {
+            assertThrows(IllegalArgumentException.class, () -> new BatchReader(file, List.of("longs"), BatchReader.MIN_BATCH_SIZE - 1, Output.ARRAYS, newDirectExecutorService()));
+            assertThrows(IllegalArgumentException.class, () -> new BatchReader(file, List.of("longs"), BatchReader.MAX_BATCH_SIZE + 1, Output.ARRAYS, newDirectExecutorService()));
+        }
+        finally {
+            data.delete();
+        }
+    }
+
+    /**
+     * The prefetch is queued behind another task, so close must keep it from ever running
+     */
+    @Test
+    public void testCloseCancelsQueuedPrefetch()
+            throws Exception
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>())
+        {
+            @Override
+            protected void afterExecute(Runnable task, Throwable throwable)
+            {
+                Future<?> future = (Future<?>) task;
+                if (!future.isCancelled()) {
+                    try {
+                        future.get();
+                    }
+                    catch (ExecutionException | InterruptedException e) {
+                        failure.set(e);
+                    }
+                }
+            }
+        };
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            executor.submit(() -> {
+                blocked.await();
+                return null;
+            });
+
+            ColumnarFile file = data.open();
+            BatchReader reader = new BatchReader(file, List.of("longs", "varchar"), 2048, Output.SEGMENTS, executor);
+            reader.close();
+            reader.close();
+            assertNull(reader.next());
+
+            // the queued fill would read the unmapped file
+            file.close();
+            blocked.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertNull(failure.get());
+        }
+        finally {
+            blocked.countDown();
+            executor.shutdownNow();
+            data.delete();
+        }
+    }
+
+    @Test
+    public void testCloseAfterRead()
+            throws Exception
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ColumnarFile file = data.open()) {
+            try (BatchReader reader = new BatchReader(file, List.of("longs"), 2048, Output.ARRAYS, executor)) {
+                assertEquals(0, reader.next().firstRow());
+            }
+
+            BatchReader reader = new BatchReader(file, List.of("longs"), BatchReader.MAX_BATCH_SIZE, Output.ARRAYS, executor);
+            assertEquals(ROWS, reader.next().positionCount());
+            assertNull(reader.next());
+            reader.close();
+            assertNull(reader.next());
+        }
+        finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            data.delete();
+        }
+    }
+
+    @Test
+    public void testPruneAlignedBatches()
+            throws IOException
+    {
+        TestFile data = new TestFile(1024, ROWS);
+        try (ColumnarFile file = data.open()) {
+            // one whole chunk
+            assertPruned(data, file, List.of(RangePredicate.between("longs", data.longs[1024], data.longs[2047])), 1024);
+
+            // a range across the end of the first chunk leaves two batches, which still need the conjunct
+            assertPruned(data, file, List.of(RangePredicate.between("longs", data.longs[1000], data.longs[1100])), 0, 1024);
+
+            // the last, partial batch
+            assertPruned(data, file, List.of(RangePredicate.between("longs", data.longs[4096], Long.MAX_VALUE)), 4096);
+
+            // below the smallest value
+            assertPruned(data, file, List.of(RangePredicate.lessThan("longs", data.longs[0])));
+
+            // every predicate must match some rows, and only the ones covering a whole batch are always true
+            assertPruned(
+                    data,
+                    file,
+                    List.of(RangePredicate.between("ints", Integer.MIN_VALUE, 0), RangePredicate.varcharRange("key", key(2048), key(3072))),
+                    2048);
+            assertPruned(
+                    data,
+                    file,
+                    List.of(RangePredicate.varcharRange("key", null, key(1500)), RangePredicate.varcharRange("key", key(1200), null)),
+                    1024);
+        }
+        finally {
+            data.delete();
+        }
+    }
+
+    @Test
+    public void testPruneBatchesSpanningChunks()
+            throws IOException
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        try (ColumnarFile file = data.open()) {
+            // chunk 1 is rows 1008 to 2015. The batches covering it also cover part of chunk 0 or 2.
+            assertPruned(data, file, List.of(RangePredicate.between("longs", data.longs[1008], data.longs[2015])), 0, 1024);
+            assertPruned(data, file, List.of(RangePredicate.varcharRange("key", key(1008), key(2016))), 0, 1024);
+        }
+        finally {
+            data.delete();
+        }
+    }
+
+    @Test
+    public void testPredicateType()
+            throws IOException
+    {
+        TestFile data = new TestFile(ROWS_PER_CHUNK, ROWS);
+        try (ColumnarFile file = data.open()) {
+            assertThrows(IllegalArgumentException.class, () -> new BatchReader(file, List.of("longs"), 1024, Output.ARRAYS, List.of(RangePredicate.between("key", 0, 1)), newDirectExecutorService()));
+            assertThrows(IllegalArgumentException.class, () -> new BatchReader(file, List.of("longs"), 1024, Output.ARRAYS, List.of(RangePredicate.varcharRange("longs", null, null)), newDirectExecutorService()));
+        }
+        finally {
+            data.delete();
+        }
+    }
+
+    /**
+     * Reads batches of 1024 rows and checks that exactly the batches starting at {@code expectedRows} are returned.
+     * A predicate is always true for a batch if its range covers the batch.
+     */
+    private static void assertPruned(TestFile data, ColumnarFile file, List<RangePredicate> predicates, long... expectedRows)
+    {
+        try (BatchReader reader = new BatchReader(file, List.of("longs", "ints"), 1024, Output.ARRAYS, predicates, newDirectExecutorService())) {
+            int batches = 0;
+            long returnedRows = 0;
+            for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+                assertTrue(batches < expectedRows.length, "unexpected batch at row " + batch.firstRow());
+                assertEquals(expectedRows[batches], batch.firstRow());
+                for (int i = 0; i < batch.positionCount(); i++) {
+                    assertEquals(data.longs[(int) batch.firstRow() + i], batch.longs(0)[i]);
+                }
+                for (int predicate = 0; predicate < predicates.size(); predicate++) {
+                    boolean alwaysTrue = true;
+                    for (int i = 0; i < batch.positionCount(); i++) {
+                        alwaysTrue &= matches(predicates.get(predicate), data, (int) batch.firstRow() + i);
+                    }
+                    assertEquals(alwaysTrue, batch.alwaysTrue(predicate), "predicate " + predicate + " at row " + batch.firstRow());
+                }
+                batches++;
+                returnedRows += batch.positionCount();
+            }
+            assertEquals(expectedRows.length, batches);
+            assertEquals(ROWS - returnedRows, reader.prunedRows());
+        }
+    }
+
+    private static boolean matches(RangePredicate predicate, TestFile data, int row)
+    {
+        // a chunk of the single row, so the statistics are the value itself
+        ChunkMetadata value = switch (predicate.column()) {
+            case "longs" -> new ChunkMetadata(0, 0, data.longs[row], data.longs[row], null, null);
+            case "ints" -> new ChunkMetadata(0, 0, data.ints[row], data.ints[row], null, null);
+            case "key" -> new ChunkMetadata(0, 0, 0, 0, key(row), key(row));
+            default -> throw new IllegalArgumentException(predicate.column());
+        };
+        ColumnType type = predicate.column().equals("key") ? ColumnType.VARCHAR : predicate.column().equals("ints") ? ColumnType.INTEGER : ColumnType.BIGINT;
+        return predicate.match(type, value) == RangePredicate.Match.ALL;
+    }
+
+    private static byte[] key(int row)
+    {
+        return String.format("%06d", row).getBytes(UTF_8);
+    }
+
+    private static void assertBatches(TestFile data, ColumnarFile file, int batchSize, Output output, ExecutorService prefetchExecutor)
+    {
+        try (BatchReader reader = new BatchReader(file, List.of("varchar", "longs", "ints"), batchSize, output, prefetchExecutor)) {
+            long row = 0;
+            for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+                assertEquals(row, batch.firstRow());
+                assertEquals(Math.min(batchSize, ROWS - row), batch.positionCount());
+
+                int[] offsets = batch.offsets(0);
+                assertEquals(0, offsets[0]);
+                for (int i = 0; i < batch.positionCount(); i++) {
+                    int position = (int) row + i;
+                    assertArrayEquals(varchar(position), Arrays.copyOfRange(batch.bytes(0), offsets[i], offsets[i + 1]), "row " + position);
+                    if (output == Output.SEGMENTS) {
+                        assertEquals(data.longs[position], batch.segment(1).getAtIndex(LONG, i));
+                        assertEquals(data.ints[position], batch.segment(2).getAtIndex(INT, i));
+                    }
+                    else {
+                        assertEquals(data.longs[position], batch.longs(1)[i]);
+                        assertEquals(data.ints[position], batch.ints(2)[i]);
+                    }
+                }
+                row += batch.positionCount();
+            }
+            assertEquals(ROWS, row);
+            assertEquals(0, reader.prunedRows());
+        }
+    }
+
+    static final class TestFile
+    {
+        final long[] longs;
+        final int[] ints;
+        final Path path;
+
+        TestFile(int rowsPerChunk, int rows)
+                throws IOException
+        {
+            longs = new long[rows];
+            ints = new int[rows];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int[] offsets = new int[rows + 1];
+            ByteArrayOutputStream keys = new ByteArrayOutputStream();
+            int[] keyOffsets = new int[rows + 1];
+            for (int i = 0; i < rows; i++) {
+                longs[i] = i * 3L - 7;
+                ints[i] = -i;
+                bytes.writeBytes(varchar(i));
+                offsets[i + 1] = bytes.size();
+                keys.writeBytes(key(i));
+                keyOffsets[i + 1] = keys.size();
+            }
+
+            path = Files.createTempFile("batches", ".col");
+            new ColumnarFileWriter(rowsPerChunk)
+                    .addBigintColumn("longs", longs)
+                    .addIntegerColumn("ints", ints)
+                    .addVarcharColumn("varchar", bytes.toByteArray(), offsets)
+                    .addVarcharColumn("key", keys.toByteArray(), keyOffsets)
+                    .write(path);
+        }
+
+        ColumnarFile open()
+                throws IOException
+        {
+            return ColumnarFile.open(path);
+        }
+
+        void delete()
+                throws IOException
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestColumnarFile
+{
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
+    private static final int ROWS_PER_CHUNK = 128;
+    // a partial last chunk
+    private static final int ROWS = 1050;
+
+    @Test
+    public void testRoundTrip()
+            throws IOException
+    {
+        long[] longs = new long[ROWS];
+        int[] ints = new int[ROWS];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] offsets = new int[ROWS + 1];
+        for (int i = 0; i < ROWS; i++) {
+            longs[i] = i % 2 == 0 ? -i * 1_000_000_007L : Long.MAX_VALUE - i;
+            ints[i] = i * 7 % 1000 - 500;
+            bytes.writeBytes(varchar(i));
+            offsets[i + 1] = bytes.size();
+        }
+
+        Path path = Files.createTempFile("columnar", ".col");
+        try {
+            new ColumnarFileWriter(ROWS_PER_CHUNK)
+                    .addBigintColumn("longs", longs)
+                    .addIntegerColumn("ints", ints)
+                    .addVarcharColumn("varchar", bytes.toByteArray(), offsets)
+                    .write(path);
+
+            try (ColumnarFile file = ColumnarFile.open(path)) {
+                assertEquals(ROWS, file.rowCount());
+                assertEquals(ROWS_PER_CHUNK, file.rowsPerChunk());
+                assertEquals(9, file.chunkCount());
+                assertEquals(ROWS_PER_CHUNK, file.chunkRowCount(0));
+                assertEquals(26, file.chunkRowCount(8));
+                assertEquals(ColumnType.VARCHAR, file.columns().get(file.columnIndex("varchar")).type());
+                assertThrows(IllegalArgumentException.class, () -> file.columnIndex("missing"));
+
+                int longColumn = file.columnIndex("longs");
+                int intColumn = file.columnIndex("ints");
+                MemorySegment allLongs = file.column(longColumn);
+                MemorySegment allInts = file.column(intColumn);
+                assertEquals(ROWS * (long) Long.BYTES, allLongs.byteSize());
+                for (int i = 0; i < ROWS; i++) {
+                    assertEquals(longs[i], allLongs.getAtIndex(LONG, i));
+                    assertEquals(ints[i], allInts.getAtIndex(INT, i));
+                }
+
+                int varcharColumn = file.columnIndex("varchar");
+                assertThrows(IllegalArgumentException.class, () -> file.column(varcharColumn));
+                assertThrows(IllegalArgumentException.class, () -> file.offsets(longColumn, 0));
+                for (int chunk = 0; chunk < file.chunkCount(); chunk++) {
+                    int start = chunk * ROWS_PER_CHUNK;
+                    int end = start + file.chunkRowCount(chunk);
+
+                    assertEquals(0, file.chunk(longColumn, chunk).offset() % ColumnarFile.ALIGNMENT);
+                    assertEquals(Arrays.stream(longs, start, end).min().getAsLong(), file.chunk(longColumn, chunk).min());
+                    assertEquals(Arrays.stream(longs, start, end).max().getAsLong(), file.chunk(longColumn, chunk).max());
+                    assertEquals(Arrays.stream(ints, start, end).min().getAsInt(), file.chunk(intColumn, chunk).min());
+                    assertEquals(Arrays.stream(ints, start, end).max().getAsInt(), file.chunk(intColumn, chunk).max());
+                    assertEquals((end - start) * (long) Integer.BYTES, file.values(intColumn, chunk).byteSize());
+
+                    // offsets are relative to the chunk
+                    MemorySegment chunkOffsets = file.offsets(varcharColumn, chunk);
+                    MemorySegment values = file.values(varcharColumn, chunk);
+                    assertEquals(0, chunkOffsets.getAtIndex(INT, 0));
+                    assertEquals(values.byteSize(), chunkOffsets.getAtIndex(INT, end - start));
+                    byte[] min = null;
+                    byte[] max = null;
+                    for (int row = start; row < end; row++) {
+                        byte[] value = values.asSlice(chunkOffsets.getAtIndex(INT, row - start), chunkOffsets.getAtIndex(INT, row - start + 1) - chunkOffsets.getAtIndex(INT, row - start)).toArray(ValueLayout.JAVA_BYTE);
+                        assertArrayEquals(varchar(row), value);
+                        min = min == null || Arrays.compareUnsigned(value, min) < 0 ? value : min;
+                        max = max == null || Arrays.compareUnsigned(value, max) > 0 ? value : max;
+                    }
+                    assertArrayEquals(min, file.chunk(varcharColumn, chunk).minValue());
+                    assertArrayEquals(max, file.chunk(varcharColumn, chunk).maxValue());
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testEmpty()
+            throws IOException
+    {
+        Path path = Files.createTempFile("columnar", ".col");
+        try {
+            new ColumnarFileWriter(ROWS_PER_CHUNK)
+                    .addBigintColumn("longs", new long[0])
+                    .addVarcharColumn("varchar", new byte[0], new int[1])
+                    .write(path);
+
+            try (ColumnarFile file = ColumnarFile.open(path)) {
+                assertEquals(0, file.rowCount());
+                assertEquals(0, file.chunkCount());
+                assertEquals(0, file.column(file.columnIndex("longs")).byteSize());
+            }
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testWriterChecks()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarFileWriter(100));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarFileWriter(ROWS_PER_CHUNK)
+                .addBigintColumn("a", new long[2])
+                .addBigintColumn("a", new long[2]));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarFileWriter(ROWS_PER_CHUNK)
+                .addBigintColumn("a", new long[2])
+                .addIntegerColumn("b", new int[3]));
+    }
+
+    /**
+     * Values of different lengths, including empty ones, and bytes that are negative when signed, so unsigned
+     * ordering matters for the statistics
+     */
+    static byte[] varchar(int row)
+    {
+        if (row % 17 == 0) {
+            return new byte[0];
+        }
+        if (row % 13 == 0) {
+            return new byte[] {(byte) 0xFF, (byte) row};
+        }
+        return ("value-" + (row * 31 % 997)).getBytes(UTF_8);
+    }
+}
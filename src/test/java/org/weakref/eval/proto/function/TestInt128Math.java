@@ -0,0 +1,213 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.proto.function;
+
+import org.junit.jupiter.api.Test;
+import org.weakref.eval.proto.vector.Int128Vector;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestInt128Math
+{
+    private static final BigInteger MAX_VALUE = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+    private static final BigInteger MIN_VALUE = BigInteger.ONE.shiftLeft(127).negate();
+    private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(64);
+
+    private static final List<BigInteger> VALUES = List.of(
+            BigInteger.ZERO,
+            BigInteger.ONE,
+            BigInteger.ONE.negate(),
+            BigInteger.valueOf(Long.MAX_VALUE),
+            BigInteger.valueOf(Long.MIN_VALUE),
+            // all ones in the low word, so adding one carries into the high word
+            TWO_TO_64.subtract(BigInteger.ONE),
+            TWO_TO_64,
+            TWO_TO_64.negate(),
+            BigInteger.ONE.shiftLeft(63),
+            BigInteger.ONE.shiftLeft(63).negate(),
+            BigInteger.ONE.shiftLeft(126),
+            BigInteger.TEN.pow(38).subtract(BigInteger.ONE),
+            BigInteger.TEN.pow(38).negate(),
+            MAX_VALUE,
+            MAX_VALUE.subtract(BigInteger.ONE),
+            MIN_VALUE,
+            MIN_VALUE.add(BigInteger.ONE));
+
+    @Test
+    public void testAdd()
+    {
+        for (BigInteger left : VALUES) {
+            for (BigInteger right : VALUES) {
+                Int128Vector output = new Int128Vector(new long[2]);
+                boolean overflow = Int128Math.add(low(left), high(left), low(right), high(right), output, 0);
+                assertResult(left + " + " + right, left.add(right), overflow, output);
+            }
+        }
+    }
+
+    @Test
+    public void testSubtract()
+    {
+        for (BigInteger left : VALUES) {
+            for (BigInteger right : VALUES) {
+                Int128Vector output = new Int128Vector(new long[2]);
+                boolean overflow = Int128Math.subtract(low(left), high(left), low(right), high(right), output, 0);
+                assertResult(left + " - " + right, left.subtract(right), overflow, output);
+            }
+        }
+    }
+
+    @Test
+    public void testMultiply()
+    {
+        for (BigInteger left : VALUES) {
+            for (BigInteger right : VALUES) {
+                Int128Vector output = new Int128Vector(new long[2]);
+                boolean overflow = Int128Math.multiply(low(left), high(left), low(right), high(right), output, 0);
+                assertResult(left + " * " + right, left.multiply(right), overflow, output);
+            }
+        }
+    }
+
+    @Test
+    public void testMultiplyMinValue()
+    {
+        Int128Vector output = new Int128Vector(new long[2]);
+
+        // -2^127 is the only product whose magnitude is 2^127
+        assertEquals(false, Int128Math.multiply(low(BigInteger.ONE.shiftLeft(63).negate()), -1, low(BigInteger.ONE.shiftLeft(64)), 1, output, 0));
+        assertEquals(MIN_VALUE, value(output));
+        assertEquals(true, Int128Math.multiply(low(BigInteger.ONE.shiftLeft(63)), 0, 0, 1, output, 0));
+        assertEquals(true, Int128Math.multiply(low(MIN_VALUE), high(MIN_VALUE), -1, -1, output, 0));
+    }
+
+    @Test
+    public void testRescaleUp()
+    {
+        for (BigInteger value : VALUES) {
+            for (int scaleChange : new int[] {0, 1, 9, 18, 19, 38}) {
+                Int128Vector output = new Int128Vector(new long[2]);
+                boolean overflow = Int128Math.rescale(low(value), high(value), scaleChange, output, 0);
+                assertResult(value + " * 10^" + scaleChange, value.multiply(BigInteger.TEN.pow(scaleChange)), overflow, output);
+            }
+        }
+    }
+
+    @Test
+    public void testRescaleDown()
+    {
+        for (BigInteger value : VALUES) {
+            for (int scaleChange : new int[] {-1, -9, -10, -18, -19, -27, -37, -38}) {
+                assertRescaleDown(value, scaleChange);
+            }
+        }
+    }
+
+    @Test
+    public void testRescaleRounding()
+    {
+        // halves round away from zero, on both the single division path and the 9 digit path
+        for (int scaleChange : new int[] {-1, -5, -18, -19, -30}) {
+            BigInteger half = BigInteger.TEN.pow(-scaleChange).divide(BigInteger.TWO);
+            for (BigInteger quotient : List.of(BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(12345), TWO_TO_64)) {
+                BigInteger base = quotient.multiply(BigInteger.TEN.pow(-scaleChange));
+                if (base.bitLength() > 126) {
+                    continue;
+                }
+                for (BigInteger value : List.of(base.add(half), base.add(half).subtract(BigInteger.ONE), base.add(half).add(BigInteger.ONE))) {
+                    assertRescaleDown(value, scaleChange);
+                    assertRescaleDown(value.negate(), scaleChange);
+                }
+            }
+        }
+
+        Int128Vector output = new Int128Vector(new long[2]);
+        Int128Math.rescale(15, 0, -1, output, 0);
+        assertEquals(BigInteger.TWO, value(output));
+        Int128Math.rescale(-15, -1, -1, output, 0);
+        assertEquals(BigInteger.TWO.negate(), value(output));
+        Int128Math.rescale(14, 0, -1, output, 0);
+        assertEquals(BigInteger.ONE, value(output));
+    }
+
+    @Test
+    public void testRescaleOutOfRange()
+    {
+        Int128Vector output = new Int128Vector(new long[2]);
+        assertThrows(IllegalArgumentException.class, () -> Int128Math.rescale(1, 0, 39, output, 0));
+        assertThrows(IllegalArgumentException.class, () -> Int128Math.rescale(1, 0, -39, output, 0));
+    }
+
+    @Test
+    public void testExceedsMaxPrecision()
+    {
+        BigInteger max = BigInteger.TEN.pow(38).subtract(BigInteger.ONE);
+        assertEquals(false, Int128Math.exceedsMaxPrecision(low(max), high(max)));
+        assertEquals(false, Int128Math.exceedsMaxPrecision(low(max.negate()), high(max.negate())));
+        assertEquals(true, Int128Math.exceedsMaxPrecision(low(max.add(BigInteger.ONE)), high(max.add(BigInteger.ONE))));
+        assertEquals(true, Int128Math.exceedsMaxPrecision(low(max.negate().subtract(BigInteger.ONE)), high(max.negate().subtract(BigInteger.ONE))));
+        assertEquals(true, Int128Math.exceedsMaxPrecision(low(MIN_VALUE), high(MIN_VALUE)));
+    }
+
+    @Test
+    public void testCompare()
+    {
+        for (BigInteger left : VALUES) {
+            for (BigInteger right : VALUES) {
+                int expected = left.compareTo(right);
+                assertEquals(expected, Integer.signum(Int128Math.compare(low(left), high(left), low(right), high(right))), left + " <=> " + right);
+                assertEquals(expected < 0, Int128Math.lessThan(low(left), high(left), low(right), high(right)), left + " < " + right);
+            }
+        }
+    }
+
+    private static void assertRescaleDown(BigInteger value, int scaleChange)
+    {
+        BigInteger expected = new BigDecimal(value).divide(BigDecimal.TEN.pow(-scaleChange), 0, RoundingMode.HALF_UP).toBigIntegerExact();
+
+        Int128Vector output = new Int128Vector(new long[2]);
+        boolean overflow = Int128Math.rescale(low(value), high(value), scaleChange, output, 0);
+        assertResult(value + " / 10^" + -scaleChange, expected, overflow, output);
+    }
+
+    private static void assertResult(String expression, BigInteger expected, boolean overflow, Int128Vector output)
+    {
+        boolean expectedOverflow = expected.compareTo(MAX_VALUE) > 0 || expected.compareTo(MIN_VALUE) < 0;
+        assertEquals(expectedOverflow, overflow, expression);
+        if (!expectedOverflow) {
+            assertEquals(expected, value(output), expression);
+        }
+    }
+
+    private static BigInteger value(Int128Vector vector)
+    {
+        return BigInteger.valueOf(vector.high(0)).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(vector.low(0))));
+    }
+
+    private static long low(BigInteger value)
+    {
+        return value.longValue();
+    }
+
+    private static long high(BigInteger value)
+    {
+        return value.shiftRight(64).longValue();
+    }
+}
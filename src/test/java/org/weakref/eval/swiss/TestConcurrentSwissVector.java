@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConcurrentSwissVector
+{
+    // multiplying by an odd number is one to one, and spreads the keys over the whole range of longs
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    @Test
+    public void testPutAndFind()
+    {
+        ConcurrentSwissVector table = new ConcurrentSwissVector(100);
+        for (long i = 0; i < 100; i++) {
+            assertTrue(table.put(i * SPREAD));
+            assertFalse(table.put(i * SPREAD));
+        }
+        assertEquals(100, table.size());
+        for (long i = 0; i < 100; i++) {
+            assertTrue(table.find(i * SPREAD));
+            assertFalse(table.find((100 + i) * SPREAD));
+        }
+    }
+
+    /**
+     * Threads add overlapping ranges of keys, in different orders, so they race for the same slots
+     */
+    @Test
+    public void testConcurrentPut()
+            throws Exception
+    {
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors());
+        int keysPerThread = 200_000;
+        int stride = keysPerThread / 2;
+        long distinct = (long) (threads - 1) * stride + keysPerThread;
+
+        for (int round = 0; round < 10; round++) {
+            ConcurrentSwissVector table = new ConcurrentSwissVector((int) distinct);
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Integer>> added = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                long[] keys = new long[keysPerThread];
+                for (int i = 0; i < keysPerThread; i++) {
+                    keys[i] = (thread * stride + i) * SPREAD;
+                }
+                shuffle(keys, new Random(round * threads + thread));
+
+                added.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (long key : keys) {
+                        count += table.put(key) ? 1 : 0;
+                        assertTrue(table.find(key), "key not found after it was added");
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            long addedCount = 0;
+            try {
+                for (Future<Integer> future : added) {
+                    addedCount += future.get();
+                }
+            }
+            finally {
+                executor.shutdownNow();
+            }
+
+            assertEquals(distinct, addedCount);
+            assertEquals(distinct, table.size());
+            for (long i = 0; i < distinct; i++) {
+                assertTrue(table.find(i * SPREAD));
+                assertFalse(table.find((distinct + i) * SPREAD));
+            }
+        }
+    }
+
+    private static void shuffle(long[] values, Random random)
+    {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+}
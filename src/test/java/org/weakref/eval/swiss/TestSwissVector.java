@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.eval.swiss;
+
+import org.junit.jupiter.api.Test;
+import org.weakref.eval.proto.mask.Selection;
+import org.weakref.eval.proto.vector.BooleanVector;
+import org.weakref.eval.proto.vector.Int64Vector;
+import org.weakref.eval.proto.vector.NullBitmap;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSwissVector
+{
+    @Test
+    public void testPutAndFind()
+    {
+        SwissVector table = new SwissVector(100);
+        long[] values = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 42};
+        for (long value : values) {
+            table.put(value);
+            table.put(value);
+        }
+        assertEquals(values.length, table.size());
+        for (long value : values) {
+            assertTrue(table.find(value));
+        }
+        assertFalse(table.find(2));
+        assertFalse(table.find(Long.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void testGrowDuringMigration()
+    {
+        SwissVector table = new SwissVector(16);
+        assertGrowth(table, 100_000);
+    }
+
+    @Test
+    public void testGrowDuringMigrationOffHeap()
+    {
+        try (SwissVector table = SwissVector.offHeap(16)) {
+            assertTrue(table.isOffHeap());
+            assertGrowth(table, 20_000);
+        }
+    }
+
+    /**
+     * Right after the table grows, some values are only in the old table
+     */
+    @Test
+    public void testBatchDuringMigration()
+    {
+        SwissVector table = new SwissVector(64);
+        long capacity = table.capacity();
+        long count = 0;
+        while (table.capacity() == capacity) {
+            table.put(key(count++));
+        }
+        long migrating = table.sizeInBytes();
+        assertEquals(tableSize(table.capacity()) + tableSize(capacity), migrating);
+
+        // even positions hold keys in the set, odd ones keys that are not, and every fifth position is null
+        int positions = 1000;
+        long[] values = new long[positions];
+        NullBitmap nulls = new NullBitmap(positions);
+        int[] selected = new int[positions];
+        for (int i = 0; i < positions; i++) {
+            values[i] = i % 2 == 0 ? key(i / 2 % count) : key(count + i);
+            nulls.set(i, i % 5 == 0);
+            selected[i] = i;
+        }
+        Int64Vector vector = new Int64Vector(values, nulls);
+        Selection selection = new Selection(selected, positions);
+
+        boolean[] found = new boolean[positions];
+        table.find(vector, selection, new BooleanVector(found));
+        // find does not move any slots
+        assertEquals(migrating, table.sizeInBytes());
+
+        int[] expectedPositions = new int[positions];
+        int expectedCount = 0;
+        for (int i = 0; i < positions; i++) {
+            boolean expected = i % 2 == 0 && i % 5 != 0;
+            assertEquals(expected, found[i], "position " + i);
+            if (expected) {
+                expectedPositions[expectedCount++] = i;
+            }
+        }
+
+        Selection filtered = table.filter(vector, selection, new int[positions]);
+        assertEquals(expectedCount, filtered.size());
+        assertArrayEquals(Arrays.copyOf(expectedPositions, expectedCount), Arrays.copyOf(filtered.positions(), filtered.size()));
+
+        // the non null keys that are not in the set are added, which finishes moving the old table
+        table.putAll(vector, selection);
+        long added = 0;
+        for (int i = 0; i < positions; i++) {
+            added += i % 2 == 1 && i % 5 != 0 ? 1 : 0;
+        }
+        assertEquals(count + added, table.size());
+        for (int i = 0; i < positions; i++) {
+            assertEquals(i % 2 == 0 || i % 5 != 0, table.find(values[i]), "position " + i);
+        }
+        assertEquals(tableSize(table.capacity()), table.sizeInBytes());
+    }
+
+    private static void assertGrowth(SwissVector table, int count)
+    {
+        long capacity = table.capacity();
+        for (int i = 0; i < count; i++) {
+            long bytes = table.sizeInBytes();
+            table.put(key(i));
+            assertEquals(i + 1, table.size());
+
+            if (table.capacity() != capacity) {
+                assertEquals(capacity * 2, table.capacity());
+                // the previous old table was moved before this growth
+                assertEquals(tableSize(capacity), bytes);
+                capacity = table.capacity();
+
+                // the values are split between the tables, and adding them again adds nothing
+                for (int j = 0; j <= i; j++) {
+                    assertTrue(table.find(key(j)), "key " + j + " not found");
+                    table.put(key(j));
+                }
+                assertEquals(i + 1, table.size());
+                assertFalse(table.find(key(i + 1)));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(table.find(key(i)));
+        }
+        for (int i = count; i < count * 2; i++) {
+            assertFalse(table.find(key(i)));
+        }
+    }
+
+    private static long tableSize(long capacity)
+    {
+        return new SwissVector(capacity * 7 / 8).sizeInBytes();
+    }
+
+    private static long key(long i)
+    {
+        return i * 0x9E3779B97F4A7C15L;
+    }
+}